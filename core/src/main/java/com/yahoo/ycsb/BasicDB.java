@@ -194,6 +194,38 @@ public class BasicDB extends DB {
     return Status.OK;
   }
 
+  /**
+   * Find the records matching a predicate.
+   *
+   * @param table     The name of the table
+   * @param predicate The condition the records must meet
+   * @param limit     The maximum number of records to return
+   * @param fields    The list of fields to read, or null for all of them
+   * @param result    A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return Zero on success, a non-zero error code on error
+   */
+  public Status query(String table, Predicate predicate, int limit, Set<String> fields,
+                      Vector<HashMap<String, ByteIterator>> result) {
+    delay();
+
+    if (verbose) {
+      StringBuilder sb = getStringBuilder();
+      sb.append("QUERY ").append(table).append(" ").append(predicate).append(" ").append(limit).append(" [ ");
+      if (fields != null) {
+        for (String f : fields) {
+          sb.append(f).append(" ");
+        }
+      } else {
+        sb.append("<all fields>");
+      }
+
+      sb.append("]");
+      System.out.println(sb);
+    }
+
+    return Status.OK;
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
    * record with the specified record key, overwriting any existing values with the same field name.
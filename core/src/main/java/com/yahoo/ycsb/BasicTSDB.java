@@ -18,6 +18,7 @@ package com.yahoo.ycsb;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -173,8 +174,39 @@ public class BasicTSDB extends BasicDB {
   @Override
   public Status insert(String table, String key, Map<String, ByteIterator> values) {
     delay();
+    return recordInsert(table, key, values);
+  }
+
+  /**
+   * Handles a batch as a single request, delaying once and then printing and
+   * counting each point as an insert. Returns the status of the first point
+   * that failed, if any.
+   */
+  @Override
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    delay();
     
+    if (verbose) {
+      System.out.println(getStringBuilder().append("BATCH INSERT ").append(table)
+          .append(" ").append(keys.size()).append(" points"));
+    }
+    Status status = Status.OK;
+    for (int i = 0; i < keys.size(); i++) {
+      final Status pointStatus = recordInsert(table, keys.get(i), values.get(i));
+      if (status.isOk() && !pointStatus.isOk()) {
+        status = pointStatus;
+      }
+    }
+    return status;
+  }
+
+  private Status recordInsert(String table, String key, Map<String, ByteIterator> values) {
     boolean isFloat = false;
+    if (values == null || values.get(timestampKey) == null
+        || !(values.get(valueKey) instanceof NumericByteIterator)) {
+      // not a data point
+      return Status.BAD_REQUEST;
+    }
     
     if (verbose) {
       StringBuilder sb = getStringBuilder();
@@ -17,8 +17,11 @@
 
 package com.yahoo.ycsb;
 
+import com.yahoo.ycsb.measurements.GCPauseMonitor;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.ServiceLevelObjectives;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.StreamingMeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 import org.apache.htrace.core.HTraceConfiguration;
 import org.apache.htrace.core.TraceScope;
@@ -68,6 +71,15 @@ class StatusThread extends Thread {
   private long lastGCCount = 0;
   private long lastGCTime = 0;
 
+  // Optional stream of per interval records and whether to print the status line.
+  private StreamingMeasurementsExporter intervalExporter;
+  private int intervalIndex = 0;
+  private boolean printStatus = true;
+
+  // Optional SLO rules checked every interval and the workload to stop on violation.
+  private ServiceLevelObjectives slos;
+  private Workload workload;
+
   /**
    * Creates a new StatusThread without JVM stat tracking.
    *
@@ -106,6 +118,30 @@ class StatusThread extends Thread {
     this.trackJVMStats = trackJVMStats;
   }
 
+  /**
+   * Stream the statistics of every interval to the given exporter, flushing it
+   * at the end of each interval. The caller closes the exporter once this
+   * thread has finished.
+   */
+  public void setIntervalExporter(StreamingMeasurementsExporter exporter) {
+    this.intervalExporter = exporter;
+  }
+
+  /**
+   * Check the given SLO rules every interval and stop the workload if they ask for it.
+   */
+  public void setServiceLevelObjectives(ServiceLevelObjectives objectives, Workload stoppable) {
+    this.slos = objectives;
+    this.workload = stoppable;
+  }
+
+  /**
+   * @param print Whether to print the status line every interval.
+   */
+  public void setPrintStatus(boolean print) {
+    this.printStatus = print;
+  }
+
   /**
    * Run and periodically report status.
    */
@@ -128,6 +164,11 @@ class StatusThread extends Thread {
         measureJVM();
       }
 
+      final GCPauseMonitor gcPauseMonitor = GCPauseMonitor.getMonitor();
+      if (gcPauseMonitor != null) {
+        gcPauseMonitor.correlate();
+      }
+
       alldone = waitForClientsUntil(deadline);
 
       startIntervalMs = nowMs;
@@ -187,14 +228,42 @@ class StatusThread extends Thread {
 
     msg.append(Measurements.getMeasurements().getSummary());
 
-    System.err.println(msg);
+    if (intervalExporter != null) {
+      exportInterval(endIntervalMs, totalops, curthroughput);
+    }
 
-    if (standardstatus) {
-      System.out.println(msg);
+    if (slos != null && slos.evaluate(measurements, endIntervalMs) && !workload.isStopRequested()) {
+      System.err.println(slos.getAbortReason() + " violated. Requesting stop for the workload.");
+      workload.requestStop();
+    }
+
+    if (printStatus) {
+      System.err.println(msg);
+
+      if (standardstatus) {
+        System.out.println(msg);
+      }
     }
     return totalops;
   }
 
+  /**
+   * Writes the interval just summarized to the interval exporter. A failing
+   * exporter is dropped so the run itself carries on.
+   */
+  private void exportInterval(long endIntervalMs, long totalops, double curthroughput) {
+    try {
+      intervalExporter.startInterval(intervalIndex++, endIntervalMs);
+      intervalExporter.write("OVERALL", "Operations", totalops);
+      intervalExporter.write("OVERALL", "Throughput(ops/sec)", curthroughput);
+      measurements.exportLastIntervals(intervalExporter);
+      intervalExporter.flush();
+    } catch (IOException e) {
+      System.err.println("Could not export interval measurements, error: " + e.getMessage());
+      intervalExporter = null;
+    }
+  }
+
   /**
    * Waits for all of the client to finish or the deadline to expire.
    *
@@ -366,10 +435,10 @@ class ClientThread implements Runnable {
   private DB db;
   private boolean dotransactions;
   private Workload workload;
-  private int opcount;
+  private long opcount;
   private double targetOpsPerMs;
 
-  private int opsdone;
+  private volatile long opsdone;
   private int threadid;
   private int threadcount;
   private Object workloadstate;
@@ -388,7 +457,7 @@ class ClientThread implements Runnable {
    * @param targetperthreadperms target number of operations per thread per ms
    * @param completeLatch        The latch tracking the completion of all clients.
    */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount,
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount,
                       double targetperthreadperms, CountDownLatch completeLatch) {
     this.db = db;
     this.dotransactions = dotransactions;
@@ -413,7 +482,7 @@ class ClientThread implements Runnable {
     threadcount = threadCount;
   }
   
-  public int getOpsDone() {
+  public long getOpsDone() {
     return opsdone;
   }
 
@@ -479,6 +548,13 @@ class ClientThread implements Runnable {
       System.exit(0);
     }
 
+    try {
+      workload.cleanupThread(db, workloadstate);
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+
     try {
       measurements.setIntendedStartTimeNs(0);
       db.cleanup();
@@ -511,8 +587,8 @@ class ClientThread implements Runnable {
   /**
    * The total amount of work this thread is still expected to do.
    */
-  int getOpsTodo() {
-    int todo = opcount - opsdone;
+  long getOpsTodo() {
+    long todo = opcount - opsdone;
     return todo < 0 ? 0 : todo;
   }
 }
@@ -559,6 +635,18 @@ public final class Client {
    */
   public static final String EXPORT_FILE_PROPERTY = "exportfile";
 
+  /**
+   * The streaming exporter class used for the per interval records. The default is
+   * com.yahoo.ycsb.measurements.exporter.NDJSONMeasurementsExporter.
+   */
+  public static final String INTERVAL_EXPORTER_PROPERTY = "intervalexporter";
+
+  /**
+   * If set to the path of a file, the statistics of every status interval are
+   * streamed to this file while the run is in progress.
+   */
+  public static final String INTERVAL_EXPORT_FILE_PROPERTY = "intervalexportfile";
+
   /**
    * The number of YCSB client threads to run.
    */
@@ -601,6 +689,11 @@ public final class Client {
    */
   private static StatusThread statusthread = null;
 
+  /**
+   * The optional SLO rules checked by the status thread.
+   */
+  private static ServiceLevelObjectives slos = null;
+
   // HTrace integration related constants.
 
   /**
@@ -658,7 +751,7 @@ public final class Client {
    *
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  private static void exportMeasurements(Properties props, long opcount, long runtime)
       throws IOException {
     MeasurementsExporter exporter = null;
     try {
@@ -712,6 +805,15 @@ public final class Client {
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
 
+      final GCPauseMonitor gcPauseMonitor = GCPauseMonitor.getMonitor();
+      if (gcPauseMonitor != null) {
+        gcPauseMonitor.exportMeasurements(exporter);
+      }
+
+      if (slos != null) {
+        slos.exportMeasurements(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally {
       if (exporter != null) {
@@ -720,6 +822,27 @@ public final class Client {
     }
   }
 
+  /**
+   * Opens the streaming exporter for the per interval records, if an interval
+   * export file is configured.
+   *
+   * @return The exporter or null if interval export is disabled.
+   */
+  private static StreamingMeasurementsExporter openIntervalExporter(Properties props) {
+    String exportFile = props.getProperty(INTERVAL_EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      return null;
+    }
+    String exporterStr = props.getProperty(INTERVAL_EXPORTER_PROPERTY,
+        "com.yahoo.ycsb.measurements.exporter.NDJSONMeasurementsExporter");
+    try {
+      return (StreamingMeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(new FileOutputStream(exportFile));
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to open interval exporter " + exporterStr + " for " + exportFile, e);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static void main(String[] args) {
     Properties props = parseArguments(args);
@@ -746,6 +869,11 @@ public final class Client {
 
     Measurements.setProperties(props);
 
+    if (Boolean.parseBoolean(props.getProperty(Measurements.MEASUREMENT_TRACK_GC_PROPERTY,
+        Measurements.MEASUREMENT_TRACK_GC_PROPERTY_DEFAULT))) {
+      GCPauseMonitor.start(props);
+    }
+
     Workload workload = getWorkload(props);
 
     final Tracer tracer = getTracer(props, workload);
@@ -758,7 +886,11 @@ public final class Client {
     final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
         workload, tracer, completeLatch);
 
-    if (status) {
+    final StreamingMeasurementsExporter intervalExporter = openIntervalExporter(props);
+
+    slos = ServiceLevelObjectives.create(props);
+
+    if (status || intervalExporter != null || slos != null) {
       boolean standardstatus = false;
       if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
         standardstatus = true;
@@ -768,13 +900,16 @@ public final class Client {
           Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
       statusthread = new StatusThread(completeLatch, clients, label, standardstatus, statusIntervalSeconds,
           trackJVMStats);
+      statusthread.setIntervalExporter(intervalExporter);
+      statusthread.setPrintStatus(status);
+      statusthread.setServiceLevelObjectives(slos, workload);
       statusthread.start();
     }
 
     Thread terminator = null;
     long st;
     long en;
-    int opsDone;
+    long opsDone;
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
@@ -815,7 +950,7 @@ public final class Client {
           terminator.interrupt();
         }
 
-        if (status) {
+        if (statusthread != null) {
           // wake up status thread if it's asleep
           statusthread.interrupt();
           // at this point we assume all the monitored threads are already gone as per above join loop.
@@ -826,6 +961,18 @@ public final class Client {
           }
         }
 
+        if (slos != null) {
+          System.err.print(slos.getSummary());
+        }
+
+        if (intervalExporter != null) {
+          try {
+            intervalExporter.close();
+          } catch (IOException e) {
+            System.err.println("Could not close interval exporter, error: " + e.getMessage());
+          }
+        }
+
         workload.cleanup();
       }
     } catch (WorkloadException e) {
@@ -855,15 +1002,16 @@ public final class Client {
 
     final List<ClientThread> clients = new ArrayList<>(threadcount);
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
-      int opcount;
+      long opcount;
       if (dotransactions) {
-        opcount = Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
+        opcount = Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
       } else {
         if (props.containsKey(INSERT_COUNT_PROPERTY)) {
-          opcount = Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
+          opcount = Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
         } else {
-          opcount = Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+          opcount = Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
         }
+        opcount = workload.getLoadOperationCount(opcount);
       }
 
       for (int threadid = 0; threadid < threadcount; threadid++) {
@@ -876,7 +1024,7 @@ public final class Client {
           break;
         }
 
-        int threadopcount = opcount / threadcount;
+        long threadopcount = opcount / threadcount;
 
         // ensure correct number of operations, in case opcount is not a multiple of threadcount
         if (threadid < opcount % threadcount) {
@@ -970,7 +1118,11 @@ public final class Client {
     return null;
   }
 
-  private static Properties parseArguments(String[] args) {
+  /**
+   * Parse the command line arguments shared by the client and its tools: -P property files,
+   * -p overrides and the client flags.
+   */
+  public static Properties parseArguments(String[] args) {
     Properties props = new Properties();
     System.err.print("Command line:");
     for (String arg : args) {
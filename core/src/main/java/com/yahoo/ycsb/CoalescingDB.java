@@ -0,0 +1,358 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Coalesces the inserts of one client thread into multi-puts, for any binding.
+ * <p>
+ * Inserted records are buffered and written with a single
+ * {@link DB#batchWrite(String, Map)} once the buffer holds
+ * {@value #MAX_RECORDS_PROPERTY} records or {@value #MAX_BYTES_PROPERTY}
+ * bytes, or its oldest record has waited {@value #MAX_DELAY_PROPERTY} ms.
+ * Buffered inserts return {@link Status#BATCHED_OK}; the insert that triggers
+ * a flush returns the status of the flush. The delay is checked on each
+ * operation, as a DB instance is only used by its client thread, and the
+ * buffer is flushed on cleanup. Any other operation on a buffered key flushes
+ * first, so reads see earlier writes. Inserts of a key that is already
+ * buffered, like the points of one time series, are all kept; such a buffer is
+ * written with {@link DB#batchInsert(String, List, List)} instead.
+ * <p>
+ * Each flush is measured as COALESCE-FLUSH and the time every record spent in
+ * the buffer before its flush started as COALESCE-QUEUE, so bulk loads are
+ * comparable across stores however their bindings batch natively. As buffered
+ * inserts were already answered with BATCHED_OK, the outcome of every record is
+ * counted under COALESCE-RECORD, so the records of a failed flush show up as
+ * errors even if it was not triggered by an insert.
+ */
+public class CoalescingDB extends DB {
+  /** Whether {@link DBFactory} puts the coalescing layer in front of the binding. */
+  public static final String COALESCE_PROPERTY = "coalesce";
+  public static final String COALESCE_PROPERTY_DEFAULT = "false";
+
+  /** The maximum number of buffered records. */
+  public static final String MAX_RECORDS_PROPERTY = "coalesce.maxrecords";
+  public static final String MAX_RECORDS_PROPERTY_DEFAULT = "100";
+
+  /** The maximum size of the buffered keys and values in bytes, 0 for no limit. */
+  public static final String MAX_BYTES_PROPERTY = "coalesce.maxbytes";
+  public static final String MAX_BYTES_PROPERTY_DEFAULT = "1048576";
+
+  /** The maximum time the oldest record stays buffered in ms, 0 for no limit. */
+  public static final String MAX_DELAY_PROPERTY = "coalesce.maxdelayms";
+  public static final String MAX_DELAY_PROPERTY_DEFAULT = "100";
+
+  private final DB db;
+  private final Measurements measurements;
+
+  private int maxRecords;
+  private long maxBytes;
+  private long maxDelayNanos;
+
+  private String pendingTable = null;
+  private final List<String> pendingKeys = new ArrayList<>();
+  private final List<Map<String, ByteIterator>> pendingValues = new ArrayList<>();
+  private final List<Long> pendingSince = new ArrayList<>();
+  private final Set<String> pendingKeySet = new HashSet<>();
+  private long pendingBytes = 0;
+  private long oldestNanos = 0;
+
+  public CoalescingDB(DB db) {
+    this.db = db;
+    this.measurements = Measurements.getMeasurements();
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    db.setProperties(p);
+  }
+
+  @Override
+  public Properties getProperties() {
+    return db.getProperties();
+  }
+
+  @Override
+  public void init() throws DBException {
+    final Properties p = getProperties();
+    maxRecords = Math.max(1, Integer.parseInt(p.getProperty(MAX_RECORDS_PROPERTY, MAX_RECORDS_PROPERTY_DEFAULT)));
+    maxBytes = Long.parseLong(p.getProperty(MAX_BYTES_PROPERTY, MAX_BYTES_PROPERTY_DEFAULT));
+    maxDelayNanos = Long.parseLong(p.getProperty(MAX_DELAY_PROPERTY, MAX_DELAY_PROPERTY_DEFAULT)) * 1000000L;
+    db.init();
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    try {
+      flush();
+    } finally {
+      db.cleanup();
+    }
+  }
+
+  /**
+   * Write all buffered records with one multi-put.
+   *
+   * @return The status of the multi-put, or OK if nothing was buffered.
+   */
+  @Override
+  public Status flush() {
+    if (pendingKeys.isEmpty()) {
+      return Status.OK;
+    }
+    final long st = System.nanoTime();
+    for (Long since : pendingSince) {
+      measurements.measure("COALESCE-QUEUE", (int) ((st - since) / 1000));
+    }
+    final Status res;
+    if (pendingKeySet.size() == pendingKeys.size()) {
+      final Map<String, Map<String, ByteIterator>> records = new LinkedHashMap<>();
+      for (int i = 0; i < pendingKeys.size(); i++) {
+        records.put(pendingKeys.get(i), pendingValues.get(i));
+      }
+      res = db.batchWrite(pendingTable, records);
+    } else {
+      // a multi-put would keep only the last record of a key
+      res = db.batchInsert(pendingTable, new ArrayList<>(pendingKeys), new ArrayList<>(pendingValues));
+    }
+    final long en = System.nanoTime();
+    measurements.measure(res.isOk() ? "COALESCE-FLUSH" : "COALESCE-FLUSH-FAILED", (int) ((en - st) / 1000));
+    measurements.reportStatus("COALESCE-FLUSH", res);
+    for (int i = 0; i < pendingKeys.size(); i++) {
+      measurements.reportStatus("COALESCE-RECORD", res);
+    }
+    if (!res.isOk()) {
+      System.err.println("Failed to write " + pendingKeys.size() + " coalesced records to " + pendingTable
+          + " from " + pendingKeys.get(0) + ": " + res);
+    }
+    pendingKeys.clear();
+    pendingValues.clear();
+    pendingSince.clear();
+    pendingKeySet.clear();
+    pendingBytes = 0;
+    pendingTable = null;
+    return res;
+  }
+
+  private boolean expired(long now) {
+    return maxDelayNanos > 0 && !pendingKeys.isEmpty() && now - oldestNanos >= maxDelayNanos;
+  }
+
+  /**
+   * Flush if the buffer holds the key or has waited too long.
+   */
+  private void flushBefore(String table, String key) {
+    if ((key != null && table.equals(pendingTable) && pendingKeySet.contains(key)) || expired(System.nanoTime())) {
+      flush();
+    }
+  }
+
+  private static long size(String key, Map<String, ByteIterator> values) {
+    long bytes = key.length();
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      bytes += entry.getKey().length() + entry.getValue().bytesLeft();
+    }
+    return bytes;
+  }
+
+  /**
+   * Buffer a record and flush if a limit is reached.
+   */
+  private Status buffer(String table, String key, Map<String, ByteIterator> values) {
+    if (pendingTable != null && !pendingTable.equals(table)) {
+      flush();
+    }
+    final long now = System.nanoTime();
+    if (pendingKeys.isEmpty()) {
+      pendingTable = table;
+      oldestNanos = now;
+    }
+    pendingKeys.add(key);
+    pendingValues.add(values);
+    pendingSince.add(now);
+    pendingKeySet.add(key);
+    pendingBytes += size(key, values);
+    if (pendingKeys.size() >= maxRecords || (maxBytes > 0 && pendingBytes >= maxBytes) || expired(now)) {
+      return flush();
+    }
+    return Status.BATCHED_OK;
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    return buffer(table, key, values);
+  }
+
+  @Override
+  public Status batchWrite(String table, Map<String, Map<String, ByteIterator>> values) {
+    Status batchStatus = Status.BATCHED_OK;
+    for (Map.Entry<String, Map<String, ByteIterator>> entry : values.entrySet()) {
+      final Status status = buffer(table, entry.getKey(), entry.getValue());
+      if (!status.isOk() && batchStatus.isOk()) {
+        batchStatus = status;
+      }
+    }
+    return batchStatus;
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    flushBefore(table, key);
+    return db.read(table, key, fields, result);
+  }
+
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          Map<String, Map<String, ByteIterator>> result) {
+    for (String key : keys) {
+      flushBefore(table, key);
+    }
+    return db.batchRead(table, keys, fields, result);
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    // a scan may cover any buffered key
+    if (table.equals(pendingTable)) {
+      flush();
+    }
+    return db.scan(table, startkey, recordcount, fields, result);
+  }
+
+  @Override
+  public Status streamScan(String table, String startkey, int recordcount, Set<String> fields,
+                           ScanCallback callback) {
+    if (table.equals(pendingTable)) {
+      flush();
+    }
+    return db.streamScan(table, startkey, recordcount, fields, callback);
+  }
+
+  @Override
+  public Status query(String table, Predicate predicate, int limit, Set<String> fields,
+                      Vector<HashMap<String, ByteIterator>> result) {
+    // any buffered record may match
+    if (table.equals(pendingTable)) {
+      flush();
+    }
+    return db.query(table, predicate, limit, fields, result);
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    flushBefore(table, key);
+    return db.update(table, key, values);
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    flushBefore(table, key);
+    return db.delete(table, key);
+  }
+
+  @Override
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    flush();
+    return db.batchInsert(table, keys, values);
+  }
+
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    for (String key : keys) {
+      flushBefore(table, key);
+    }
+    return db.batchDelete(table, keys);
+  }
+
+  @Override
+  public Status readVersion(String table, String key, Set<String> fields, Map<String, ByteIterator> result,
+                            long[] version) {
+    flushBefore(table, key);
+    return db.readVersion(table, key, fields, result, version);
+  }
+
+  @Override
+  public Status compareAndSet(String table, String key, long expectedVersion, Map<String, ByteIterator> values) {
+    flushBefore(table, key);
+    return db.compareAndSet(table, key, expectedVersion, values);
+  }
+
+  @Override
+  public Status increment(String table, String key, String field, long delta) {
+    flushBefore(table, key);
+    return db.increment(table, key, field, delta);
+  }
+
+  @Override
+  public Status insertIfAbsent(String table, String key, Map<String, ByteIterator> values) {
+    flushBefore(table, key);
+    return db.insertIfAbsent(table, key, values);
+  }
+
+  @Override
+  public Status insertWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+    // the batch interface has no TTL, so these writes are never buffered
+    flushBefore(table, key);
+    return db.insertWithTtl(table, key, values, ttlMillis);
+  }
+
+  @Override
+  public Status updateWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+    flushBefore(table, key);
+    return db.updateWithTtl(table, key, values, ttlMillis);
+  }
+
+  @Override
+  public long storeSize(String table) {
+    // buffered writes take no space until they are flushed
+    flush();
+    return db.storeSize(table);
+  }
+
+  @Override
+  public Status beginTransaction() {
+    // buffered writes belong to no transaction or to the one before
+    flush();
+    return db.beginTransaction();
+  }
+
+  @Override
+  public Status commit() {
+    flush();
+    return db.commit();
+  }
+
+  @Override
+  public Status abort() {
+    // send the buffered writes so the store discards them with the transaction
+    flush();
+    return db.abort();
+  }
+}
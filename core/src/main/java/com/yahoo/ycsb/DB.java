@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -77,6 +78,45 @@ public abstract class DB {
   public void cleanup() throws DBException {
   }
 
+  /**
+   * Start a transaction. The operations of this DB instance up to the next {@link #commit} or
+   * {@link #abort} belong to it. The default implementation does nothing, so on stores without
+   * transactions every operation still takes effect on its own.
+   *
+   * @return The result of the operation.
+   */
+  public Status beginTransaction() {
+    return Status.OK;
+  }
+
+  /**
+   * Commit the current transaction.
+   *
+   * @return OK if the transaction committed, CONFLICT if it was aborted because of a conflict.
+   */
+  public Status commit() {
+    return Status.OK;
+  }
+
+  /**
+   * Abort the current transaction, discarding its writes where the store supports it.
+   *
+   * @return The result of the operation.
+   */
+  public Status abort() {
+    return Status.OK;
+  }
+
+  /**
+   * Write the operations this DB instance has buffered and acknowledged with {@link Status#BATCHED_OK}.
+   * The default implementation buffers nothing.
+   *
+   * @return The result of writing the buffered operations, OK if there were none.
+   */
+  public Status flush() {
+    return Status.OK;
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
    *
@@ -102,6 +142,48 @@ public abstract class DB {
   public abstract Status scan(String table, String startkey, int recordcount, Set<String> fields,
                               Vector<HashMap<String, ByteIterator>> result);
 
+  /**
+   * Perform a range scan and hand each record to a callback as soon as it is available instead of
+   * collecting all of them. Bindings that fetch results in pages or through a cursor should override
+   * this method so only one page is buffered. The default implementation adapts {@link #scan}: the
+   * records are still fetched at once, but each one is released once the callback consumed it.
+   *
+   * @param table The name of the table
+   * @param startkey The record key of the first record to read.
+   * @param recordcount The number of records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param callback Receives the records in key order
+   * @return The result of the operation.
+   */
+  public Status streamScan(String table, String startkey, int recordcount, Set<String> fields,
+                           ScanCallback callback) {
+    final Vector<HashMap<String, ByteIterator>> rows = new Vector<>();
+    final Status status = scan(table, startkey, recordcount, fields, rows);
+    for (int i = 0; i < rows.size(); i++) {
+      final HashMap<String, ByteIterator> row = rows.set(i, null);
+      if (!callback.onRow(row)) {
+        break;
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Find the records matching a predicate, as a secondary index or a search engine would. Bindings for
+   * stores that can only look records up by key do not override this method.
+   *
+   * @param table The name of the table
+   * @param predicate The condition the records must meet
+   * @param limit The maximum number of records to return
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return The result of the operation, NOT_IMPLEMENTED by default.
+   */
+  public Status query(String table, Predicate predicate, int limit, Set<String> fields,
+                      Vector<HashMap<String, ByteIterator>> result) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
    * record with the specified record key, overwriting any existing values with the same field name.
@@ -132,4 +214,191 @@ public abstract class DB {
    * @return The result of the operation.
    */
   public abstract Status delete(String table, String key);
+
+  /**
+   * Read a batch of records from the database in one request, as a multi-get would. The default
+   * implementation reads the records one at a time; bindings for stores with a native batch API should
+   * override it.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap from record key to the field/value pairs of each record found
+   * @return OK if every record was read, otherwise the status of the first record that failed.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          Map<String, Map<String, ByteIterator>> result) {
+    Status batchStatus = Status.OK;
+    for (String key : keys) {
+      final HashMap<String, ByteIterator> row = new HashMap<>();
+      final Status status = read(table, key, fields, row);
+      if (status.isOk()) {
+        result.put(key, row);
+      } else if (batchStatus.isOk()) {
+        batchStatus = status;
+      }
+    }
+    return batchStatus;
+  }
+
+  /**
+   * Write a batch of records to the database in one request, as a multi-put would. Each record is
+   * created, or replaced if it exists, with the given field/value pairs. The default implementation
+   * inserts the records one at a time; bindings for stores with a native batch API should override it.
+   *
+   * @param table The name of the table
+   * @param values A HashMap from record key to the field/value pairs of each record
+   * @return OK if every record was written, otherwise the status of the first record that failed.
+   */
+  public Status batchWrite(String table, Map<String, Map<String, ByteIterator>> values) {
+    Status batchStatus = Status.OK;
+    for (Map.Entry<String, Map<String, ByteIterator>> entry : values.entrySet()) {
+      final Status status = insert(table, entry.getKey(), entry.getValue());
+      if (!status.isOk() && batchStatus.isOk()) {
+        batchStatus = status;
+      }
+    }
+    return batchStatus;
+  }
+
+  /**
+   * Insert a batch of records into the database in one request, as time series clients send many points
+   * per write. Unlike {@link #batchWrite(String, Map)} a key may appear more than once, e.g. for several
+   * points of one series. The default implementation inserts the records one at a time; bindings for
+   * stores with a native batch API should override it.
+   *
+   * @param table The name of the table
+   * @param keys The record key of each record, in order.
+   * @param values The field/value pairs of each record, in the same order as the keys.
+   * @return OK if every record was inserted, otherwise the status of the first record that failed.
+   */
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    Status batchStatus = Status.OK;
+    for (int i = 0; i < keys.size(); i++) {
+      final Status status = insert(table, keys.get(i), values.get(i));
+      if (!status.isOk() && batchStatus.isOk()) {
+        batchStatus = status;
+      }
+    }
+    return batchStatus;
+  }
+
+  /**
+   * Delete a batch of records from the database in one request. The default implementation deletes
+   * the records one at a time; bindings for stores with a native batch API should override it.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to delete.
+   * @return OK if every record was deleted, otherwise the status of the first record that failed.
+   */
+  public Status batchDelete(String table, List<String> keys) {
+    Status batchStatus = Status.OK;
+    for (String key : keys) {
+      final Status status = delete(table, key);
+      if (!status.isOk() && batchStatus.isOk()) {
+        batchStatus = status;
+      }
+    }
+    return batchStatus;
+  }
+
+  /**
+   * Read a record together with its version, the token a later {@link #compareAndSet} must present.
+   * The version is whatever the store provides (a CAS value, a row version, a write timestamp) as long
+   * as it changes with every write of the record. Bindings for stores without versions do not
+   * override this method.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap of field/value pairs for the result
+   * @param version An array whose first element receives the version of the record
+   * @return The result of the operation, NOT_IMPLEMENTED by default.
+   */
+  public Status readVersion(String table, String key, Set<String> fields, Map<String, ByteIterator> result,
+                            long[] version) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Update a record only if it was not written since its version was read by {@link #readVersion}.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param expectedVersion The version the record must still have
+   * @param values A HashMap of field/value pairs to update in the record
+   * @return OK if the record was updated, CONDITION_FAILED if its version changed, NOT_IMPLEMENTED by
+   *         default.
+   */
+  public Status compareAndSet(String table, String key, long expectedVersion, Map<String, ByteIterator> values) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Atomically add to a counter field of a record, creating the field at 0 if it does not exist.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to update.
+   * @param field The name of the counter field
+   * @param delta The amount to add
+   * @return The result of the operation, NOT_IMPLEMENTED by default.
+   */
+  public Status increment(String table, String key, String field, long delta) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Insert a record only if no record with the key exists.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @return OK if the record was inserted, CONDITION_FAILED if it already existed, NOT_IMPLEMENTED by
+   *         default.
+   */
+  public Status insertIfAbsent(String table, String key, Map<String, ByteIterator> values) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Insert a record that the store should expire after the given time to live. Stores round the TTL
+   * up to the granularity they support. By default the TTL is ignored and the record is inserted with
+   * {@link #insert}.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @param ttlMillis The time to live of the record in milliseconds
+   * @return The result of the operation.
+   */
+  public Status insertWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+    return insert(table, key, values);
+  }
+
+  /**
+   * Update a record and reset its time to live. By default the TTL is ignored and the record is
+   * updated with {@link #update}.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to update in the record
+   * @param ttlMillis The new time to live of the record in milliseconds
+   * @return The result of the operation.
+   */
+  public Status updateWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+    return update(table, key, values);
+  }
+
+  /**
+   * Probe how many bytes the store currently uses to hold the table, including the space compaction and
+   * garbage collection have not reclaimed yet, so workloads can react to the store's real footprint. The
+   * probe is called every few seconds, not per operation. Bindings for stores that cannot tell do not
+   * override this method.
+   *
+   * @param table The name of the table
+   * @return The size in bytes, or -1 if it is unknown.
+   */
+  public long storeSize(String table) {
+    return -1;
+  }
 }
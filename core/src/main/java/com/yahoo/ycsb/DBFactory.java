@@ -45,6 +45,11 @@ public final class DBFactory {
 
     ret.setProperties(properties);
 
+    if (Boolean.parseBoolean(properties.getProperty(CoalescingDB.COALESCE_PROPERTY,
+        CoalescingDB.COALESCE_PROPERTY_DEFAULT))) {
+      ret = new CoalescingDB(ret);
+    }
+
     return new DBWrapper(ret, tracer);
   }
 
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.Map;
+import com.yahoo.ycsb.measurements.GCPauseMonitor;
 import com.yahoo.ycsb.measurements.Measurements;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
@@ -27,6 +28,8 @@ import java.util.*;
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ * Optionally attributes the client CPU time and heap allocation spent inside
+ * the binding to each operation type.
  */
 public class DBWrapper extends DB {
   private final DB db;
@@ -41,6 +44,15 @@ public class DBWrapper extends DB {
 
   private static final String LATENCY_TRACKED_ERRORS_PROPERTY = "latencytrackederrors";
 
+  private boolean trackClientCost = false;
+  private final Map<String, String> clientCpuNames = new HashMap<>();
+  private final Map<String, String> clientAllocNames = new HashMap<>();
+  // Thread CPU time and allocated bytes when the current operation started.
+  private long cpuStartNs;
+  private long allocStartBytes;
+
+  private GCPauseMonitor gcPauseMonitor;
+
   private final String scopeStringCleanup;
   private final String scopeStringDelete;
   private final String scopeStringInit;
@@ -48,6 +60,23 @@ public class DBWrapper extends DB {
   private final String scopeStringRead;
   private final String scopeStringScan;
   private final String scopeStringUpdate;
+  private final String scopeStringBatchRead;
+  private final String scopeStringBatchWrite;
+  private final String scopeStringBatchInsert;
+  private final String scopeStringBatchDelete;
+  private final String scopeStringReadVersion;
+  private final String scopeStringCompareAndSet;
+  private final String scopeStringIncrement;
+  private final String scopeStringInsertIfAbsent;
+  private final String scopeStringBeginTransaction;
+  private final String scopeStringCommit;
+  private final String scopeStringAbort;
+  private final String scopeStringFlush;
+  private final String scopeStringQuery;
+  private final String scopeStringStreamScan;
+  private final String scopeStringInsertWithTtl;
+  private final String scopeStringUpdateWithTtl;
+  private final String scopeStringStoreSize;
 
   public DBWrapper(final DB db, final Tracer tracer) {
     this.db = db;
@@ -61,6 +90,30 @@ public class DBWrapper extends DB {
     scopeStringRead = simple + "#read";
     scopeStringScan = simple + "#scan";
     scopeStringUpdate = simple + "#update";
+    scopeStringBatchRead = simple + "#batchRead";
+    scopeStringBatchWrite = simple + "#batchWrite";
+    scopeStringBatchInsert = simple + "#batchInsert";
+    scopeStringBatchDelete = simple + "#batchDelete";
+    scopeStringReadVersion = simple + "#readVersion";
+    scopeStringCompareAndSet = simple + "#compareAndSet";
+    scopeStringIncrement = simple + "#increment";
+    scopeStringInsertIfAbsent = simple + "#insertIfAbsent";
+    scopeStringBeginTransaction = simple + "#beginTransaction";
+    scopeStringCommit = simple + "#commit";
+    scopeStringAbort = simple + "#abort";
+    scopeStringFlush = simple + "#flush";
+    scopeStringQuery = simple + "#query";
+    scopeStringStreamScan = simple + "#streamScan";
+    scopeStringInsertWithTtl = simple + "#insertWithTtl";
+    scopeStringUpdateWithTtl = simple + "#updateWithTtl";
+    scopeStringStoreSize = simple + "#storeSize";
+  }
+
+  /**
+   * @return The DB this wraps, for requests that are not part of the measured workload.
+   */
+  public DB getWrapped() {
+    return db;
   }
 
   /**
@@ -100,6 +153,14 @@ public class DBWrapper extends DB {
       System.err.println("DBWrapper: report latency for each error is " +
           this.reportLatencyForEachError + " and specific error codes to track" +
           " for latency are: " + this.latencyTrackedErrors.toString());
+
+      trackClientCost = Boolean.parseBoolean(getProperties().getProperty(
+          Measurements.MEASUREMENT_TRACK_CLIENT_COST_PROPERTY,
+          Measurements.MEASUREMENT_TRACK_CLIENT_COST_PROPERTY_DEFAULT));
+      if (trackClientCost) {
+        Utils.enableThreadCostAccounting();
+      }
+      gcPauseMonitor = GCPauseMonitor.getMonitor();
     }
   }
 
@@ -117,6 +178,71 @@ public class DBWrapper extends DB {
     }
   }
 
+  /**
+   * Start a transaction.
+   *
+   * @return The result of the operation.
+   */
+  public Status beginTransaction() {
+    try (final TraceScope span = tracer.newScope(scopeStringBeginTransaction)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.beginTransaction();
+      long en = System.nanoTime();
+      measure("BEGIN", res, ist, st, en);
+      measurements.reportStatus("BEGIN", res);
+      return res;
+    }
+  }
+
+  /**
+   * Commit the current transaction.
+   *
+   * @return The result of the operation.
+   */
+  public Status commit() {
+    try (final TraceScope span = tracer.newScope(scopeStringCommit)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.commit();
+      long en = System.nanoTime();
+      endClientCost("COMMIT");
+      measure("COMMIT", res, ist, st, en);
+      measurements.reportStatus("COMMIT", res);
+      return res;
+    }
+  }
+
+  /**
+   * Abort the current transaction.
+   *
+   * @return The result of the operation.
+   */
+  public Status abort() {
+    try (final TraceScope span = tracer.newScope(scopeStringAbort)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.abort();
+      long en = System.nanoTime();
+      measure("ABORT", res, ist, st, en);
+      measurements.reportStatus("ABORT", res);
+      return res;
+    }
+  }
+
+  /**
+   * Write the operations the DB has buffered. Not measured here, as the
+   * buffering DB measures its own flushes.
+   *
+   * @return The result of the operation.
+   */
+  public Status flush() {
+    try (final TraceScope span = tracer.newScope(scopeStringFlush)) {
+      return db.flush();
+    }
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result
    * will be stored in a HashMap.
@@ -131,9 +257,11 @@ public class DBWrapper extends DB {
                      Map<String, ByteIterator> result) {
     try (final TraceScope span = tracer.newScope(scopeStringRead)) {
       long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
+      endClientCost("READ");
       measure("READ", res, ist, st, en);
       measurements.reportStatus("READ", res);
       return res;
@@ -155,30 +283,165 @@ public class DBWrapper extends DB {
                      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
     try (final TraceScope span = tracer.newScope(scopeStringScan)) {
       long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
+      endClientCost("SCAN");
+      measure("SCAN", res, ist, st, en);
+      measurements.reportStatus("SCAN", res);
+      return res;
+    }
+  }
+
+  /**
+   * Perform a range scan handing each record to a callback. Besides the total latency as SCAN, the time
+   * until the first record arrived is measured as SCAN-FIRST-ROW (us) and the rate the records arrived
+   * at as SCAN-ROWS-PER-SEC.
+   *
+   * @param table The name of the table
+   * @param startkey The record key of the first record to read.
+   * @param recordcount The number of records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param callback Receives the records in key order
+   * @return The result of the operation.
+   */
+  public Status streamScan(String table, String startkey, int recordcount, Set<String> fields,
+                           final ScanCallback callback) {
+    try (final TraceScope span = tracer.newScope(scopeStringStreamScan)) {
+      final long[] firstRowNanos = new long[1];
+      final int[] rows = new int[1];
+      final ScanCallback counting = new ScanCallback() {
+        @Override
+        public boolean onRow(Map<String, ByteIterator> row) {
+          if (rows[0]++ == 0) {
+            firstRowNanos[0] = System.nanoTime();
+          }
+          return callback.onRow(row);
+        }
+      };
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.streamScan(table, startkey, recordcount, fields, counting);
+      long en = System.nanoTime();
+      endClientCost("SCAN");
       measure("SCAN", res, ist, st, en);
       measurements.reportStatus("SCAN", res);
+      if (rows[0] > 0) {
+        measurements.measure("SCAN-FIRST-ROW", (int) ((firstRowNanos[0] - st) / 1000));
+        measurements.measure("SCAN-ROWS-PER-SEC", (int) Math.min(rows[0] * 1000000000L / Math.max(1, en - st),
+            Integer.MAX_VALUE));
+      }
+      return res;
+    }
+  }
+
+  /**
+   * Find the records matching a predicate.
+   *
+   * @param table The name of the table
+   * @param predicate The condition the records must meet
+   * @param limit The maximum number of records to return
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return The result of the operation.
+   */
+  public Status query(String table, Predicate predicate, int limit, Set<String> fields,
+                      Vector<HashMap<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringQuery)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.query(table, predicate, limit, fields, result);
+      long en = System.nanoTime();
+      endClientCost("QUERY");
+      measure("QUERY", res, ist, st, en);
+      measurements.reportStatus("QUERY", res);
       return res;
     }
   }
 
   private void measure(String op, Status result, long intendedStartTimeNanos,
                        long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
+    String measurementName = measurementName(op, result);
+    final int latency = (int) ((endTimeNanos - startTimeNanos) / 1000);
+    measurements.measure(measurementName, latency);
+    measurements.measureIntended(measurementName,
+        (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
+    measurements.measureCorrected(measurementName, latency, startTimeNanos);
+    if (gcPauseMonitor != null) {
+      gcPauseMonitor.recordLatency(System.currentTimeMillis(), latency);
+    }
+  }
+
+  /**
+   * @return The name the latency of an operation with the given result is measured under.
+   */
+  private String measurementName(String op, Status result) {
     if (result == null || !result.isOk()) {
       if (this.reportLatencyForEachError ||
           this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
+        return op + "-" + result.getName();
       }
+      return op + "-FAILED";
+    }
+    return op;
+  }
+
+  /**
+   * Measures a batch as one BATCH-op operation and each of its items as a BATCH-op-ITEM operation
+   * taking the latency of the whole batch, as no item is done before the batch is. The equal share
+   * of the batch latency each item costs is measured as BATCH-op-ITEM-AMORTIZED, so item throughput
+   * and cost compare directly to the unbatched operation. Only the batch is an operation start for
+   * the intended and corrected latencies, the items are plain latency samples.
+   */
+  private void measureBatch(String op, int items, Status result, long intendedStartTimeNanos,
+                            long startTimeNanos, long endTimeNanos) {
+    measure(op, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+    measurements.reportStatus(op, result);
+    if (items <= 0) {
+      return;
+    }
+    final String itemOp = measurementName(op + "-ITEM", result);
+    final String amortizedOp = measurementName(op + "-ITEM-AMORTIZED", result);
+    final int latency = (int) ((endTimeNanos - startTimeNanos) / 1000);
+    final int itemLatency = (int) ((endTimeNanos - startTimeNanos) / items / 1000);
+    for (int i = 0; i < items; i++) {
+      measurements.measure(itemOp, latency);
+      measurements.measure(amortizedOp, itemLatency);
+    }
+  }
+
+  private void startClientCost() {
+    if (trackClientCost) {
+      allocStartBytes = Utils.getCurrentThreadAllocatedBytes();
+      cpuStartNs = Utils.getCurrentThreadCpuTime();
+    }
+  }
+
+  /**
+   * Records the CPU time (us) and heap bytes the current thread spent in the
+   * binding since {@link #startClientCost()} as CLIENT_CPU-op and CLIENT_ALLOC-op.
+   */
+  private void endClientCost(String op) {
+    if (!trackClientCost) {
+      return;
+    }
+    final long cpuNs = Utils.getCurrentThreadCpuTime();
+    final long allocBytes = Utils.getCurrentThreadAllocatedBytes();
+    String cpuName = clientCpuNames.get(op);
+    if (cpuName == null) {
+      cpuName = "CLIENT_CPU-" + op;
+      clientCpuNames.put(op, cpuName);
+      clientAllocNames.put(op, "CLIENT_ALLOC-" + op);
+    }
+    if (cpuStartNs >= 0 && cpuNs >= 0) {
+      measurements.measure(cpuName, (int) ((cpuNs - cpuStartNs) / 1000));
+    }
+    if (allocStartBytes >= 0 && allocBytes >= 0) {
+      measurements.measureValue(clientAllocNames.get(op), allocBytes - allocStartBytes);
     }
-    measurements.measure(measurementName,
-        (int) ((endTimeNanos - startTimeNanos) / 1000));
-    measurements.measureIntended(measurementName,
-        (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
   }
 
   /**
@@ -194,9 +457,11 @@ public class DBWrapper extends DB {
                        Map<String, ByteIterator> values) {
     try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
       long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
+      endClientCost("UPDATE");
       measure("UPDATE", res, ist, st, en);
       measurements.reportStatus("UPDATE", res);
       return res;
@@ -217,9 +482,11 @@ public class DBWrapper extends DB {
                        Map<String, ByteIterator> values) {
     try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
       long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
+      endClientCost("INSERT");
       measure("INSERT", res, ist, st, en);
       measurements.reportStatus("INSERT", res);
       return res;
@@ -236,12 +503,250 @@ public class DBWrapper extends DB {
   public Status delete(String table, String key) {
     try (final TraceScope span = tracer.newScope(scopeStringDelete)) {
       long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
+      endClientCost("DELETE");
       measure("DELETE", res, ist, st, en);
       measurements.reportStatus("DELETE", res);
       return res;
     }
   }
+
+  /**
+   * Read a batch of records from the database in one request.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap from record key to the field/value pairs of each record found
+   * @return The result of the operation.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          Map<String, Map<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.batchRead(table, keys, fields, result);
+      long en = System.nanoTime();
+      endClientCost("BATCH-READ");
+      measureBatch("BATCH-READ", keys.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Write a batch of records to the database in one request.
+   *
+   * @param table The name of the table
+   * @param values A HashMap from record key to the field/value pairs of each record
+   * @return The result of the operation.
+   */
+  public Status batchWrite(String table, Map<String, Map<String, ByteIterator>> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchWrite)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.batchWrite(table, values);
+      long en = System.nanoTime();
+      endClientCost("BATCH-WRITE");
+      measureBatch("BATCH-WRITE", values.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Insert a batch of records, possibly sharing keys, in one request.
+   *
+   * @param table The name of the table
+   * @param keys The record key of each record, in order.
+   * @param values The field/value pairs of each record, in the same order as the keys.
+   * @return The result of the operation.
+   */
+  public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchInsert)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.batchInsert(table, keys, values);
+      long en = System.nanoTime();
+      endClientCost("BATCH-INSERT");
+      measureBatch("BATCH-INSERT", keys.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Delete a batch of records from the database in one request.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to delete.
+   * @return The result of the operation.
+   */
+  public Status batchDelete(String table, List<String> keys) {
+    try (final TraceScope span = tracer.newScope(scopeStringBatchDelete)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.batchDelete(table, keys);
+      long en = System.nanoTime();
+      endClientCost("BATCH-DELETE");
+      measureBatch("BATCH-DELETE", keys.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Read a record together with its version.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap of field/value pairs for the result
+   * @param version An array whose first element receives the version of the record
+   * @return The result of the operation.
+   */
+  public Status readVersion(String table, String key, Set<String> fields, Map<String, ByteIterator> result,
+                            long[] version) {
+    try (final TraceScope span = tracer.newScope(scopeStringReadVersion)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.readVersion(table, key, fields, result, version);
+      long en = System.nanoTime();
+      endClientCost("READ-VERSION");
+      measure("READ-VERSION", res, ist, st, en);
+      measurements.reportStatus("READ-VERSION", res);
+      return res;
+    }
+  }
+
+  /**
+   * Update a record only if its version did not change.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param expectedVersion The version the record must still have
+   * @param values A HashMap of field/value pairs to update in the record
+   * @return The result of the operation.
+   */
+  public Status compareAndSet(String table, String key, long expectedVersion, Map<String, ByteIterator> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringCompareAndSet)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.compareAndSet(table, key, expectedVersion, values);
+      long en = System.nanoTime();
+      endClientCost("CAS");
+      measure("CAS", res, ist, st, en);
+      measurements.reportStatus("CAS", res);
+      return res;
+    }
+  }
+
+  /**
+   * Atomically add to a counter field of a record.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to update.
+   * @param field The name of the counter field
+   * @param delta The amount to add
+   * @return The result of the operation.
+   */
+  public Status increment(String table, String key, String field, long delta) {
+    try (final TraceScope span = tracer.newScope(scopeStringIncrement)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.increment(table, key, field, delta);
+      long en = System.nanoTime();
+      endClientCost("INCREMENT");
+      measure("INCREMENT", res, ist, st, en);
+      measurements.reportStatus("INCREMENT", res);
+      return res;
+    }
+  }
+
+  /**
+   * Insert a record only if no record with the key exists.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @return The result of the operation.
+   */
+  public Status insertIfAbsent(String table, String key, Map<String, ByteIterator> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsertIfAbsent)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.insertIfAbsent(table, key, values);
+      long en = System.nanoTime();
+      endClientCost("INSERT-IF-ABSENT");
+      measure("INSERT-IF-ABSENT", res, ist, st, en);
+      measurements.reportStatus("INSERT-IF-ABSENT", res);
+      return res;
+    }
+  }
+
+  /**
+   * Insert a record that expires after the given time to live, measured as INSERT-TTL.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to write in the record
+   * @param ttlMillis The time to live of the record in milliseconds
+   * @return The result of the operation.
+   */
+  public Status insertWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsertWithTtl)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.insertWithTtl(table, key, values, ttlMillis);
+      long en = System.nanoTime();
+      endClientCost("INSERT-TTL");
+      measure("INSERT-TTL", res, ist, st, en);
+      measurements.reportStatus("INSERT-TTL", res);
+      return res;
+    }
+  }
+
+  /**
+   * Update a record and reset its time to live, measured as UPDATE-TTL.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to write in the record
+   * @param ttlMillis The time to live of the record in milliseconds
+   * @return The result of the operation.
+   */
+  public Status updateWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+    try (final TraceScope span = tracer.newScope(scopeStringUpdateWithTtl)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      startClientCost();
+      long st = System.nanoTime();
+      Status res = db.updateWithTtl(table, key, values, ttlMillis);
+      long en = System.nanoTime();
+      endClientCost("UPDATE-TTL");
+      measure("UPDATE-TTL", res, ist, st, en);
+      measurements.reportStatus("UPDATE-TTL", res);
+      return res;
+    }
+  }
+
+  /**
+   * Probe the bytes the store uses for the table. Not measured, as it is not
+   * part of the workload.
+   *
+   * @param table The name of the table
+   * @return The size in bytes, or -1 if it is unknown.
+   */
+  public long storeSize(String table) {
+    try (final TraceScope span = tracer.newScope(scopeStringStoreSize)) {
+      return db.storeSize(table);
+    }
+  }
 }
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A ByteIterator that generates the same printable ASCII bytes every time for the same record key,
+ * field name and record version, so that values written by a workload can be verified when read back
+ * without keeping or rebuilding them as strings. A value starts with its version in
+ * {@link #VERSION_BYTES} characters, followed by bytes generated from a seed hashed from the key, the
+ * field and the version. Every 8 of those come from one 64-bit word mixed from the seed and the word
+ * index, so generating and checking a value is linear in its length and {@link #reset()} is free.
+ */
+public class DeterministicByteIterator extends ByteIterator {
+  /**
+   * The length of the version at the start of a value.
+   */
+  public static final int VERSION_BYTES = 4;
+
+  /**
+   * The versions that fit in {@link #VERSION_BYTES}; larger ones wrap around.
+   */
+  public static final int VERSION_MASK = 0xffffff;
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  /**
+   * The URL-safe base64 alphabet, so values need no quoting in CSV, JSON or query languages.
+   */
+  private static final byte[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+  private static final int[] DIGITS = new int[128];
+
+  static {
+    Arrays.fill(DIGITS, -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      DIGITS[ALPHABET[i]] = i;
+    }
+  }
+
+  private final long seed;
+  private final int version;
+  private final long len;
+  private long off;
+  private long word;
+
+  public DeterministicByteIterator(String key, String field, long len) {
+    this(key, field, 0, len);
+  }
+
+  public DeterministicByteIterator(String key, String field, int version, long len) {
+    this.version = version & VERSION_MASK;
+    this.seed = seed(key, field, this.version);
+    this.len = len;
+  }
+
+  private static long seed(String key, String field, int version) {
+    long h = hash(FNV_OFFSET, key);
+    h = (h ^ ':') * FNV_PRIME;
+    h = hash(h, field);
+    return mix(h ^ mix(version));
+  }
+
+  private static long hash(long h, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      h = (h ^ s.charAt(i)) * FNV_PRIME;
+    }
+    return h;
+  }
+
+  /**
+   * The finalizer of SplitMix64.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Consume the version at the start of a value.
+   *
+   * @return The version, or -1 if the value does not start with one.
+   */
+  public static int readVersion(ByteIterator actual) {
+    if (actual.bytesLeft() < VERSION_BYTES) {
+      return -1;
+    }
+    int version = 0;
+    for (int i = 0; i < VERSION_BYTES; i++) {
+      byte b = actual.nextByte();
+      int digit = b < 0 ? -1 : DIGITS[b];
+      if (digit < 0) {
+        return -1;
+      }
+      version = (version << 6) | digit;
+    }
+    return version;
+  }
+
+  /**
+   * Check that the rest of a value, after the version consumed by {@link #readVersion}, is the one
+   * generated for a record key, field and version, consuming it. Nothing is materialized, so this is as
+   * cheap as reading the value.
+   *
+   * @return true if the value has the expected length and bytes.
+   */
+  public static boolean matches(ByteIterator actual, String key, String field, int version, long len) {
+    final DeterministicByteIterator expected = new DeterministicByteIterator(key, field, version, len);
+    expected.off = Math.min(VERSION_BYTES, len);
+    if (actual.bytesLeft() != expected.bytesLeft()) {
+      return false;
+    }
+    while (expected.hasNext()) {
+      if (!actual.hasNext() || actual.nextByte() != expected.nextByte()) {
+        return false;
+      }
+    }
+    return !actual.hasNext();
+  }
+
+  private byte current() {
+    if (off < VERSION_BYTES) {
+      return ALPHABET[(version >>> (6 * (VERSION_BYTES - 1 - (int) off))) & 63];
+    }
+    long body = off - VERSION_BYTES;
+    if ((body & 7) == 0) {
+      word = mix(seed + ((body >>> 3) + 1) * GOLDEN_GAMMA);
+    }
+    return ALPHABET[(int) (word >>> ((body & 7) << 3)) & 63];
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  @Override
+  public byte nextByte() {
+    byte b = current();
+    off++;
+    return b;
+  }
+
+  @Override
+  public int nextBuf(byte[] buffer, int bufOffset) {
+    int count = (int) Math.min(len - off, buffer.length - bufOffset);
+    for (int i = 0; i < count; i++) {
+      buffer[bufOffset + i] = current();
+      off++;
+    }
+    return bufOffset + count;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+
+  @Override
+  public void reset() {
+    off = 0;
+  }
+}
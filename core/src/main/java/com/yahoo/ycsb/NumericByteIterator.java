@@ -19,38 +19,61 @@ package com.yahoo.ycsb;
 /**
  * A byte iterator that handles encoding and decoding numeric values.
  * Currently this iterator can handle 64 bit signed values and double precision
- * floating point values.
+ * floating point values. The value is encoded big-endian as it is iterated, so
+ * creating an iterator or setting a new value into one allocates nothing.
  */
 public class NumericByteIterator extends ByteIterator {
-  private final byte[] payload;
-  private final boolean floatingPoint;
+  private static final int LENGTH = 8;
+
+  private long bits;
+  private boolean floatingPoint;
   private int off;
   
   public NumericByteIterator(final long value) {
-    floatingPoint = false;
-    payload = Utils.longToBytes(value);
-    off = 0;
+    set(value);
   }
   
   public NumericByteIterator(final double value) {
+    set(value);
+  }
+
+  /**
+   * Replace the value and rewind the iterator, for generators that reuse their
+   * iterators once the DB has consumed them.
+   * @return This iterator.
+   */
+  public NumericByteIterator set(final long value) {
+    floatingPoint = false;
+    bits = value;
+    off = 0;
+    return this;
+  }
+
+  /**
+   * Replace the value and rewind the iterator, for generators that reuse their
+   * iterators once the DB has consumed them.
+   * @return This iterator.
+   */
+  public NumericByteIterator set(final double value) {
     floatingPoint = true;
-    payload = Utils.doubleToBytes(value);
+    bits = Double.doubleToRawLongBits(value);
     off = 0;
+    return this;
   }
   
   @Override
   public boolean hasNext() {
-    return off < payload.length;
+    return off < LENGTH;
   }
 
   @Override
   public byte nextByte() {
-    return payload[off++];
+    return (byte) (bits >>> ((LENGTH - 1 - off++) << 3));
   }
 
   @Override
   public long bytesLeft() {
-    return payload.length - off;
+    return LENGTH - off;
   }
 
   @Override
@@ -62,18 +85,18 @@ public class NumericByteIterator extends ByteIterator {
     if (floatingPoint) {
       throw new IllegalStateException("Byte iterator is of the type double");
     }
-    return Utils.bytesToLong(payload);
+    return bits;
   }
 
   public double getDouble() {
     if (!floatingPoint) {
       throw new IllegalStateException("Byte iterator is of the type long");
     }
-    return Utils.bytesToDouble(payload);
+    return Double.longBitsToDouble(bits);
   }
 
   public boolean isFloatingPoint() {
     return floatingPoint;
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A portable query predicate for {@link DB#query}, small enough for every query language to express:
+ * equality on a field, a numeric range on a field, a token contained in a whitespace separated text
+ * field, and conjunctions of those. Bindings translate it into their native query; {@link #matches}
+ * evaluates it on a record for bindings that filter on the client.
+ */
+public final class Predicate {
+  /** The kinds of predicates. */
+  public enum Type {
+    /** The field equals the value. */
+    EQUALS,
+    /** The numeric field is at least the low and below the high bound. */
+    RANGE,
+    /** The text field contains the value as one of its whitespace separated tokens. */
+    CONTAINS,
+    /** All the children hold. */
+    AND
+  }
+
+  private final Type type;
+  private final String field;
+  private final String value;
+  private final long low;
+  private final long high;
+  private final List<Predicate> children;
+
+  private Predicate(Type type, String field, String value, long low, long high, List<Predicate> children) {
+    this.type = type;
+    this.field = field;
+    this.value = value;
+    this.low = low;
+    this.high = high;
+    this.children = children;
+  }
+
+  public static Predicate equalTo(String field, String value) {
+    return new Predicate(Type.EQUALS, field, value, 0, 0, Collections.<Predicate>emptyList());
+  }
+
+  /**
+   * @return A predicate for low &lt;= field &lt; high on a field holding a decimal integer.
+   */
+  public static Predicate range(String field, long low, long high) {
+    return new Predicate(Type.RANGE, field, null, low, high, Collections.<Predicate>emptyList());
+  }
+
+  public static Predicate contains(String field, String token) {
+    return new Predicate(Type.CONTAINS, field, token, 0, 0, Collections.<Predicate>emptyList());
+  }
+
+  public static Predicate and(Predicate... predicates) {
+    return new Predicate(Type.AND, null, null, 0, 0, Collections.unmodifiableList(Arrays.asList(predicates)));
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return The field of an EQUALS, RANGE or CONTAINS predicate.
+   */
+  public String getField() {
+    return field;
+  }
+
+  /**
+   * @return The value of an EQUALS or the token of a CONTAINS predicate.
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * @return The inclusive lower bound of a RANGE predicate.
+   */
+  public long getLow() {
+    return low;
+  }
+
+  /**
+   * @return The exclusive upper bound of a RANGE predicate.
+   */
+  public long getHigh() {
+    return high;
+  }
+
+  /**
+   * @return The children of an AND predicate.
+   */
+  public List<Predicate> getChildren() {
+    return children;
+  }
+
+  /**
+   * Evaluate the predicate on a record.
+   *
+   * @param record The field/value pairs of the record as strings.
+   * @return True if the record matches.
+   */
+  public boolean matches(Map<String, String> record) {
+    if (type == Type.AND) {
+      for (Predicate child : children) {
+        if (!child.matches(record)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    final String actual = record.get(field);
+    if (actual == null) {
+      return false;
+    }
+    switch (type) {
+    case EQUALS:
+      return actual.equals(value);
+    case RANGE:
+      try {
+        final long number = Long.parseLong(actual);
+        return number >= low && number < high;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    default:
+      for (String token : actual.split("\\s+")) {
+        if (token.equals(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+    case EQUALS:
+      return field + " = " + value;
+    case RANGE:
+      return low + " <= " + field + " < " + high;
+    case CONTAINS:
+      return field + " contains " + value;
+    default:
+      final StringBuilder sb = new StringBuilder("(");
+      for (Predicate child : children) {
+        if (sb.length() > 1) {
+          sb.append(" and ");
+        }
+        sb.append(child);
+      }
+      return sb.append(')').toString();
+    }
+  }
+}
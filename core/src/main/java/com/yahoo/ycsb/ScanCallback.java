@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Map;
+
+/**
+ * Receives the records of a {@link DB#streamScan} one at a time, so a scan needs no more memory than
+ * the binding buffers while fetching.
+ */
+public interface ScanCallback {
+  /**
+   * Consume one record. The map and its values are only valid during the call, bindings may reuse
+   * them for the next record.
+   *
+   * @param row The field/value pairs of the record.
+   * @return True to receive the next record, false to end the scan.
+   */
+  boolean onRow(Map<String, ByteIterator> row);
+}
@@ -106,5 +106,9 @@ public class Status {
       "service for the current binding is not available.");
   public static final Status BATCHED_OK = new Status("BATCHED_OK", "The operation has been batched by " +
       "the binding to be executed later.");
+  public static final Status CONDITION_FAILED = new Status("CONDITION_FAILED", "The condition of a conditional " +
+      "operation did not hold.");
+  public static final Status CONFLICT = new Status("CONFLICT", "The transaction conflicted with another " +
+      "one and was aborted.");
 }
 
@@ -20,6 +20,7 @@ package com.yahoo.ycsb;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -199,6 +200,40 @@ public final class Utils {
     return time;
   }
 
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Turns on per thread CPU time and allocation accounting if the JVM supports it
+   * but has it disabled.
+   */
+  public static void enableThreadCostAccounting() {
+    if (THREAD_BEAN.isThreadCpuTimeSupported() && !THREAD_BEAN.isThreadCpuTimeEnabled()) {
+      THREAD_BEAN.setThreadCpuTimeEnabled(true);
+    }
+    if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+      if (bean.isThreadAllocatedMemorySupported() && !bean.isThreadAllocatedMemoryEnabled()) {
+        bean.setThreadAllocatedMemoryEnabled(true);
+      }
+    }
+  }
+
+  /** @return The CPU time, in nanoseconds, consumed by the current thread
+   * or a negative value if the JVM does not support measuring it. */
+  public static long getCurrentThreadCpuTime() {
+    return THREAD_BEAN.isThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : -1;
+  }
+
+  /** @return The number of bytes allocated on the heap by the current thread
+   * or a negative value if the JVM does not support measuring it. */
+  public static long getCurrentThreadAllocatedBytes() {
+    if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) THREAD_BEAN).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
   /**
    * Returns a map of garbage collectors and their stats.
    * The first object in the array is the total count since JVM start and the
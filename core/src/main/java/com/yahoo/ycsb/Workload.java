@@ -77,6 +77,25 @@ public abstract class Workload {
     return null;
   }
       
+  /**
+   * The number of inserts the client threads of a load run together. Workloads that hand out the records
+   * to load on their own, and return false from doInsert() once none is left, return 0 for no limit.
+   *
+   * @param insertcount The number of records to load, from insertcount or recordcount.
+   * @return The number of inserts to run, 0 to run until doInsert() returns false.
+   */
+  public long getLoadOperationCount(long insertcount) {
+    return insertcount;
+  }
+
+  /**
+   * Finish the work of a particular client thread, e.g. write out anything it still buffers. Called by each
+   * client thread with its own DB and thread state once it has done its last operation, before the DB is
+   * cleaned up.
+   */
+  public void cleanupThread(DB db, Object threadstate) throws WorkloadException {
+  }
+
   /**
    * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
    */
@@ -67,7 +67,7 @@ public class HotspotIntegerGenerator extends NumberGenerator {
     this.upperBound = upperBound;
     this.hotsetFraction = hotsetFraction;
     long interval = upperBound - lowerBound + 1;
-    this.hotInterval = (int) (interval * hotsetFraction);
+    this.hotInterval = (long) (interval * hotsetFraction);
     this.coldInterval = interval - hotInterval;
     this.hotOpnFraction = hotOpnFraction;
   }
@@ -221,6 +221,32 @@ public class IncrementingPrintableStringGenerator extends Generator<String> {
     return lastValue;
   }
 
+  /**
+   * Computes the string {@link #nextValue()} would return after being called
+   * {@code index} times, without changing the state of the generator. The
+   * string is the index written in base {@code characterSet.length}, so values
+   * past the last string wrap around as they would on rollover.
+   * @param index A zero based, non-negative index.
+   * @return The string at the index.
+   * @throws IllegalArgumentException if the index is negative.
+   */
+  public String valueAt(final long index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Index must be greater than or equal to 0");
+    }
+    final int[] digits = new int[length];
+    long remainder = index;
+    for (int i = length - 1; i >= 0 && remainder > 0; --i) {
+      digits[i] = (int) (remainder % characterSet.length);
+      remainder /= characterSet.length;
+    }
+    final StringBuilder buffer = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      buffer.appendCodePoint(characterSet[digits[i]]);
+    }
+    return buffer.toString();
+  }
+
   /** @param exceptionOnRollover Whether or not to throw an exception on rollover. */
   public void setThrowExceptionOnRollover(final boolean exceptionOnRollover) {
     this.throwExceptionOnRollover = exceptionOnRollover;
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Captures every garbage collection of the client JVM through MXBean
+ * notifications and correlates each one with the operation latencies observed
+ * while it ran.
+ * <p>
+ * Pause durations are recorded in a "GC_PAUSE-collector" measurement (in us)
+ * per collector, so they show up in the status output and histograms next to
+ * the operation latencies. Operation latencies are folded into a ring of
+ * per-second maxima; at the end of the run the longest pauses are exported
+ * with the highest operation latency seen from the second they started until
+ * one second after they ended.
+ */
+public final class GCPauseMonitor {
+  /**
+   * The number of longest pauses exported individually. All pauses are
+   * counted and measured.
+   */
+  public static final String TOP_PAUSES_PROPERTY = "measurement.trackgc.toppauses";
+  public static final String TOP_PAUSES_PROPERTY_DEFAULT = "10";
+
+  /** Seconds of per-second maximum latency history. */
+  private static final int WINDOW_SECONDS = 4096;
+
+  private static GCPauseMonitor singleton = null;
+
+  /**
+   * Start the monitor for this JVM. Called once from the main client thread.
+   */
+  public static synchronized GCPauseMonitor start(Properties props) {
+    if (singleton == null) {
+      singleton = new GCPauseMonitor(props);
+      singleton.register();
+    }
+    return singleton;
+  }
+
+  /**
+   * @return The running monitor or null if GC tracking is disabled.
+   */
+  public static synchronized GCPauseMonitor getMonitor() {
+    return singleton;
+  }
+
+  /** One collection reported by the JVM. */
+  private static final class Pause {
+    private final String collector;
+    private final long startMs;
+    private final long durationMs;
+    private int maxOpLatency = -1;
+
+    private Pause(String collector, long startMs, long durationMs) {
+      this.collector = collector;
+      this.startMs = startMs;
+      this.durationMs = durationMs;
+    }
+  }
+
+  private final int topPauses;
+  private final long jvmStartMs;
+  /** The longest pauses so far, in no particular order. */
+  private final List<Pause> pauses = new ArrayList<>();
+  private final List<Pause> uncorrelated = new ArrayList<>();
+  private long pauseCount = 0;
+  private long totalPauseMs = 0;
+  private long maxPauseMs = 0;
+
+  /** Each slot packs (epoch second &lt;&lt; 32 | max latency in us). */
+  private final AtomicLongArray maxLatencyPerSecond = new AtomicLongArray(WINDOW_SECONDS);
+
+  private GCPauseMonitor(Properties props) {
+    topPauses = Integer.parseInt(props.getProperty(TOP_PAUSES_PROPERTY, TOP_PAUSES_PROPERTY_DEFAULT));
+    jvmStartMs = ManagementFactory.getRuntimeMXBean().getStartTime();
+  }
+
+  private void register() {
+    final NotificationListener listener = new NotificationListener() {
+      @Override
+      public void handleNotification(Notification notification, Object handback) {
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+          onCollection(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+        }
+      }
+    };
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (bean instanceof NotificationEmitter) {
+        ((NotificationEmitter) bean).addNotificationListener(listener, null, null);
+      }
+    }
+  }
+
+  private void onCollection(GarbageCollectionNotificationInfo info) {
+    final long duration = info.getGcInfo().getDuration();
+    final Pause pause = new Pause(info.getGcName().replace(" ", "_"),
+        jvmStartMs + info.getGcInfo().getStartTime(), duration);
+    Measurements.getMeasurements().measure("GC_PAUSE-" + pause.collector,
+        (int) Math.min(duration * 1000, Integer.MAX_VALUE));
+    synchronized (this) {
+      pauseCount++;
+      totalPauseMs += duration;
+      maxPauseMs = Math.max(maxPauseMs, duration);
+      if (pauses.size() < topPauses) {
+        pauses.add(pause);
+        uncorrelated.add(pause);
+        return;
+      }
+      int shortest = -1;
+      for (int i = 0; i < pauses.size(); i++) {
+        if (pauses.get(i).durationMs < duration
+            && (shortest < 0 || pauses.get(i).durationMs < pauses.get(shortest).durationMs)) {
+          shortest = i;
+        }
+      }
+      if (shortest >= 0) {
+        uncorrelated.remove(pauses.get(shortest));
+        pauses.set(shortest, pause);
+        uncorrelated.add(pause);
+      }
+    }
+  }
+
+  /**
+   * Record an operation latency. Called by every client thread after each
+   * operation, so it only touches shared state when it raises the maximum of
+   * the current second.
+   *
+   * @param nowMs The wall clock time the operation completed.
+   * @param latency The latency of the operation in us.
+   */
+  public void recordLatency(long nowMs, int latency) {
+    final long second = nowMs / 1000;
+    final int slot = (int) (second % WINDOW_SECONDS);
+    final long packed = (second << 32) | (latency & 0xFFFFFFFFL);
+    while (true) {
+      final long current = maxLatencyPerSecond.get(slot);
+      final long currentSecond = current >>> 32;
+      if (currentSecond > second || (currentSecond == second && (int) current >= latency)) {
+        return;
+      }
+      if (maxLatencyPerSecond.compareAndSet(slot, current, packed)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Resolve the latency spike of every pause whose correlation window has
+   * closed. Called periodically by the status thread, so pauses are matched
+   * long before their seconds are overwritten in the ring.
+   */
+  public synchronized void correlate() {
+    correlate(System.currentTimeMillis() / 1000, false);
+  }
+
+  private void correlate(long nowSecond, boolean force) {
+    for (int i = uncorrelated.size() - 1; i >= 0; i--) {
+      final Pause pause = uncorrelated.get(i);
+      final long first = pause.startMs / 1000;
+      final long last = (pause.startMs + pause.durationMs) / 1000 + 1;
+      if (!force && last >= nowSecond) {
+        continue;
+      }
+      int max = -1;
+      for (long second = Math.max(first, nowSecond - WINDOW_SECONDS + 1); second <= last; second++) {
+        final long packed = maxLatencyPerSecond.get((int) (second % WINDOW_SECONDS));
+        if ((packed >>> 32) == second) {
+          max = Math.max(max, (int) packed);
+        }
+      }
+      pause.maxOpLatency = max;
+      uncorrelated.remove(i);
+    }
+  }
+
+  /**
+   * Export the pause summary and the longest pauses, longest first.
+   *
+   * @param exporter Exporter representing the type of format to write to.
+   * @throws IOException Thrown if the export failed.
+   */
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    // the run is over, close every remaining window
+    correlate(System.currentTimeMillis() / 1000, true);
+    exporter.write("GC_PAUSES", "Count", pauseCount);
+    exporter.write("GC_PAUSES", "TotalPause(ms)", totalPauseMs);
+    exporter.write("GC_PAUSES", "MaxPause(ms)", maxPauseMs);
+    final List<Pause> longest = new ArrayList<>(pauses);
+    Collections.sort(longest, new Comparator<Pause>() {
+      @Override
+      public int compare(Pause a, Pause b) {
+        return Long.compare(b.durationMs, a.durationMs);
+      }
+    });
+    int rank = 0;
+    for (Pause pause : longest) {
+      final String metric = "GC_PAUSE_TOP_" + rank++ + "_" + pause.collector;
+      exporter.write(metric, "StartTime(ms)", pause.startMs);
+      exporter.write(metric, "Duration(ms)", pause.durationMs);
+      exporter.write(metric, "MaxOpLatencyDuringPause(us)", pause.maxOpLatency);
+    }
+  }
+}
@@ -21,6 +21,7 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,8 +37,10 @@ public class Measurements {
     HDRHISTOGRAM,
     HDRHISTOGRAM_AND_HISTOGRAM,
     HDRHISTOGRAM_AND_RAW,
+    HDRHISTOGRAM_AND_RAW_BINARY,
     TIMESERIES,
-    RAW
+    RAW,
+    RAW_BINARY
   }
 
   public static final String MEASUREMENT_TYPE_PROPERTY = "measurementtype";
@@ -46,9 +49,41 @@ public class Measurements {
   public static final String MEASUREMENT_INTERVAL = "measurement.interval";
   private static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
 
+  /**
+   * Coordinated omission correction applied to the "Corrected-" measurements:
+   * "none" or "expectedinterval". Unlike the intended start time, which is only
+   * known when the client is throttled with -target, this also works for runs at
+   * maximum throughput.
+   */
+  public static final String MEASUREMENT_CO_CORRECTION_PROPERTY = "measurement.cocorrection";
+  public static final String MEASUREMENT_CO_CORRECTION_PROPERTY_DEFAULT = "none";
+
+  /**
+   * The expected interval (us) between the operations of one client thread used
+   * by the "expectedinterval" correction. If 0, it is derived from the measured
+   * throughput of each thread, i.e. a moving average of the time between the
+   * starts of its consecutive operations.
+   */
+  public static final String MEASUREMENT_CO_INTERVAL_PROPERTY = "measurement.cocorrection.interval";
+  public static final String MEASUREMENT_CO_INTERVAL_PROPERTY_DEFAULT = "0";
+
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
+  /**
+   * Attribute the client CPU time (CLIENT_CPU-op, us) and heap allocation
+   * (CLIENT_ALLOC-op, bytes) spent inside the binding to each operation type.
+   */
+  public static final String MEASUREMENT_TRACK_CLIENT_COST_PROPERTY = "measurement.trackclientcost";
+  public static final String MEASUREMENT_TRACK_CLIENT_COST_PROPERTY_DEFAULT = "false";
+
+  /**
+   * Capture every client GC through notifications and correlate it with the
+   * operation latencies, see {@link GCPauseMonitor}.
+   */
+  public static final String MEASUREMENT_TRACK_GC_PROPERTY = "measurement.trackgc";
+  public static final String MEASUREMENT_TRACK_GC_PROPERTY_DEFAULT = "false";
+
   private static Measurements singleton = null;
   private static Properties measurementproperties = null;
 
@@ -68,8 +103,12 @@ public class Measurements {
 
   private final ConcurrentHashMap<String, OneMeasurement> opToMesurementMap;
   private final ConcurrentHashMap<String, OneMeasurement> opToIntendedMesurementMap;
+  private final ConcurrentHashMap<String, OneMeasurement> opToCorrectedMesurementMap;
+  private final ConcurrentHashMap<String, OneMeasurementValue> opToValueMap;
   private final MeasurementType measurementType;
   private final int measurementInterval;
+  private final boolean coCorrection;
+  private final int coExpectedInterval;
   private final Properties props;
 
   /**
@@ -78,6 +117,8 @@ public class Measurements {
   public Measurements(Properties props) {
     opToMesurementMap = new ConcurrentHashMap<>();
     opToIntendedMesurementMap = new ConcurrentHashMap<>();
+    opToCorrectedMesurementMap = new ConcurrentHashMap<>();
+    opToValueMap = new ConcurrentHashMap<>();
 
     this.props = props;
 
@@ -95,12 +136,18 @@ public class Measurements {
     case "hdrhistogram+raw":
       measurementType = MeasurementType.HDRHISTOGRAM_AND_RAW;
       break;
+    case "hdrhistogram+rawbinary":
+      measurementType = MeasurementType.HDRHISTOGRAM_AND_RAW_BINARY;
+      break;
     case "timeseries":
       measurementType = MeasurementType.TIMESERIES;
       break;
     case "raw":
       measurementType = MeasurementType.RAW;
       break;
+    case "rawbinary":
+      measurementType = MeasurementType.RAW_BINARY;
+      break;
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_TYPE_PROPERTY + "=" + mTypeString);
     }
@@ -119,6 +166,21 @@ public class Measurements {
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_INTERVAL + "=" + mIntervalString);
     }
+
+    String coCorrectionString = this.props.getProperty(MEASUREMENT_CO_CORRECTION_PROPERTY,
+        MEASUREMENT_CO_CORRECTION_PROPERTY_DEFAULT);
+    switch (coCorrectionString) {
+    case "none":
+      coCorrection = false;
+      break;
+    case "expectedinterval":
+      coCorrection = true;
+      break;
+    default:
+      throw new IllegalArgumentException("unknown " + MEASUREMENT_CO_CORRECTION_PROPERTY + "=" + coCorrectionString);
+    }
+    coExpectedInterval = Integer.parseInt(this.props.getProperty(MEASUREMENT_CO_INTERVAL_PROPERTY,
+        MEASUREMENT_CO_INTERVAL_PROPERTY_DEFAULT));
   }
 
   private OneMeasurement constructOneMeasurement(String name) {
@@ -135,10 +197,16 @@ public class Measurements {
       return new TwoInOneMeasurement(name,
           new OneMeasurementHdrHistogram("Hdr" + name, props),
           new OneMeasurementRaw("Raw" + name, props));
+    case HDRHISTOGRAM_AND_RAW_BINARY:
+      return new TwoInOneMeasurement(name,
+          new OneMeasurementHdrHistogram("Hdr" + name, props),
+          new OneMeasurementRawBinary("Raw" + name, props));
     case TIMESERIES:
       return new OneMeasurementTimeSeries(name, props);
     case RAW:
       return new OneMeasurementRaw(name, props);
+    case RAW_BINARY:
+      return new OneMeasurementRawBinary(name, props);
     default:
       throw new AssertionError("Impossible to be here. Dead code reached. Bugs?");
     }
@@ -162,6 +230,43 @@ public class Measurements {
     }
   };
 
+  /**
+   * Per thread estimate of the interval between operation starts, derived
+   * from the measured throughput of the thread.
+   */
+  static class ExpectedIntervalHolder {
+    // Weight of a new interval in the moving average. Small, so a single stall
+    // (the very thing being corrected for) barely moves the estimate.
+    private static final double ALPHA = 0.001;
+
+    private long lastStartNs;
+    private double averageIntervalNs;
+
+    int update(long startTimeNs) {
+      if (startTimeNs <= lastStartNs) {
+        // an enclosing measurement (e.g. READ-MODIFY-WRITE) of operations already counted
+        return (int) (averageIntervalNs / 1000);
+      }
+      if (lastStartNs != 0) {
+        final long interval = startTimeNs - lastStartNs;
+        if (averageIntervalNs == 0) {
+          averageIntervalNs = interval;
+        } else {
+          averageIntervalNs += ALPHA * (interval - averageIntervalNs);
+        }
+      }
+      lastStartNs = startTimeNs;
+      return (int) (averageIntervalNs / 1000);
+    }
+  }
+
+  private final ThreadLocal<ExpectedIntervalHolder> tlExpectedInterval =
+      new ThreadLocal<Measurements.ExpectedIntervalHolder>() {
+        protected ExpectedIntervalHolder initialValue() {
+          return new ExpectedIntervalHolder();
+        }
+      };
+
   public void setIntendedStartTimeNs(long time) {
     if (measurementInterval == 0) {
       return;
@@ -214,6 +319,50 @@ public class Measurements {
     }
   }
 
+  /**
+   * Report a latency to the coordinated omission corrected measurement of the
+   * operation, if a correction is configured.
+   *
+   * @param operation The operation name.
+   * @param latency The service time of the operation in us.
+   * @param startTimeNs The {@link System#nanoTime()} at which the operation started.
+   */
+  public void measureCorrected(String operation, int latency, long startTimeNs) {
+    if (!coCorrection) {
+      return;
+    }
+    final int expectedInterval = coExpectedInterval > 0 ?
+        coExpectedInterval : tlExpectedInterval.get().update(startTimeNs);
+    getOpCorrectedMeasurement(operation).measureWithExpectedInterval(latency, expectedInterval);
+  }
+
+  /**
+   * Report a value of a metric that is not a latency, such as a count of
+   * attempts or a sampled gauge. It is summarized in its own unit instead of
+   * a latency histogram.
+   *
+   * @param metric The metric name.
+   * @param value The value.
+   */
+  public void measureValue(String metric, long value) {
+    OneMeasurementValue m = opToValueMap.get(metric);
+    if (m == null) {
+      m = new OneMeasurementValue(metric);
+      OneMeasurementValue oldM = opToValueMap.putIfAbsent(metric, m);
+      if (oldM != null) {
+        m = oldM;
+      }
+    }
+    m.record(value);
+  }
+
+  /**
+   * @return The measurement of the given operation or null if nothing was measured for it yet.
+   */
+  OneMeasurement findMeasurement(String operation) {
+    return opToMesurementMap.get(operation);
+  }
+
   private OneMeasurement getOpMeasurement(String operation) {
     OneMeasurement m = opToMesurementMap.get(operation);
     if (m == null) {
@@ -239,6 +388,18 @@ public class Measurements {
     return m;
   }
 
+  private OneMeasurement getOpCorrectedMeasurement(String operation) {
+    OneMeasurement m = opToCorrectedMesurementMap.get(operation);
+    if (m == null) {
+      m = constructOneMeasurement("Corrected-" + operation);
+      OneMeasurement oldM = opToCorrectedMesurementMap.putIfAbsent(operation, m);
+      if (oldM != null) {
+        m = oldM;
+      }
+    }
+    return m;
+  }
+
   /**
    * Report a return code for a single DB operation.
    */
@@ -256,12 +417,43 @@ public class Measurements {
    * @throws IOException Thrown if the export failed.
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    for (OneMeasurement measurement : opToMesurementMap.values()) {
-      measurement.exportMeasurements(exporter);
+    for (Map.Entry<String, OneMeasurement> entry : opToMesurementMap.entrySet()) {
+      entry.getValue().exportMeasurements(exporter);
+      // keep the corrected latencies next to the raw service time
+      OneMeasurement corrected = opToCorrectedMesurementMap.get(entry.getKey());
+      if (corrected != null) {
+        corrected.exportMeasurements(exporter);
+      }
     }
     for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
       measurement.exportMeasurements(exporter);
     }
+    for (Map.Entry<String, OneMeasurement> entry : opToCorrectedMesurementMap.entrySet()) {
+      if (!opToMesurementMap.containsKey(entry.getKey())) {
+        entry.getValue().exportMeasurements(exporter);
+      }
+    }
+    for (OneMeasurement measurement : opToValueMap.values()) {
+      measurement.exportMeasurements(exporter);
+    }
+  }
+
+  /**
+   * Export the statistics of the interval closed by the last {@link #getSummary()} call.
+   *
+   * @param exporter Exporter representing the type of format to write to.
+   * @throws IOException Thrown if the export failed.
+   */
+  public synchronized void exportLastIntervals(MeasurementsExporter exporter) throws IOException {
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      m.exportLastInterval(exporter);
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      m.exportLastInterval(exporter);
+    }
+    for (OneMeasurement m : opToCorrectedMesurementMap.values()) {
+      m.exportLastInterval(exporter);
+    }
   }
 
   /**
@@ -275,6 +467,12 @@ public class Measurements {
     for (OneMeasurement m : opToIntendedMesurementMap.values()) {
       ret += m.getSummary() + " ";
     }
+    for (OneMeasurement m : opToCorrectedMesurementMap.values()) {
+      ret += m.getSummary() + " ";
+    }
+    for (OneMeasurement m : opToValueMap.values()) {
+      ret += m.getSummary() + " ";
+    }
     return ret;
   }
 
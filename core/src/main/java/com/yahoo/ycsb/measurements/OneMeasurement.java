@@ -23,7 +23,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A single measured metric (such as READ LATENCY).
@@ -31,7 +31,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public abstract class OneMeasurement {
 
   private final String name;
-  private final ConcurrentHashMap<Status, AtomicInteger> returncodes;
+  private final ConcurrentHashMap<Status, AtomicLong> returncodes;
 
   public String getName() {
     return name;
@@ -47,17 +47,38 @@ public abstract class OneMeasurement {
 
   public abstract void measure(int latency);
 
+  /**
+   * Record a latency and correct it for coordinated omission: if the latency
+   * is longer than the interval at which operations are expected to be issued,
+   * the operations that would have been issued (and delayed) in the meantime
+   * are recorded too, with linearly decreasing latencies. This is the same
+   * correction HdrHistogram applies in recordValueWithExpectedInterval.
+   *
+   * @param latency The measured latency.
+   * @param expectedInterval The expected interval between operations, in the
+   *                         same unit as the latency. Ignored if not positive.
+   */
+  public void measureWithExpectedInterval(int latency, int expectedInterval) {
+    measure(latency);
+    if (expectedInterval <= 0) {
+      return;
+    }
+    for (long missing = (long) latency - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+      measure((int) missing);
+    }
+  }
+
   public abstract String getSummary();
 
   /**
    * No need for synchronization, using CHM to deal with that.
    */
   public void reportStatus(Status status) {
-    AtomicInteger counter = returncodes.get(status);
+    AtomicLong counter = returncodes.get(status);
 
     if (counter == null) {
-      counter = new AtomicInteger();
-      AtomicInteger other = returncodes.putIfAbsent(status, counter);
+      counter = new AtomicLong();
+      AtomicLong other = returncodes.putIfAbsent(status, counter);
       if (other != null) {
         counter = other;
       }
@@ -74,8 +95,52 @@ public abstract class OneMeasurement {
    */
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
+  /**
+   * Export the statistics of the interval most recently closed by
+   * {@link #getSummary()}. Called by the status thread right after it, for
+   * exporters that stream results while the run is in progress. Measurements
+   * without interval statistics export nothing.
+   *
+   * @param exporter Exporter representing the type of format to write to.
+   * @throws IOException Thrown if the export failed.
+   */
+  public void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+  }
+
+  /**
+   * @return The average latency of the interval most recently closed by
+   * {@link #getSummary()}, or NaN if it saw no operations or is not tracked.
+   */
+  public double getLastIntervalAverage() {
+    return Double.NaN;
+  }
+
+  /**
+   * @param percentile The percentile, between 0 and 100.
+   * @return The latency at the given percentile of the interval most recently
+   * closed by {@link #getSummary()}, or NaN if it saw no operations or the
+   * measurement type keeps no interval distribution.
+   */
+  public double getLastIntervalPercentile(double percentile) {
+    return Double.NaN;
+  }
+
+  /**
+   * @param ok Whether to count successful or failed return codes.
+   * @return The number of reported return codes that are (not) OK.
+   */
+  long countStatus(boolean ok) {
+    long count = 0;
+    for (Map.Entry<Status, AtomicLong> entry : returncodes.entrySet()) {
+      if (entry.getKey().isOk() == ok) {
+        count += entry.getValue().get();
+      }
+    }
+    return count;
+  }
+
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
-    for (Map.Entry<Status, AtomicInteger> entry : returncodes.entrySet()) {
+    for (Map.Entry<Status, AtomicLong> entry : returncodes.entrySet()) {
       exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
     }
   }
@@ -44,6 +44,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 
   private final Recorder histogram;
   private Histogram totalHistogram;
+  private Histogram lastIntervalHistogram;
 
   /**
    * The name of the property for deciding what percentile values to output.
@@ -90,6 +91,11 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
     histogram.recordValue(latencyInMicros);
   }
 
+  @Override
+  public void measureWithExpectedInterval(int latencyInMicros, int expectedIntervalInMicros) {
+    histogram.recordValueWithExpectedInterval(latencyInMicros, expectedIntervalInMicros);
+  }
+
   /**
    * This is called from a main thread, on orderly termination.
    */
@@ -137,6 +143,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   @Override
   public String getSummary() {
     Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+    lastIntervalHistogram = intervalHistogram;
     // we use the summary interval as the histogram file interval.
     if (histogramLogWriter != null) {
       histogramLogWriter.outputIntervalHistogram(intervalHistogram);
@@ -151,6 +158,37 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
         + d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
   }
 
+  @Override
+  public void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+    final Histogram interval = lastIntervalHistogram;
+    if (interval == null) {
+      return;
+    }
+    exporter.write(getName(), "Operations", interval.getTotalCount());
+    if (interval.getTotalCount() == 0) {
+      return;
+    }
+    exporter.write(getName(), "AverageLatency(us)", interval.getMean());
+    exporter.write(getName(), "MinLatency(us)", interval.getMinValue());
+    exporter.write(getName(), "MaxLatency(us)", interval.getMaxValue());
+    for (Double percentile : percentiles) {
+      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)",
+          interval.getValueAtPercentile(percentile));
+    }
+  }
+
+  @Override
+  public double getLastIntervalAverage() {
+    final Histogram interval = lastIntervalHistogram;
+    return interval == null || interval.getTotalCount() == 0 ? Double.NaN : interval.getMean();
+  }
+
+  @Override
+  public double getLastIntervalPercentile(double percentile) {
+    final Histogram interval = lastIntervalHistogram;
+    return interval == null || interval.getTotalCount() == 0 ? Double.NaN : interval.getValueAtPercentile(percentile);
+  }
+
   private Histogram getIntervalHistogramAndAccumulate() {
     Histogram intervalHistogram = histogram.getIntervalHistogram();
     // add this to the total time histogram.
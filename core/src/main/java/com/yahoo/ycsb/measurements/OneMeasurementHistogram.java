@@ -67,6 +67,8 @@ public class OneMeasurementHistogram extends OneMeasurement {
   //keep a windowed version of these stats for printing status
   private long windowoperations;
   private long windowtotallatency;
+  private long lastwindowoperations;
+  private double lastwindowaverage;
 
   private int min;
   private int max;
@@ -144,13 +146,28 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
   @Override
   public String getSummary() {
+    lastwindowoperations = windowoperations;
     if (windowoperations == 0) {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
     double report = ((double) windowtotallatency) / ((double) windowoperations);
+    lastwindowaverage = report;
     windowtotallatency = 0;
     windowoperations = 0;
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
+
+  @Override
+  public void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+    exporter.write(getName(), "Operations", lastwindowoperations);
+    if (lastwindowoperations > 0) {
+      exporter.write(getName(), "AverageLatency(us)", lastwindowaverage);
+    }
+  }
+
+  @Override
+  public double getLastIntervalAverage() {
+    return lastwindowoperations > 0 ? lastwindowaverage : Double.NaN;
+  }
 }
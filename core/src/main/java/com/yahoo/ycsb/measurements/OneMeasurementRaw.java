@@ -100,6 +100,8 @@ public class OneMeasurementRaw extends OneMeasurement {
   // average.
   private int windowOperations = 0;
   private long windowTotalLatency = 0;
+  private int lastWindowOperations = 0;
+  private double lastWindowAverage = 0;
 
   public OneMeasurementRaw(String name, Properties props) {
     super(name);
@@ -191,17 +193,31 @@ public class OneMeasurementRaw extends OneMeasurement {
 
   @Override
   public synchronized String getSummary() {
+    lastWindowOperations = windowOperations;
     if (windowOperations == 0) {
       return "";
     }
+    lastWindowAverage = (double) windowTotalLatency / (double) windowOperations;
 
     String toReturn = String.format("%s count: %d, average latency(us): %.2f",
-        getName(), windowOperations,
-        (double) windowTotalLatency / (double) windowOperations);
+        getName(), windowOperations, lastWindowAverage);
 
     windowTotalLatency = 0;
     windowOperations = 0;
 
     return toReturn;
   }
+
+  @Override
+  public synchronized void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+    exporter.write(getName(), "Operations", lastWindowOperations);
+    if (lastWindowOperations > 0) {
+      exporter.write(getName(), "AverageLatency(us)", lastWindowAverage);
+    }
+  }
+
+  @Override
+  public synchronized double getLastIntervalAverage() {
+    return lastWindowOperations > 0 ? lastWindowAverage : Double.NaN;
+  }
 }
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Record every data point like {@link OneMeasurementRaw}, but stream them to
+ * per-thread binary files (see {@link RawSampleFile}) instead of keeping them
+ * on the heap, so memory use is constant regardless of the run length.
+ * <p>
+ * Only count, average, min and max are exported; use {@link RawSampleTool} to
+ * compute exact percentiles or convert the files to CSV afterwards.
+ */
+public class OneMeasurementRawBinary extends OneMeasurement {
+  /**
+   * The directory the per-thread sample files are written to.
+   */
+  public static final String OUTPUT_DIR = "measurement.rawbinary.output_dir";
+  public static final String OUTPUT_DIR_DEFAULT = ".";
+
+  /**
+   * The size in bytes of the per-thread write buffer.
+   */
+  public static final String BUFFER_SIZE = "measurement.rawbinary.buffer_size";
+  public static final String BUFFER_SIZE_DEFAULT = "65536";
+
+  /**
+   * One writer per client thread. Counters are only written by the owning
+   * thread and read by the status and main threads.
+   */
+  private final class ThreadWriter {
+    private RawSampleFile.Writer writer;
+    private volatile long count;
+    private volatile long totalLatency;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    private void measure(long timestamp, int latency) {
+      if (writer != null) {
+        try {
+          writer.append(timestamp, latency);
+        } catch (IOException e) {
+          System.err.println("Raw binary measurement: failed writing " + getName() +
+              ", dropping further samples of this thread: " + e.getMessage());
+          closeQuietly();
+        }
+      }
+      if (latency < min) {
+        min = latency;
+      }
+      if (latency > max) {
+        max = latency;
+      }
+      totalLatency += latency;
+      count++;
+    }
+
+    private synchronized void closeQuietly() {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          System.err.println("Raw binary measurement: failed closing " + getName() + ": " + e.getMessage());
+        }
+        writer = null;
+      }
+    }
+  }
+
+  private final File outputDir;
+  private final int bufferSize;
+  private final AtomicInteger nextFileId = new AtomicInteger();
+  private final Queue<ThreadWriter> writers = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<ThreadWriter> threadWriter = new ThreadLocal<ThreadWriter>() {
+    @Override
+    protected ThreadWriter initialValue() {
+      return openWriter();
+    }
+  };
+
+  private volatile boolean closed = false;
+
+  // Totals seen by the previous getSummary() call.
+  private long windowStartCount = 0;
+  private long windowStartLatency = 0;
+  private long lastWindowOperations = 0;
+  private double lastWindowAverage = 0;
+
+  public OneMeasurementRawBinary(String name, Properties props) {
+    super(name);
+    outputDir = new File(props.getProperty(OUTPUT_DIR, OUTPUT_DIR_DEFAULT));
+    bufferSize = Integer.parseInt(props.getProperty(BUFFER_SIZE, BUFFER_SIZE_DEFAULT));
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      throw new RuntimeException("Failed to create raw binary output directory " + outputDir);
+    }
+  }
+
+  private ThreadWriter openWriter() {
+    final ThreadWriter tw = new ThreadWriter();
+    final File file = new File(outputDir, getName() + "-" + nextFileId.getAndIncrement() + RawSampleFile.FILE_SUFFIX);
+    try {
+      tw.writer = new RawSampleFile.Writer(file, getName(), System.currentTimeMillis(), bufferSize);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open raw binary output file " + file, e);
+    }
+    writers.add(tw);
+    return tw;
+  }
+
+  @Override
+  public void measure(int latency) {
+    if (closed) {
+      return;
+    }
+    threadWriter.get().measure(System.currentTimeMillis(), latency);
+  }
+
+  @Override
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    closed = true;
+    long count = 0;
+    long totalLatency = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (ThreadWriter tw : writers) {
+      tw.closeQuietly();
+      count += tw.count;
+      totalLatency += tw.totalLatency;
+      min = Math.min(min, tw.min);
+      max = Math.max(max, tw.max);
+    }
+
+    exporter.write(getName(), "Operations", count);
+    if (count > 0) {
+      exporter.write(getName(), "AverageLatency(us)", (double) totalLatency / (double) count);
+      exporter.write(getName(), "MinLatency(us)", min);
+      exporter.write(getName(), "MaxLatency(us)", max);
+    }
+    exporter.write(getName(), "RawSampleFiles", writers.size());
+
+    exportStatusCounts(exporter);
+  }
+
+  @Override
+  public synchronized String getSummary() {
+    long count = 0;
+    long totalLatency = 0;
+    for (ThreadWriter tw : writers) {
+      // read the latency first, so a racing sample can only lower the average
+      totalLatency += tw.totalLatency;
+      count += tw.count;
+    }
+    final long windowOperations = count - windowStartCount;
+    final long windowTotalLatency = totalLatency - windowStartLatency;
+    windowStartCount = count;
+    windowStartLatency = totalLatency;
+    lastWindowOperations = Math.max(windowOperations, 0);
+    if (windowOperations <= 0) {
+      return "";
+    }
+    lastWindowAverage = (double) windowTotalLatency / (double) windowOperations;
+    return String.format("%s count: %d, average latency(us): %.2f",
+        getName(), windowOperations, lastWindowAverage);
+  }
+
+  @Override
+  public synchronized void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+    exporter.write(getName(), "Operations", lastWindowOperations);
+    if (lastWindowOperations > 0) {
+      exporter.write(getName(), "AverageLatency(us)", lastWindowAverage);
+    }
+  }
+
+  @Override
+  public synchronized double getLastIntervalAverage() {
+    return lastWindowOperations > 0 ? lastWindowAverage : Double.NaN;
+  }
+}
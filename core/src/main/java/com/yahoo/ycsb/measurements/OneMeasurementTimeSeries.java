@@ -62,6 +62,8 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
   //keep a windowed version of these stats for printing status
   private int windowoperations = 0;
   private long windowtotallatency = 0;
+  private int lastwindowoperations = 0;
+  private double lastwindowaverage = 0;
 
   private int min = -1;
   private int max = -1;
@@ -133,14 +135,29 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 
   @Override
   public String getSummary() {
+    lastwindowoperations = windowoperations;
     if (windowoperations == 0) {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
     double report = ((double) windowtotallatency) / ((double) windowoperations);
+    lastwindowaverage = report;
     windowtotallatency = 0;
     windowoperations = 0;
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
 
+  @Override
+  public void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+    exporter.write(getName(), "Operations", lastwindowoperations);
+    if (lastwindowoperations > 0) {
+      exporter.write(getName(), "AverageLatency(us)", lastwindowaverage);
+    }
+  }
+
+  @Override
+  public double getLastIntervalAverage() {
+    return lastwindowoperations > 0 ? lastwindowaverage : Double.NaN;
+  }
+
 }
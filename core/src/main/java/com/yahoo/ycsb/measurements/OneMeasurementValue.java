@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+/**
+ * Summarize a metric that is not a latency, such as a count of attempts or
+ * bytes, or a gauge sampled over time. Values are exported in the unit they
+ * were recorded in, without a histogram and without the "(us)" label of the
+ * latency measurements.
+ */
+public class OneMeasurementValue extends OneMeasurement {
+  private long count;
+  private long total;
+  private long min;
+  private long max;
+  private long last;
+
+  //keep a windowed average for printing status
+  private long windowcount;
+  private long windowtotal;
+
+  public OneMeasurementValue(String name) {
+    super(name);
+  }
+
+  @Override
+  public void measure(int value) {
+    record(value);
+  }
+
+  /**
+   * @param value The value to add to the summary.
+   */
+  public synchronized void record(long value) {
+    if (count == 0 || value < min) {
+      min = value;
+    }
+    if (count == 0 || value > max) {
+      max = value;
+    }
+    count++;
+    total += value;
+    last = value;
+    windowcount++;
+    windowtotal += value;
+  }
+
+  @Override
+  public synchronized String getSummary() {
+    if (windowcount == 0) {
+      return "";
+    }
+    DecimalFormat d = new DecimalFormat("#.##");
+    double report = ((double) windowtotal) / windowcount;
+    windowcount = 0;
+    windowtotal = 0;
+    return "[" + getName() + " Average=" + d.format(report) + " Last=" + last + "]";
+  }
+
+  @Override
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    exporter.write(getName(), "Count", count);
+    exporter.write(getName(), "Total", total);
+    if (count > 0) {
+      exporter.write(getName(), "Average", ((double) total) / count);
+      exporter.write(getName(), "Min", min);
+      exporter.write(getName(), "Max", max);
+      exporter.write(getName(), "Last", last);
+    }
+    exportStatusCounts(exporter);
+  }
+}
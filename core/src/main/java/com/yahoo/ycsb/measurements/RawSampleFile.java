@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Binary, append-only file format for raw latency samples.
+ * <p>
+ * A file holds the samples of one measurement as recorded by one client
+ * thread, so samples are in non-decreasing timestamp order (modulo wall clock
+ * adjustments). The layout is:
+ * <pre>
+ *   int    magic ("YRAW")
+ *   byte   version
+ *   short  length of the UTF-8 encoded measurement name
+ *   byte[] measurement name
+ *   long   base timestamp (ms since epoch)
+ *   then, per sample:
+ *   varint zig-zag encoded timestamp delta (ms) to the previous sample
+ *   varint zig-zag encoded latency (us)
+ * </pre>
+ * A typical sample takes two or three bytes on disk and none on the heap.
+ */
+public final class RawSampleFile {
+  public static final int MAGIC = 0x59524157;
+  public static final byte VERSION = 1;
+  public static final String FILE_SUFFIX = ".ycsbraw";
+
+  /** Longest encoding of one sample: two 64 bit varints. */
+  private static final int MAX_SAMPLE_BYTES = 20;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private RawSampleFile() {
+    // not used
+  }
+
+  static long zigZagEncode(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  static long zigZagDecode(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static void putVarLong(ByteBuffer buf, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buf.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buf.put((byte) value);
+  }
+
+  /**
+   * Appends samples of a single measurement to a file. Not thread safe; each
+   * client thread is expected to own its writer.
+   */
+  public static final class Writer implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long lastTimestamp;
+
+    public Writer(File file, String name, long baseTimestamp, int bufferSize) throws IOException {
+      channel = new FileOutputStream(file).getChannel();
+      buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
+      final byte[] nameBytes = name.getBytes(UTF8);
+      buffer.putInt(MAGIC);
+      buffer.put(VERSION);
+      buffer.putShort((short) nameBytes.length);
+      buffer.put(nameBytes);
+      buffer.putLong(baseTimestamp);
+      lastTimestamp = baseTimestamp;
+    }
+
+    /**
+     * Append one sample, flushing the buffer to the file when it fills up.
+     */
+    public void append(long timestamp, int latency) throws IOException {
+      if (buffer.remaining() < MAX_SAMPLE_BYTES) {
+        flush();
+      }
+      putVarLong(buffer, zigZagEncode(timestamp - lastTimestamp));
+      putVarLong(buffer, zigZagEncode(latency));
+      lastTimestamp = timestamp;
+    }
+
+    /**
+     * Write any buffered samples to the file.
+     */
+    public void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Sequentially reads the samples of one file. Usage:
+   * <pre>
+   *   while (reader.next()) {
+   *     reader.timestamp(); reader.latency();
+   *   }
+   * </pre>
+   */
+  public static final class Reader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final String name;
+    private long timestamp;
+    private int latency;
+
+    public Reader(File file) throws IOException {
+      channel = new FileInputStream(file).getChannel();
+      buffer = ByteBuffer.allocateDirect(64 * 1024);
+      buffer.flip();
+      try {
+        ensure(7, true);
+        if (buffer.getInt() != MAGIC) {
+          throw new IOException(file + " is not a raw sample file");
+        }
+        final byte version = buffer.get();
+        if (version != VERSION) {
+          throw new IOException("Unsupported raw sample file version " + version + " in " + file);
+        }
+        final int nameLength = buffer.getShort() & 0xFFFF;
+        ensure(nameLength + 8, true);
+        final byte[] nameBytes = new byte[nameLength];
+        buffer.get(nameBytes);
+        name = new String(nameBytes, UTF8);
+        timestamp = buffer.getLong();
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /** @return The measurement name recorded in the file header. */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Advance to the next sample.
+     *
+     * @return false once the end of the file has been reached.
+     */
+    public boolean next() throws IOException {
+      ensure(MAX_SAMPLE_BYTES, false);
+      if (!buffer.hasRemaining()) {
+        return false;
+      }
+      timestamp += zigZagDecode(getVarLong());
+      latency = (int) zigZagDecode(getVarLong());
+      return true;
+    }
+
+    /** @return The timestamp (ms) of the current sample. */
+    public long timestamp() {
+      return timestamp;
+    }
+
+    /** @return The latency (us) of the current sample. */
+    public int latency() {
+      return latency;
+    }
+
+    private long getVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (!buffer.hasRemaining()) {
+          throw new EOFException("Truncated sample in raw sample file " + name);
+        }
+        final byte b = buffer.get();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint in raw sample file " + name);
+    }
+
+    /**
+     * Refill the buffer so at least {@code bytes} bytes are available, or as
+     * many as the file still holds unless they are {@code required}.
+     */
+    private void ensure(int bytes, boolean required) throws IOException {
+      if (buffer.remaining() >= bytes) {
+        return;
+      }
+      buffer.compact();
+      while (buffer.position() < bytes && channel.read(buffer) >= 0) {
+        // keep reading
+      }
+      buffer.flip();
+      if (required && buffer.remaining() < bytes) {
+        throw new EOFException("Truncated header in raw sample file");
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Command line utility for the files written by {@link OneMeasurementRawBinary}.
+ * <p>
+ * Usage: {@code java com.yahoo.ycsb.measurements.RawSampleTool <command> [options] <file or dir>...}
+ * <ul>
+ * <li><b>summary</b>: exact count, average, min and max and percentiles to three significant digits
+ * per measurement, streamed through a histogram in constant memory.
+ * <li><b>csv -o out.csv</b>: rows of "operation,timestamp_ms,latency_us", merged across all
+ * files in timestamp order with constant memory.
+ * <li><b>columns -o prefix</b>: one pair of big-endian column files per measurement,
+ * {@code prefix.NAME.timestamp} (int64) and {@code prefix.NAME.latency} (int32), in
+ * timestamp order. These load directly into numpy, Arrow or a Parquet writer.
+ * </ul>
+ */
+public final class RawSampleTool {
+  private static final double[] PERCENTILES = {1, 5, 50, 90, 95, 99, 99.9, 99.99};
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private RawSampleTool() {
+    // not used
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      usage();
+      System.exit(1);
+    }
+    final String command = args[0];
+    String output = null;
+    int argindex = 1;
+    if (args[argindex].equals("-o")) {
+      if (args.length < 4) {
+        usage();
+        System.exit(1);
+      }
+      output = args[argindex + 1];
+      argindex += 2;
+    }
+    final Map<String, List<File>> files = groupByMeasurement(
+        listFiles(Arrays.asList(args).subList(argindex, args.length)));
+
+    switch (command) {
+    case "summary":
+      summarize(files, System.out);
+      break;
+    case "csv":
+      if (output == null) {
+        usage();
+        System.exit(1);
+      }
+      try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"))) {
+        writeCsv(files, out);
+      }
+      break;
+    case "columns":
+      if (output == null) {
+        usage();
+        System.exit(1);
+      }
+      writeColumns(files, output);
+      break;
+    default:
+      usage();
+      System.exit(1);
+    }
+  }
+
+  private static void usage() {
+    System.err.println("Usage: java " + RawSampleTool.class.getName() + " <command> [-o output] <file or dir>...");
+    System.err.println("Commands:");
+    System.err.println("  summary             print latency statistics per measurement");
+    System.err.println("  csv -o file         write operation,timestamp_ms,latency_us rows in time order");
+    System.err.println("  columns -o prefix   write per measurement timestamp/latency column files");
+  }
+
+  /**
+   * Expand directories into the raw sample files they contain.
+   */
+  static List<File> listFiles(List<String> paths) {
+    final List<File> files = new ArrayList<>();
+    for (String path : paths) {
+      final File f = new File(path);
+      if (f.isDirectory()) {
+        final File[] children = f.listFiles();
+        if (children != null) {
+          Arrays.sort(children);
+          for (File child : children) {
+            if (child.getName().endsWith(RawSampleFile.FILE_SUFFIX)) {
+              files.add(child);
+            }
+          }
+        }
+      } else {
+        files.add(f);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Group files by the measurement name stored in their header.
+   */
+  static Map<String, List<File>> groupByMeasurement(List<File> files) throws IOException {
+    final Map<String, List<File>> grouped = new TreeMap<>();
+    for (File file : files) {
+      try (RawSampleFile.Reader reader = new RawSampleFile.Reader(file)) {
+        List<File> list = grouped.get(reader.getName());
+        if (list == null) {
+          list = new ArrayList<>();
+          grouped.put(reader.getName(), list);
+        }
+        list.add(file);
+      }
+    }
+    return grouped;
+  }
+
+  /**
+   * Print statistics, one measurement at a time. The samples are streamed into a histogram, so the
+   * count, average, min and max are exact and the percentiles within {@value #SIGNIFICANT_DIGITS}
+   * significant digits, in memory independent of the number of samples.
+   */
+  static void summarize(Map<String, List<File>> files, PrintStream out) throws IOException {
+    for (Map.Entry<String, List<File>> entry : files.entrySet()) {
+      final Histogram histogram = new Histogram(SIGNIFICANT_DIGITS);
+      long count = 0;
+      long total = 0;
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (File file : entry.getValue()) {
+        try (RawSampleFile.Reader reader = new RawSampleFile.Reader(file)) {
+          while (reader.next()) {
+            final int latency = reader.latency();
+            histogram.recordValue(Math.max(0, latency));
+            count++;
+            total += latency;
+            min = Math.min(min, latency);
+            max = Math.max(max, latency);
+          }
+        }
+      }
+      final String name = entry.getKey();
+      out.println("[" + name + "], Operations, " + count);
+      if (count == 0) {
+        continue;
+      }
+      out.println("[" + name + "], AverageLatency(us), " + ((double) total / count));
+      out.println("[" + name + "], MinLatency(us), " + min);
+      out.println("[" + name + "], MaxLatency(us), " + max);
+      for (double p : PERCENTILES) {
+        out.println("[" + name + "], p" + (p == (long) p ? String.valueOf((long) p) : String.valueOf(p)) + ", " +
+            histogram.getValueAtPercentile(p));
+      }
+    }
+  }
+
+  /**
+   * A reader ordered by the timestamp of its current sample.
+   */
+  private static final class MergeEntry implements Comparable<MergeEntry> {
+    private final String name;
+    private final RawSampleFile.Reader reader;
+
+    private MergeEntry(String name, RawSampleFile.Reader reader) {
+      this.name = name;
+      this.reader = reader;
+    }
+
+    @Override
+    public int compareTo(MergeEntry o) {
+      return Long.compare(reader.timestamp(), o.reader.timestamp());
+    }
+  }
+
+  /**
+   * Receives the samples produced by {@link #merge}.
+   */
+  private interface SampleSink {
+    void accept(String name, long timestamp, int latency) throws IOException;
+  }
+
+  /**
+   * Merge the (individually time ordered) files into one time ordered stream.
+   */
+  private static void merge(Map<String, List<File>> files, SampleSink sink) throws IOException {
+    final PriorityQueue<MergeEntry> queue = new PriorityQueue<>();
+    try {
+      for (Map.Entry<String, List<File>> entry : files.entrySet()) {
+        for (File file : entry.getValue()) {
+          final RawSampleFile.Reader reader = new RawSampleFile.Reader(file);
+          if (reader.next()) {
+            queue.add(new MergeEntry(entry.getKey(), reader));
+          } else {
+            reader.close();
+          }
+        }
+      }
+      while (!queue.isEmpty()) {
+        final MergeEntry head = queue.poll();
+        sink.accept(head.name, head.reader.timestamp(), head.reader.latency());
+        if (head.reader.next()) {
+          queue.add(head);
+        } else {
+          head.reader.close();
+        }
+      }
+    } finally {
+      for (MergeEntry entry : queue) {
+        entry.reader.close();
+      }
+    }
+  }
+
+  static void writeCsv(Map<String, List<File>> files, final Writer out) throws IOException {
+    out.write("operation,timestamp_ms,latency_us\n");
+    merge(files, new SampleSink() {
+      @Override
+      public void accept(String name, long timestamp, int latency) throws IOException {
+        out.write(name);
+        out.write(',');
+        out.write(Long.toString(timestamp));
+        out.write(',');
+        out.write(Integer.toString(latency));
+        out.write('\n');
+      }
+    });
+  }
+
+  static void writeColumns(Map<String, List<File>> files, String prefix) throws IOException {
+    for (Map.Entry<String, List<File>> entry : files.entrySet()) {
+      final String name = entry.getKey();
+      try (final DataOutputStream timestamps = new DataOutputStream(new BufferedOutputStream(
+               new FileOutputStream(prefix + "." + name + ".timestamp")));
+           final DataOutputStream latencies = new DataOutputStream(new BufferedOutputStream(
+               new FileOutputStream(prefix + "." + name + ".latency")))) {
+        final Map<String, List<File>> single = new TreeMap<>();
+        single.put(name, entry.getValue());
+        merge(single, new SampleSink() {
+          @Override
+          public void accept(String sampleName, long timestamp, int latency) throws IOException {
+            timestamps.writeLong(timestamp);
+            latencies.writeInt(latency);
+          }
+        });
+      }
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Service level objectives checked against the statistics of every status
+ * interval.
+ * <p>
+ * Rules are properties of the form {@code slo.<operation>.<metric>=<target>}:
+ * <ul>
+ * <li>{@code pNN} (e.g. {@code slo.READ.p99=2ms}, {@code slo.READ.p99.9=10ms}):
+ * latency percentile of the interval, needs the hdrhistogram measurement type.
+ * <li>{@code avg}: average latency of the interval.
+ * <li>{@code errorRate} (e.g. {@code slo.INSERT.errorRate=0.1%}): share of the
+ * operations of the interval that did not return an OK status.
+ * </ul>
+ * Latency targets take a us, ms or s suffix and default to us. An interval
+ * violates a rule if its value is above the target; intervals without
+ * operations are not evaluated. Optionally the run is stopped once a rule has
+ * been violated for a number of consecutive intervals.
+ */
+public final class ServiceLevelObjectives {
+  /** The prefix of all SLO properties. */
+  public static final String PREFIX = "slo.";
+
+  /** Whether to stop the workload when an SLO is violated. */
+  public static final String ABORT_PROPERTY = "slo.abortonviolation";
+  public static final String ABORT_PROPERTY_DEFAULT = "false";
+
+  /** The number of consecutive violating intervals of one rule that stop the workload. */
+  public static final String ABORT_AFTER_PROPERTY = "slo.abortafterintervals";
+  public static final String ABORT_AFTER_PROPERTY_DEFAULT = "1";
+
+  private static final String ERROR_RATE = "errorRate";
+  private static final String AVERAGE = "avg";
+
+  /** One objective and its violation history. */
+  static final class Rule {
+    private final String operation;
+    private final String metric;
+    private final String targetString;
+    private final double percentile;
+    private final double target;
+    private long intervals = 0;
+    private long violations = 0;
+    private int consecutive = 0;
+    private long firstBreachMs = -1;
+    private double worst = Double.NaN;
+
+    private Rule(String operation, String metric, String targetString) {
+      this.operation = operation;
+      this.metric = metric;
+      this.targetString = targetString;
+      if (metric.equals(ERROR_RATE)) {
+        percentile = Double.NaN;
+        target = parseRate(targetString);
+      } else if (metric.equals(AVERAGE)) {
+        percentile = Double.NaN;
+        target = parseLatency(targetString);
+      } else if (metric.startsWith("p")) {
+        percentile = Double.parseDouble(metric.substring(1));
+        if (percentile < 0 || percentile > 100) {
+          throw new IllegalArgumentException("Invalid SLO percentile " + metric + " for " + operation);
+        }
+        target = parseLatency(targetString);
+      } else {
+        throw new IllegalArgumentException("Unknown SLO metric " + metric + " for " + operation +
+            ", expected pNN, " + AVERAGE + " or " + ERROR_RATE);
+      }
+    }
+
+    private String getName() {
+      return "SLO-" + operation + "-" + metric;
+    }
+
+    /**
+     * @return True if this interval violated the rule.
+     */
+    private boolean check(double value, long nowMs) {
+      intervals++;
+      if (Double.isNaN(worst) || value > worst) {
+        worst = value;
+      }
+      if (value <= target) {
+        consecutive = 0;
+        return false;
+      }
+      violations++;
+      consecutive++;
+      if (firstBreachMs < 0) {
+        firstBreachMs = nowMs;
+      }
+      return true;
+    }
+
+    long getViolations() {
+      return violations;
+    }
+
+    long getFirstBreachMs() {
+      return firstBreachMs;
+    }
+  }
+
+  /**
+   * @param value A latency such as "2ms", "500us", "1s" or "1500" (us).
+   * @return The latency in us.
+   */
+  static double parseLatency(String value) {
+    final String v = value.trim();
+    if (v.endsWith("us")) {
+      return Double.parseDouble(v.substring(0, v.length() - 2).trim());
+    } else if (v.endsWith("ms")) {
+      return Double.parseDouble(v.substring(0, v.length() - 2).trim()) * 1000;
+    } else if (v.endsWith("s")) {
+      return Double.parseDouble(v.substring(0, v.length() - 1).trim()) * 1000000;
+    }
+    return Double.parseDouble(v);
+  }
+
+  /**
+   * @param value A rate such as "0.1%" or "0.001".
+   * @return The rate as a fraction.
+   */
+  static double parseRate(String value) {
+    final String v = value.trim();
+    if (v.endsWith("%")) {
+      return Double.parseDouble(v.substring(0, v.length() - 1).trim()) / 100;
+    }
+    return Double.parseDouble(v);
+  }
+
+  /**
+   * Parse the SLO rules from the properties.
+   *
+   * @return The objectives or null if no rule is configured.
+   */
+  public static ServiceLevelObjectives create(Properties props) {
+    final List<Rule> rules = new ArrayList<>();
+    for (String key : props.stringPropertyNames()) {
+      if (!key.startsWith(PREFIX) || key.equals(ABORT_PROPERTY) || key.equals(ABORT_AFTER_PROPERTY)) {
+        continue;
+      }
+      final String rule = key.substring(PREFIX.length());
+      final int dot = rule.indexOf('.');
+      if (dot <= 0 || dot == rule.length() - 1) {
+        throw new IllegalArgumentException("Invalid SLO property " + key +
+            ", expected " + PREFIX + "<operation>.<metric>");
+      }
+      rules.add(new Rule(rule.substring(0, dot), rule.substring(dot + 1), props.getProperty(key)));
+    }
+    if (rules.isEmpty()) {
+      return null;
+    }
+    return new ServiceLevelObjectives(rules,
+        Boolean.parseBoolean(props.getProperty(ABORT_PROPERTY, ABORT_PROPERTY_DEFAULT)),
+        Integer.parseInt(props.getProperty(ABORT_AFTER_PROPERTY, ABORT_AFTER_PROPERTY_DEFAULT)));
+  }
+
+  private final List<Rule> rules;
+  private final boolean abortOnViolation;
+  private final int abortAfterIntervals;
+  private final long startMs;
+  // operation -> {total, failed} status counts at the end of the previous interval
+  private final Map<String, long[]> lastStatusCounts = new HashMap<>();
+  private boolean warnedNoPercentiles = false;
+  private String abortReason = null;
+
+  private ServiceLevelObjectives(List<Rule> rules, boolean abortOnViolation, int abortAfterIntervals) {
+    this.rules = rules;
+    this.abortOnViolation = abortOnViolation;
+    this.abortAfterIntervals = Math.max(abortAfterIntervals, 1);
+    this.startMs = System.currentTimeMillis();
+  }
+
+  List<Rule> getRules() {
+    return rules;
+  }
+
+  /**
+   * Check every rule against the interval just closed by
+   * {@link Measurements#getSummary()}. Called by the status thread.
+   *
+   * @param measurements The measurements of the run.
+   * @param nowMs The wall clock time the interval ended.
+   * @return True if the run should be stopped.
+   */
+  public synchronized boolean evaluate(Measurements measurements, long nowMs) {
+    final Map<String, long[]> intervalStatusCounts = new HashMap<>();
+    for (Rule rule : rules) {
+      final OneMeasurement m = measurements.findMeasurement(rule.operation);
+      if (m == null) {
+        continue;
+      }
+      final double value;
+      if (rule.metric.equals(ERROR_RATE)) {
+        long[] counts = intervalStatusCounts.get(rule.operation);
+        if (counts == null) {
+          counts = intervalStatusCounts(rule.operation, m);
+          intervalStatusCounts.put(rule.operation, counts);
+        }
+        value = counts[0] == 0 ? Double.NaN : (double) counts[1] / counts[0];
+      } else if (rule.metric.equals(AVERAGE)) {
+        value = m.getLastIntervalAverage();
+      } else {
+        value = m.getLastIntervalPercentile(rule.percentile);
+        if (Double.isNaN(value) && !Double.isNaN(m.getLastIntervalAverage()) && !warnedNoPercentiles) {
+          System.err.println(rule.getName() + " is not evaluated: percentile SLOs need " +
+              Measurements.MEASUREMENT_TYPE_PROPERTY + "=hdrhistogram");
+          warnedNoPercentiles = true;
+        }
+      }
+      if (Double.isNaN(value)) {
+        continue;
+      }
+      if (rule.check(value, nowMs)) {
+        System.err.println(rule.getName() + " <= " + rule.targetString + " violated: " + value);
+        if (abortOnViolation && rule.consecutive >= abortAfterIntervals && abortReason == null) {
+          abortReason = rule.getName();
+        }
+      }
+    }
+    return abortReason != null;
+  }
+
+  private long[] intervalStatusCounts(String operation, OneMeasurement m) {
+    final long failed = m.countStatus(false);
+    final long total = failed + m.countStatus(true);
+    long[] last = lastStatusCounts.get(operation);
+    if (last == null) {
+      last = new long[2];
+      lastStatusCounts.put(operation, last);
+    }
+    final long[] interval = {total - last[0], failed - last[1]};
+    last[0] = total;
+    last[1] = failed;
+    return interval;
+  }
+
+  /**
+   * @return The rule that stopped the run or null.
+   */
+  public synchronized String getAbortReason() {
+    return abortReason;
+  }
+
+  /**
+   * @return A human readable summary of every rule, one per line.
+   */
+  public synchronized String getSummary() {
+    final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS");
+    final StringBuilder sb = new StringBuilder();
+    for (Rule rule : rules) {
+      sb.append(rule.getName()).append(" <= ").append(rule.targetString).append(": ");
+      if (rule.firstBreachMs < 0) {
+        sb.append("met in all ").append(rule.intervals).append(" intervals");
+      } else {
+        sb.append("violated in ").append(rule.violations).append(" of ").append(rule.intervals)
+            .append(" intervals, first breached ").append((rule.firstBreachMs - startMs) / 1000)
+            .append(" sec into the run (").append(format.format(new Date(rule.firstBreachMs))).append(")");
+      }
+      sb.append('\n');
+    }
+    if (abortReason != null) {
+      sb.append("Run stopped early after violating ").append(abortReason).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Export the result of every rule.
+   *
+   * @param exporter Exporter representing the type of format to write to.
+   * @throws IOException Thrown if the export failed.
+   */
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    exporter.write("SLO", "Stopped", abortReason == null ? 0 : 1);
+    for (Rule rule : rules) {
+      exporter.write(rule.getName(), "Target", rule.target);
+      exporter.write(rule.getName(), "Intervals", rule.intervals);
+      exporter.write(rule.getName(), "ViolatedIntervals", rule.violations);
+      exporter.write(rule.getName(), "WorstValue", rule.worst);
+      exporter.write(rule.getName(), "FirstBreach(ms)", rule.firstBreachMs);
+      exporter.write(rule.getName(), "FirstBreachRunTime(ms)",
+          rule.firstBreachMs < 0 ? -1 : rule.firstBreachMs - startMs);
+    }
+  }
+}
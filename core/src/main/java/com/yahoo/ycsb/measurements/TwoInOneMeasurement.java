@@ -43,6 +43,14 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing1.reportStatus(status);
   }
 
+  /**
+   * Statuses are only reported to the first half, so it holds the counts.
+   */
+  @Override
+  long countStatus(boolean ok) {
+    return thing1.countStatus(ok);
+  }
+
   /**
    * It appears latency is reported in micros.
    * Using {@link org.HdrHistogram.Recorder} to support concurrent updates to histogram.
@@ -53,6 +61,12 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing2.measure(latencyInMicros);
   }
 
+  @Override
+  public void measureWithExpectedInterval(int latencyInMicros, int expectedIntervalInMicros) {
+    thing1.measureWithExpectedInterval(latencyInMicros, expectedIntervalInMicros);
+    thing2.measureWithExpectedInterval(latencyInMicros, expectedIntervalInMicros);
+  }
+
   /**
    * This is called from a main thread, on orderly termination.
    */
@@ -62,6 +76,26 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing2.exportMeasurements(exporter);
   }
 
+  /**
+   * Both halves measure the same operations, so only the first one reports
+   * its interval to avoid duplicate records.
+   */
+  @Override
+  public void exportLastInterval(MeasurementsExporter exporter) throws IOException {
+    thing1.exportLastInterval(exporter);
+  }
+
+  @Override
+  public double getLastIntervalAverage() {
+    return thing1.getLastIntervalAverage();
+  }
+
+  @Override
+  public double getLastIntervalPercentile(double percentile) {
+    final double value = thing1.getLastIntervalPercentile(percentile);
+    return Double.isNaN(value) ? thing2.getLastIntervalPercentile(percentile) : value;
+  }
+
   /**
    * This is called periodically from the StatusThread. There's a single StatusThread per Client process.
    * We optionally serialize the interval to log on this opportunity.
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Export measurements as CSV rows of "time,interval,metric,measurement,value"
+ * behind a header line. Fields containing separators or quotes are quoted,
+ * values that are not finite numbers are left empty.
+ */
+public class CSVMeasurementsExporter extends StreamingMeasurementsExporter {
+  public static final String HEADER = "time,interval,metric,measurement,value\n";
+
+  public CSVMeasurementsExporter(OutputStream os) throws IOException {
+    super(os);
+    writeRaw(HEADER);
+  }
+
+  @Override
+  protected void formatRecord(StringBuilder out, long timeMs, int index,
+                              String metric, String measurement, String value) {
+    out.append(timeMs).append(',').append(index).append(',');
+    appendField(out, metric);
+    out.append(',');
+    appendField(out, measurement);
+    out.append(',');
+    if (value != null) {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+
+  private static void appendField(StringBuilder out, String s) {
+    if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+      out.append(s);
+      return;
+    }
+    out.append('"').append(s.replace("\"", "\"\"")).append('"');
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.OutputStream;
+
+/**
+ * Export measurements as newline delimited JSON, one object per value:
+ * <pre>
+ * {"time":1500000000000,"interval":3,"metric":"READ","measurement":"Operations","value":1000}
+ * </pre>
+ * Every line is a complete document, so the output of an interrupted run is
+ * still readable up to the last flushed interval. Values that are not finite
+ * numbers are written as null.
+ */
+public class NDJSONMeasurementsExporter extends StreamingMeasurementsExporter {
+
+  public NDJSONMeasurementsExporter(OutputStream os) {
+    super(os);
+  }
+
+  @Override
+  protected void formatRecord(StringBuilder out, long timeMs, int index,
+                              String metric, String measurement, String value) {
+    out.append("{\"time\":").append(timeMs)
+        .append(",\"interval\":").append(index)
+        .append(",\"metric\":");
+    appendString(out, metric);
+    out.append(",\"measurement\":");
+    appendString(out, measurement);
+    out.append(",\"value\":").append(value == null ? "null" : value).append("}\n");
+  }
+
+  private static void appendString(StringBuilder out, String s) {
+    out.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      switch (c) {
+      case '"':
+        out.append("\\\"");
+        break;
+      case '\\':
+        out.append("\\\\");
+        break;
+      case '\n':
+        out.append("\\n");
+        break;
+      case '\r':
+        out.append("\\r");
+        break;
+      case '\t':
+        out.append("\\t");
+        break;
+      default:
+        if (c < 0x20) {
+          out.append(String.format("\\u%04x", (int) c));
+        } else {
+          out.append(c);
+        }
+      }
+    }
+    out.append('"');
+  }
+}
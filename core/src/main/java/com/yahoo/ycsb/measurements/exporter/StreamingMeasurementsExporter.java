@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Base class for exporters that write one self contained record per value,
+ * so results can be streamed while the run is in progress.
+ * <p>
+ * Records are encoded into a fixed size buffer that is drained to the
+ * underlying channel when it fills up and on every {@link #flush()}, which the
+ * status thread calls at the end of each interval. Memory use is bounded by
+ * the buffer no matter how much is exported, and a run that is killed still
+ * leaves every completed interval on disk.
+ * <p>
+ * Each record carries the wall clock time and index of the interval it
+ * belongs to, as set by {@link #startInterval(int, long)}. Values exported
+ * outside of an interval, such as the final totals, have interval -1.
+ */
+public abstract class StreamingMeasurementsExporter implements MeasurementsExporter {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final StringBuilder record = new StringBuilder();
+  private int interval = -1;
+  private long time = System.currentTimeMillis();
+
+  public StreamingMeasurementsExporter(OutputStream os) {
+    this.channel = Channels.newChannel(os);
+  }
+
+  /**
+   * Tag the records written from now on with the given interval.
+   *
+   * @param index The sequence number of the interval, starting at 0.
+   * @param timeMs The wall clock time the interval ended.
+   */
+  public void startInterval(int index, long timeMs) {
+    this.interval = index;
+    this.time = timeMs;
+  }
+
+  /**
+   * Tag the records written from now on as final results.
+   */
+  public void endIntervals() {
+    this.interval = -1;
+    this.time = System.currentTimeMillis();
+  }
+
+  /**
+   * Format one record into {@code out}, including the trailing line separator.
+   *
+   * @param out The buffer to append to.
+   * @param timeMs The time of the current interval.
+   * @param index The index of the current interval or -1.
+   * @param metric Metric name, for example "READ".
+   * @param measurement Measurement name, for example "Average latency".
+   * @param value The value, already formatted, or null if it is not a finite number.
+   */
+  protected abstract void formatRecord(StringBuilder out, long timeMs, int index,
+                                       String metric, String measurement, String value);
+
+  /**
+   * Write text that is not a record, such as a header line.
+   */
+  protected void writeRaw(CharSequence text) throws IOException {
+    final byte[] bytes = text.toString().getBytes(UTF8);
+    if (bytes.length > buffer.remaining()) {
+      drain();
+    }
+    if (bytes.length > buffer.capacity()) {
+      final ByteBuffer large = ByteBuffer.wrap(bytes);
+      while (large.hasRemaining()) {
+        channel.write(large);
+      }
+    } else {
+      buffer.put(bytes);
+    }
+  }
+
+  private void writeRecord(String metric, String measurement, String value) throws IOException {
+    record.setLength(0);
+    formatRecord(record, time, interval, metric, measurement, value);
+    writeRaw(record);
+  }
+
+  @Override
+  public void write(String metric, String measurement, int i) throws IOException {
+    writeRecord(metric, measurement, Integer.toString(i));
+  }
+
+  @Override
+  public void write(String metric, String measurement, long i) throws IOException {
+    writeRecord(metric, measurement, Long.toString(i));
+  }
+
+  @Override
+  public void write(String metric, String measurement, double d) throws IOException {
+    writeRecord(metric, measurement, Double.isNaN(d) || Double.isInfinite(d) ? null : Double.toString(d));
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Hand everything written so far to the underlying channel.
+   */
+  public void flush() throws IOException {
+    drain();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      drain();
+    } finally {
+      channel.close();
+    }
+  }
+}
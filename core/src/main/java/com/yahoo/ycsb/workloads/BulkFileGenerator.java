@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the data set a {@link CoreWorkload} load would insert to files, for
+ * stores that ingest fastest through their native bulk import tools.
+ * <p>
+ * Usage: {@code java com.yahoo.ycsb.workloads.BulkFileGenerator -P workload [-p name=value]... [-threads n]}
+ * <p>
+ * The records [insertstart, insertstart + insertcount) are split into shards
+ * of {@value #SHARD_SIZE_PROPERTY} records that the threads write in parallel,
+ * one file per shard, with the same keys and values (including the
+ * deterministic dataintegrity values) {@link CoreWorkload#doInsert} would
+ * insert. Transaction phases can then run against the imported data. Records
+ * are sorted by key within each file. Files are written under a temporary
+ * name and renamed once complete; with {@value CoreWorkload#LOAD_CHECKPOINT_FILE_PROPERTY}
+ * an interrupted run resumes with the missing shards.
+ * <p>
+ * Formats are "csv" (a header row, then the key and one column per field,
+ * e.g. for JDBC COPY) and "json" (one document per line with the key as
+ * "_id", e.g. for mongoimport).
+ */
+public final class BulkFileGenerator {
+  /** The directory the files are written to. */
+  public static final String DIR_PROPERTY = "bulkfile.dir";
+
+  /** The file format, "csv" or "json". */
+  public static final String FORMAT_PROPERTY = "bulkfile.format";
+  public static final String FORMAT_PROPERTY_DEFAULT = "csv";
+
+  /** The compression of the files, "none" or "gzip". */
+  public static final String COMPRESSION_PROPERTY = "bulkfile.compression";
+  public static final String COMPRESSION_PROPERTY_DEFAULT = "none";
+
+  /** The number of records per file. */
+  public static final String SHARD_SIZE_PROPERTY = "bulkfile.shardsize";
+  public static final String SHARD_SIZE_PROPERTY_DEFAULT = "1000000";
+
+  /** Whether the records of each file are sorted by key. */
+  public static final String SORTED_PROPERTY = "bulkfile.sorted";
+  public static final String SORTED_PROPERTY_DEFAULT = "true";
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private BulkFileGenerator() {
+    // not used
+  }
+
+  public static void main(String[] args) {
+    final Properties props = Client.parseArguments(args);
+    try {
+      final long start = System.currentTimeMillis();
+      final long[] written = generate(props);
+      final long ms = Math.max(1, System.currentTimeMillis() - start);
+      System.err.println("Wrote " + written[0] + " records, " + written[1] + " bytes in " + ms + " ms (" +
+          (written[1] / 1000 / ms) + " MB/s)");
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Write all shards that are not yet complete.
+   *
+   * @return The number of records and bytes written.
+   */
+  static long[] generate(final Properties props) throws WorkloadException, IOException, InterruptedException {
+    final String dirName = props.getProperty(DIR_PROPERTY);
+    if (dirName == null) {
+      throw new WorkloadException("Missing property " + DIR_PROPERTY);
+    }
+    final File dir = new File(dirName);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new WorkloadException("Failed to create " + dir);
+    }
+    final RecordFormat format = RecordFormat.forName(props.getProperty(FORMAT_PROPERTY, FORMAT_PROPERTY_DEFAULT));
+    final String compression = props.getProperty(COMPRESSION_PROPERTY, COMPRESSION_PROPERTY_DEFAULT);
+    if (!compression.equals("none") && !compression.equals("gzip")) {
+      throw new WorkloadException("Unknown " + COMPRESSION_PROPERTY + " \"" + compression + "\"");
+    }
+    final boolean sorted = Boolean.parseBoolean(props.getProperty(SORTED_PROPERTY, SORTED_PROPERTY_DEFAULT));
+    final long shardsize = Long.parseLong(props.getProperty(SHARD_SIZE_PROPERTY, SHARD_SIZE_PROPERTY_DEFAULT));
+    final int threadcount = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+
+    // the workload only builds keys and values, the shards are the chunks of this generator
+    final Properties workloadProps = (Properties) props.clone();
+    workloadProps.setProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(false));
+    workloadProps.remove(CoreWorkload.LOAD_CHUNK_SIZE_PROPERTY);
+    Measurements.setProperties(workloadProps);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(workloadProps);
+
+    final long recordcount = workload.recordcount;
+    final long insertstart = Long.parseLong(props.getProperty(CoreWorkload.INSERT_START_PROPERTY,
+        CoreWorkload.INSERT_START_PROPERTY_DEFAULT));
+    final long insertcount = Long.parseLong(props.getProperty(CoreWorkload.INSERT_COUNT_PROPERTY,
+        String.valueOf(recordcount - insertstart)));
+    final String checkpoint = props.getProperty(CoreWorkload.LOAD_CHECKPOINT_FILE_PROPERTY);
+    final LoadChunks shards = new LoadChunks(insertstart, insertcount, shardsize,
+        checkpoint == null ? null : new File(checkpoint));
+    final String suffix = "." + format.extension() + (compression.equals("gzip") ? ".gz" : "");
+
+    final AtomicLong records = new AtomicLong();
+    final AtomicLong bytes = new AtomicLong();
+    final List<Exception> failures = new ArrayList<>();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadcount; i++) {
+      final Thread thread = new Thread("BulkFileGenerator-" + i) {
+        @Override
+        public void run() {
+          try {
+            for (LoadChunks.Chunk shard = shards.claimChunk(workload, sorted); shard != null;
+                 shard = shards.claimChunk(workload, sorted)) {
+              final File file = new File(dir, String.format("part-%05d", shard.getIndex()) + suffix);
+              records.addAndGet(writeShard(workload, shard, format, file, compression.equals("gzip")));
+              bytes.addAndGet(file.length());
+              shards.complete(shard.getIndex());
+            }
+          } catch (IOException | RuntimeException e) {
+            // record any failure so a shard a thread gave up on fails the run
+            synchronized (failures) {
+              failures.add(e);
+            }
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    shards.close();
+    if (!failures.isEmpty()) {
+      throw new IOException("Failed to write bulk files", failures.get(0));
+    }
+    return new long[]{records.get(), bytes.get()};
+  }
+
+  /**
+   * Write one shard under a temporary name and rename it once it is complete.
+   *
+   * @return The number of records written.
+   */
+  private static long writeShard(CoreWorkload workload, LoadChunks.Chunk shard, RecordFormat format,
+                                 File file, boolean gzip) throws IOException {
+    final File tmp = new File(file.getPath() + ".tmp");
+    final List<String> fields = workload.getFieldNames();
+    final StringBuilder record = new StringBuilder();
+    long count = 0;
+    OutputStream out = new FileOutputStream(tmp);
+    if (gzip) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), BUFFER_SIZE)) {
+      format.header(record, fields);
+      writer.append(record);
+      while (shard.hasNext()) {
+        final String key = shard.nextKey(workload);
+        record.setLength(0);
+        format.record(record, key, fields, workload.buildValues(key));
+        writer.append(record);
+        count++;
+      }
+    }
+    if (!tmp.renameTo(file)) {
+      throw new IOException("Failed to rename " + tmp + " to " + file);
+    }
+    return count;
+  }
+
+  /**
+   * The layout of the records in a file.
+   */
+  enum RecordFormat {
+    CSV {
+      @Override
+      String extension() {
+        return "csv";
+      }
+
+      @Override
+      void header(StringBuilder out, List<String> fields) {
+        out.append("YCSB_KEY");
+        for (String field : fields) {
+          out.append(',');
+          appendCsv(out, field);
+        }
+        out.append('\n');
+      }
+
+      @Override
+      void record(StringBuilder out, String key, List<String> fields, Map<String, ByteIterator> values) {
+        appendCsv(out, key);
+        for (String field : fields) {
+          out.append(',');
+          final ByteIterator value = values.get(field);
+          if (value != null) {
+            appendCsv(out, value.toString());
+          }
+        }
+        out.append('\n');
+      }
+    },
+    JSON {
+      @Override
+      String extension() {
+        return "json";
+      }
+
+      @Override
+      void header(StringBuilder out, List<String> fields) {
+      }
+
+      @Override
+      void record(StringBuilder out, String key, List<String> fields, Map<String, ByteIterator> values) {
+        out.append("{\"_id\":");
+        appendJson(out, key);
+        for (String field : fields) {
+          final ByteIterator value = values.get(field);
+          if (value != null) {
+            out.append(',');
+            appendJson(out, field);
+            out.append(':');
+            appendJson(out, value.toString());
+          }
+        }
+        out.append("}\n");
+      }
+    };
+
+    abstract String extension();
+
+    abstract void header(StringBuilder out, List<String> fields);
+
+    abstract void record(StringBuilder out, String key, List<String> fields, Map<String, ByteIterator> values);
+
+    static RecordFormat forName(String name) throws WorkloadException {
+      for (RecordFormat format : values()) {
+        if (format.extension().equals(name)) {
+          return format;
+        }
+      }
+      throw new WorkloadException("Unknown " + FORMAT_PROPERTY + " \"" + name + "\"");
+    }
+
+    private static void appendCsv(StringBuilder out, String s) {
+      boolean quote = false;
+      for (int i = 0; i < s.length() && !quote; i++) {
+        final char c = s.charAt(i);
+        quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+      }
+      if (!quote) {
+        out.append(s);
+        return;
+      }
+      out.append('"');
+      for (int i = 0; i < s.length(); i++) {
+        final char c = s.charAt(i);
+        if (c == '"') {
+          out.append('"');
+        }
+        out.append(c);
+      }
+      out.append('"');
+    }
+
+    private static void appendJson(StringBuilder out, String s) {
+      out.append('"');
+      for (int i = 0; i < s.length(); i++) {
+        final char c = s.charAt(i);
+        if (c == '"' || c == '\\') {
+          out.append('\\').append(c);
+        } else if (c < 0x20) {
+          out.append(String.format("\\u%04x", (int) c));
+        } else {
+          out.append(c);
+        }
+      }
+      out.append('"');
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.NumberGenerator;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A workload that measures how stale reads are. Writer threads stamp a set of hot records with
+ * monotonically increasing versions and the wall-clock time of the write, and reader threads compare
+ * the versions they read to the newest version acknowledged to the writers when the read started.
+ * <p>
+ * Every read records STALENESS-VERSIONS, the number of acknowledged versions it was behind, as a count.
+ * Stale reads are also measured as STALENESS-TIME, how long in microseconds the first version newer than
+ * the one returned had been acknowledged, and as STALENESS-LAG, how many microseconds of writes the
+ * returned record lags behind: the wall-clock time of the newest acknowledged version less the one stamped
+ * in the record. Both times are only known for the last few acknowledged versions of a record. They are
+ * exported as histograms next to the latencies. Each reader remembers the newest version it saw of every
+ * record and reports a read of an older one as a STALE_READ under MONOTONIC-READS. With
+ * consistencysessionreads, writers read every record back after writing it and report reads older than
+ * their write under READ-YOUR-WRITES.
+ * <p>
+ * Versions are counted by this client, so only one client process should write the records. Every record
+ * is written by a single writer thread, so its stored versions only grow and a reader that sees them go
+ * back has observed a real violation. The operation proportions of {@link CoreWorkload} are not used by
+ * the run phase.
+ * <p>
+ * Properties to control the client, in addition to those of {@link CoreWorkload}:
+ * <UL>
+ * <LI><b>consistencykeycount</b>: how many records, from insertstart, are written and read
+ * (default: 1000)
+ * <LI><b>consistencywriters</b>: how many of the threads write, the others read; at most
+ * consistencykeycount (default: 1)
+ * <LI><b>consistencysessionreads</b>: whether writers read their writes back (default: true)
+ * <LI><b>consistencyversionfield</b>: the field holding the version of a record (default: version)
+ * <LI><b>consistencytimefield</b>: the field holding the time of the write of a record, in
+ * milliseconds since the epoch (default: stamp)
+ * </ul>
+ */
+public class ConsistencyWorkload extends CoreWorkload {
+  public static final String KEY_COUNT_PROPERTY = "consistencykeycount";
+  public static final String KEY_COUNT_PROPERTY_DEFAULT = "1000";
+
+  public static final String WRITERS_PROPERTY = "consistencywriters";
+  public static final String WRITERS_PROPERTY_DEFAULT = "1";
+
+  public static final String SESSION_READS_PROPERTY = "consistencysessionreads";
+  public static final String SESSION_READS_PROPERTY_DEFAULT = "true";
+
+  public static final String VERSION_FIELD_PROPERTY = "consistencyversionfield";
+  public static final String VERSION_FIELD_PROPERTY_DEFAULT = "version";
+
+  public static final String TIME_FIELD_PROPERTY = "consistencytimefield";
+  public static final String TIME_FIELD_PROPERTY_DEFAULT = "stamp";
+
+  /**
+   * How many acknowledgement times are kept per record.
+   */
+  private static final int ACK_HISTORY = 8;
+
+  private long firstkey;
+  private int keycount;
+  private NumberGenerator keys;
+  private int writers;
+  private boolean sessionreads;
+  private String versionfield;
+  private String timefield;
+  private Set<String> stampfields;
+  /**
+   * The newest version started and the newest version acknowledged of every record, and of the last
+   * {@link #ACK_HISTORY} acknowledged versions of every record, the version, the time in nanoseconds it
+   * was acknowledged and the wall-clock time stamped in it. A slot's version is -1 while it is updated.
+   */
+  private AtomicLongArray started;
+  private AtomicLongArray acked;
+  private AtomicLongArray ackversions;
+  private AtomicLongArray acktimes;
+  private AtomicLongArray ackstamps;
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  /**
+   * The role of a thread and the newest version it saw of every record.
+   */
+  private static final class ThreadState {
+    /** The index of the thread among the writers, -1 for readers. */
+    private final int writer;
+    private final long[] seen;
+    private final Object loadstate;
+
+    ThreadState(int writer, int keycount, Object loadstate) {
+      this.writer = writer;
+      this.seen = new long[keycount];
+      this.loadstate = loadstate;
+    }
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    super.init(p);
+
+    firstkey = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    keycount = Integer.parseInt(p.getProperty(KEY_COUNT_PROPERTY, KEY_COUNT_PROPERTY_DEFAULT));
+    if (keycount < 1 || firstkey + keycount > recordcount) {
+      throw new WorkloadException("Invalid " + KEY_COUNT_PROPERTY + " " + keycount);
+    }
+    keys = new UniformLongGenerator(0, keycount - 1);
+    writers = Integer.parseInt(p.getProperty(WRITERS_PROPERTY, WRITERS_PROPERTY_DEFAULT));
+    if (writers < 0 || writers > keycount) {
+      throw new WorkloadException("Invalid " + WRITERS_PROPERTY + " " + writers);
+    }
+    sessionreads = Boolean.parseBoolean(p.getProperty(SESSION_READS_PROPERTY, SESSION_READS_PROPERTY_DEFAULT));
+    versionfield = p.getProperty(VERSION_FIELD_PROPERTY, VERSION_FIELD_PROPERTY_DEFAULT);
+    timefield = p.getProperty(TIME_FIELD_PROPERTY, TIME_FIELD_PROPERTY_DEFAULT);
+    stampfields = new HashSet<>();
+    stampfields.add(versionfield);
+    stampfields.add(timefield);
+
+    started = new AtomicLongArray(keycount);
+    acked = new AtomicLongArray(keycount);
+    ackversions = new AtomicLongArray(keycount * ACK_HISTORY);
+    acktimes = new AtomicLongArray(keycount * ACK_HISTORY);
+    ackstamps = new AtomicLongArray(keycount * ACK_HISTORY);
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    return new ThreadState(mythreadid < writers ? mythreadid : -1, keycount,
+        super.initThread(p, mythreadid, threadcount));
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    return super.doInsert(db, ((ThreadState) threadstate).loadstate);
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    ThreadState state = (ThreadState) threadstate;
+    int index = keys.nextValue().intValue();
+    if (state.writer >= 0) {
+      write(db, state, ownedKey(index, state.writer));
+    } else {
+      read(db, state, index);
+    }
+    return true;
+  }
+
+  /**
+   * @return The record nearest to the given one that is written by the given writer. Records are dealt
+   *         round-robin to the writers, so concurrent writes of one record cannot land out of order.
+   */
+  private int ownedKey(int index, int writer) {
+    int owned = index - index % writers + writer;
+    return owned < keycount ? owned : owned - writers;
+  }
+
+  /**
+   * Write the next version of a record and acknowledge it once the store does.
+   */
+  void write(DB db, ThreadState state, int index) {
+    String keyname = buildKeyName(firstkey + index);
+    long version = started.incrementAndGet(index);
+    long stamp = System.currentTimeMillis();
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    values.put(versionfield, new StringByteIterator(Long.toString(version)));
+    values.put(timefield, new StringByteIterator(Long.toString(stamp)));
+    if (!db.update(table, keyname, values).isOk()) {
+      return;
+    }
+
+    int slot = index * ACK_HISTORY + (int) (version % ACK_HISTORY);
+    ackversions.set(slot, -1);
+    acktimes.set(slot, System.nanoTime());
+    ackstamps.set(slot, stamp);
+    ackversions.set(slot, version);
+    long newest;
+    do {
+      newest = acked.get(index);
+    } while (version > newest && !acked.compareAndSet(index, newest, version));
+
+    if (sessionreads) {
+      long[] seen = readStamp(db, keyname);
+      if (seen != null) {
+        measurements.reportStatus("READ-YOUR-WRITES", seen[0] < version ? STALE_READ : Status.OK);
+      }
+    }
+  }
+
+  /**
+   * Read a record and measure how far behind the acknowledged writes it is.
+   */
+  void read(DB db, ThreadState state, int index) {
+    long newest = acked.get(index);
+    long start = System.nanoTime();
+    long[] stamp = readStamp(db, buildKeyName(firstkey + index));
+    if (stamp == null) {
+      return;
+    }
+    long version = stamp[0];
+
+    long behind = Math.max(0, newest - version);
+    measurements.measureValue("STALENESS-VERSIONS", behind);
+    if (behind > 0) {
+      measureStaleTime(index, version, newest, start, stamp[1]);
+    }
+
+    measurements.reportStatus("MONOTONIC-READS", version < state.seen[index] ? STALE_READ : Status.OK);
+    state.seen[index] = Math.max(state.seen[index], version);
+  }
+
+  /**
+   * Measure how long newer versions than the one read had been acknowledged, from the versions
+   * acknowledged before the read started whose times are still known.
+   *
+   * @param stamp The wall-clock time stamped in the version read, -1 if it has none
+   */
+  private void measureStaleTime(int index, long version, long newest, long start, long stamp) {
+    long firstacktime = 0;
+    long lateststamp = -1;
+    long latest = version;
+    boolean known = false;
+    for (int i = 0; i < ACK_HISTORY; i++) {
+      int slot = index * ACK_HISTORY + i;
+      long ackversion = ackversions.get(slot);
+      long acktime = acktimes.get(slot);
+      long ackstamp = ackstamps.get(slot);
+      if (ackversion <= version || ackversion > newest || ackversions.get(slot) != ackversion) {
+        // not newer, acknowledged after the read started, or being updated
+        continue;
+      }
+      if (!known || acktime - firstacktime < 0) {
+        firstacktime = acktime;
+      }
+      if (ackversion > latest) {
+        latest = ackversion;
+        lateststamp = ackstamp;
+      }
+      known = true;
+    }
+    if (!known) {
+      return;
+    }
+    long stale = Math.max(0, (start - firstacktime) / 1000);
+    measurements.measure("STALENESS-TIME", (int) Math.min(Integer.MAX_VALUE, stale));
+    if (stamp >= 0) {
+      long lag = Math.max(0, lateststamp - stamp) * 1000;
+      measurements.measure("STALENESS-LAG", (int) Math.min(Integer.MAX_VALUE, lag));
+    }
+  }
+
+  /**
+   * @return The version of a record, 0 if it was never written, and the wall-clock time stamped in it,
+   *         -1 if it has none, or null if the read failed.
+   */
+  private long[] readStamp(DB db, String keyname) {
+    HashMap<String, ByteIterator> cells = new HashMap<>();
+    if (!db.read(table, keyname, stampfields, cells).isOk()) {
+      return null;
+    }
+    ByteIterator version = cells.get(versionfield);
+    if (version == null) {
+      return new long[]{0, -1};
+    }
+    ByteIterator time = cells.get(timefield);
+    try {
+      return new long[]{Long.parseLong(version.toString()), time == null ? -1 : Long.parseLong(time.toString())};
+    } catch (NumberFormatException e) {
+      measurements.reportStatus("STALENESS-STAMP", Status.UNEXPECTED_STATE);
+      return null;
+    }
+  }
+}
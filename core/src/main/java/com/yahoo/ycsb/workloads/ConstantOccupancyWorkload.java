@@ -17,10 +17,15 @@
 package com.yahoo.ycsb.workloads;
 
 import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.generator.NumberGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
 
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A disk-fragmenting workload.
@@ -32,8 +37,20 @@ import java.util.Properties;
  * <LI><b>occupancy</b>: what fraction of the available storage should be used? (default 0.9)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform,
  * zipfian or latest (default: histogram)
+ * <LI><b>occupancyband</b>: how far occupancy may drift from <b>occupancy</b> in either direction during the run,
+ * or 0 to only size the load by it (default 0)
+ * <LI><b>occupancyprobeinterval</b>: how often to ask the store for its size, in milliseconds (default 1000)
  * </ul>
  * <p>
+ * With an occupancy band, every insert of the transaction mix becomes either an insert or a delete of the oldest
+ * record, whichever moves occupancy back towards the middle of the band. Occupancy is estimated from the records
+ * the workload inserted and deleted, and corrected by {@link DB#storeSize(String)} for stores that report it, so
+ * the space compaction and garbage collection have not reclaimed yet counts as occupied. It is reported as the
+ * gauge OCCUPANCY, in tenths of a percent, at every probe; its last value is printed in every status line, so the
+ * latencies can be lined up with it to see write amplification grow as the store fills and ages. Reads, updates and
+ * scans only choose records that have not been deleted.
+ * </p>
+ * <p>
  * <p>
  * <p> See also:
  * Russell Sears, Catharine van Ingen.
@@ -49,6 +66,26 @@ public class ConstantOccupancyWorkload extends CoreWorkload {
 
   private long objectCount;
 
+  /** The mean size of a record in bytes. */
+  private double recordsize;
+
+  /** The occupancy to stay within, both 0 when occupancy is not controlled. */
+  private double lowOccupancy;
+  private double highOccupancy;
+
+  private long probeIntervalNanos;
+
+  /** The oldest record not deleted yet. */
+  private final AtomicLong oldestRecord = new AtomicLong();
+
+  /** When the next probe is due, in {@link System#nanoTime()}. */
+  private final AtomicLong nextProbe = new AtomicLong();
+
+  /** The store size and live record count at the last probe that returned a size, or null. */
+  private volatile long[] lastProbe;
+
+  private Measurements measurements = Measurements.getMeasurements();
+
   public static final String STORAGE_AGE_PROPERTY = "storageages";
   public static final long STORAGE_AGE_PROPERTY_DEFAULT = 10;
 
@@ -58,6 +95,12 @@ public class ConstantOccupancyWorkload extends CoreWorkload {
   public static final String OCCUPANCY_PROPERTY = "occupancy";
   public static final double OCCUPANCY_PROPERTY_DEFAULT = 0.9;
 
+  public static final String OCCUPANCY_BAND_PROPERTY = "occupancyband";
+  public static final double OCCUPANCY_BAND_PROPERTY_DEFAULT = 0;
+
+  public static final String OCCUPANCY_PROBE_INTERVAL_PROPERTY = "occupancyprobeinterval";
+  public static final long OCCUPANCY_PROBE_INTERVAL_PROPERTY_DEFAULT = 1000;
+
   @Override
   public void init(Properties p) throws WorkloadException {
     disksize = Long.parseLong(p.getProperty(DISK_SIZE_PROPERTY, String.valueOf(DISK_SIZE_PROPERTY_DEFAULT)));
@@ -82,7 +125,108 @@ public class ConstantOccupancyWorkload extends CoreWorkload {
     p.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(storageages * objectCount));
     p.setProperty(Client.INSERT_COUNT_PROPERTY, String.valueOf(objectCount));
 
+    recordsize = fieldsize * fieldcount;
+    final double band = Double.parseDouble(p.getProperty(OCCUPANCY_BAND_PROPERTY,
+        String.valueOf(OCCUPANCY_BAND_PROPERTY_DEFAULT)));
+    if (band < 0 || band >= occupancy || occupancy + band > 1) {
+      throw new WorkloadException("The occupancy band must be at least 0 and keep occupancy between 0 and 1.");
+    }
+    if (band > 0) {
+      lowOccupancy = occupancy - band;
+      highOccupancy = occupancy + band;
+    }
+    probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(
+        OCCUPANCY_PROBE_INTERVAL_PROPERTY, String.valueOf(OCCUPANCY_PROBE_INTERVAL_PROPERTY_DEFAULT))));
+    oldestRecord.set(Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT)));
+    nextProbe.set(System.nanoTime());
+
     super.init(p);
   }
 
+  /**
+   * Insert a record or, when the store is above the middle of the occupancy band, delete the oldest one.
+   */
+  @Override
+  public void doTransactionInsert(DB db) {
+    if (highOccupancy == 0) {
+      super.doTransactionInsert(db);
+      return;
+    }
+    final double current = occupancy(db);
+    final boolean delete;
+    if (current >= highOccupancy) {
+      delete = true;
+    } else if (current <= lowOccupancy) {
+      delete = false;
+    } else {
+      delete = Utils.random().nextDouble() >= (highOccupancy - current) / (highOccupancy - lowOccupancy);
+    }
+    if (!delete || !doTransactionDelete(db)) {
+      super.doTransactionInsert(db);
+    }
+  }
+
+  /**
+   * Delete the oldest record that has not been deleted yet.
+   *
+   * @return false if there were no records left to delete.
+   */
+  boolean doTransactionDelete(DB db) {
+    final long newest = transactioninsertkeysequence.lastValue();
+    long keynum;
+    do {
+      keynum = oldestRecord.get();
+      if (keynum > newest) {
+        return false;
+      }
+    } while (!oldestRecord.compareAndSet(keynum, keynum + 1));
+    db.delete(table, buildKeyName(keynum));
+    return true;
+  }
+
+  @Override
+  long nextKeynum() {
+    final long keynum = super.nextKeynum();
+    final long oldest = oldestRecord.get();
+    final long live = liveRecords();
+    if (keynum >= oldest || live <= 0) {
+      return keynum;
+    }
+    // the record was deleted, wrap around onto the live ones
+    return oldest + keynum % live;
+  }
+
+  private long liveRecords() {
+    return transactioninsertkeysequence.lastValue() + 1 - oldestRecord.get();
+  }
+
+  /**
+   * @return The fraction of the disk in use, probing the store if a probe is due.
+   */
+  double occupancy(DB db) {
+    final long now = System.nanoTime();
+    final long due = nextProbe.get();
+    final boolean probe = now - due >= 0 && nextProbe.compareAndSet(due, now + probeIntervalNanos);
+    if (probe) {
+      final long records = liveRecords();
+      final long size = db.storeSize(table);
+      if (size >= 0) {
+        lastProbe = new long[]{size, records};
+      }
+    }
+    final long[] last = lastProbe;
+    final double bytes;
+    if (last == null) {
+      bytes = liveRecords() * recordsize;
+    } else {
+      // the records written and deleted since the probe are not in the size yet
+      bytes = last[0] + (liveRecords() - last[1]) * recordsize;
+    }
+    final double current = bytes / disksize;
+    if (probe) {
+      measurements.measureValue("OCCUPANCY", (long) (current * 1000));
+    }
+    return current;
+  }
+
 }
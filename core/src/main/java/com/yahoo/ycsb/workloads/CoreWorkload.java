@@ -22,6 +22,7 @@ import com.yahoo.ycsb.generator.*;
 import com.yahoo.ycsb.generator.UniformLongGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -37,6 +38,12 @@ import java.util.*;
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
  * <LI><b>writeallfields</b>: should updates and read/modify/writes update all fields (true) or just
  * one (false) (default: false)
+ * <LI><b>fieldselection</b>: how reads and updates that do not cover all fields choose theirs - single,
+ * kofn, zipfian or groups (default: single)
+ * <LI><b>fieldselectioncount</b>: for kofn and zipfian, the number of fields (default: 1)
+ * <LI><b>fieldgroups</b>: for groups, the number of column groups the fields are split into (default: 10)
+ * <LI><b>fieldselectionpoolsize</b>: for kofn and zipfian, the number of precomputed field sets
+ * (default: 1000)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 0.95)
  * <LI><b>updateproportion</b>: what proportion of operations should be updates (default: 0.05)
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
@@ -48,6 +55,8 @@ import java.util.*;
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the
  * number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
+ * <LI><b>scanstreaming</b>: for scans, consume the records one at a time through streamScan instead
+ * of collecting them (default: false)
  * <LI><b>insertstart</b>: for parallel loads and runs, defines the starting record for this
  * YCSB instance (default: 0)
  * <LI><b>insertcount</b>: for parallel loads and runs, defines the number of records for this
@@ -59,6 +68,26 @@ import java.util.*;
  * digits in the record number.
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed
  * order ("hashed") (default: hashed)
+ * <LI><b>batchsize</b>: the maximum number of records read or inserted by one read or insert
+ * transaction, through the batchRead and batchWrite DB operations; 1 disables batching (default: 1)
+ * <LI><b>batchsizedistribution</b>: what distribution should be used to choose the number of records
+ * of each batch, between 1 and batchsize - constant, uniform or zipfian (default: constant)
+ * <LI><b>loadchunksize</b>: for loads, split the records into chunks of this many records that the
+ * client threads load in parallel, one chunk at a time; 0 disables chunking (default: 0)
+ * <LI><b>loadchunksorted</b>: for chunked loads, insert the records of each chunk in key order
+ * (default: false)
+ * <LI><b>loadcheckpointfile</b>: for chunked loads, a file recording the completed chunks, so a
+ * restarted load skips them (default: none)
+ * <LI><b>casproportion</b>: what proportion of operations should read a record with its version
+ * and write it back with compareAndSet, retrying on conflicts (default: 0)
+ * <LI><b>incrementproportion</b>: what proportion of operations should atomically increment a
+ * counter field (default: 0)
+ * <LI><b>conditionalinsertproportion</b>: what proportion of operations should insert an existing
+ * or new record with insertIfAbsent (default: 0)
+ * <LI><b>contendedkeycount</b>: the number of hot records the CAS, increment and conditional insert
+ * operations are spread over uniformly; 0 uses requestdistribution (default: 0)
+ * <LI><b>casretrylimit</b>: how many times a CAS operation retries after a conflict (default: 10)
+ * <LI><b>incrementfield</b>: the name of the counter field (default: counter)
  * </ul>
  */
 public class CoreWorkload extends Workload {
@@ -86,6 +115,13 @@ public class CoreWorkload extends Workload {
   
   private List<String> fieldnames;
 
+  /**
+   * All field names, shared by the reads that need every field.
+   */
+  protected Set<String> allfields;
+
+  private FieldSelector fieldselector;
+
   /**
    * The name of the property for the field length distribution. Options are "uniform", "zipfian"
    * (favouring short records), "constant", and "histogram".
@@ -154,6 +190,48 @@ public class CoreWorkload extends Workload {
 
   protected boolean writeallfields;
 
+  /**
+   * The name of the property for how partial reads and updates choose their fields. Options are "single",
+   * "kofn", "zipfian" and "groups".
+   */
+  public static final String FIELD_SELECTION_PROPERTY = "fieldselection";
+
+  /**
+   * The default field selection, one field chosen uniformly.
+   */
+  public static final String FIELD_SELECTION_PROPERTY_DEFAULT = "single";
+
+  /**
+   * The name of the property for the number of fields of the kofn and zipfian field selections.
+   */
+  public static final String FIELD_SELECTION_COUNT_PROPERTY = "fieldselectioncount";
+
+  /**
+   * The default number of selected fields.
+   */
+  public static final String FIELD_SELECTION_COUNT_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The name of the property for the number of column groups of the groups field selection.
+   */
+  public static final String FIELD_GROUPS_PROPERTY = "fieldgroups";
+
+  /**
+   * The default number of column groups.
+   */
+  public static final String FIELD_GROUPS_PROPERTY_DEFAULT = "10";
+
+  /**
+   * The name of the property for the number of precomputed field sets of the kofn and zipfian field
+   * selections.
+   */
+  public static final String FIELD_SELECTION_POOL_SIZE_PROPERTY = "fieldselectionpoolsize";
+
+  /**
+   * The default number of precomputed field sets.
+   */
+  public static final String FIELD_SELECTION_POOL_SIZE_PROPERTY_DEFAULT = "1000";
+
   /**
    * The name of the property for deciding whether to check all returned
    * data against the formation template to ensure data integrity.
@@ -169,7 +247,35 @@ public class CoreWorkload extends Workload {
    * Set to true if want to check correctness of reads. Must also
    * be set to true during loading phase to function.
    */
-  private boolean dataintegrity;
+  protected boolean dataintegrity;
+
+  /**
+   * The name of the property for the number of records whose versions are tracked for dataintegrity
+   * checks, from key number 0. Records beyond are only checked to hold some version of their values.
+   */
+  public static final String DATA_INTEGRITY_VERSION_KEYS_PROPERTY = "dataintegrityversionkeys";
+
+  /**
+   * A dataintegrity read returned a version older than the last acknowledged write of the record, and
+   * reading the record again returned a recent enough version.
+   */
+  public static final Status STALE_READ = new Status("STALE_READ",
+      "The read returned a version older than the last acknowledged write.");
+
+  /**
+   * A dataintegrity read returned a version older than the last acknowledged write of the record, and
+   * so did reading the record again.
+   */
+  public static final Status LOST_WRITE = new Status("LOST_WRITE",
+      "An acknowledged write is missing from the record.");
+
+  /**
+   * A dataintegrity read returned fields of different versions although every write covers all fields.
+   */
+  public static final Status TORN_RECORD = new Status("TORN_RECORD",
+      "The read returned fields of different writes.");
+
+  private VersionTracker versions;
 
   /**
    * The name of the property for the proportion of transactions that are reads.
@@ -221,6 +327,79 @@ public class CoreWorkload extends Workload {
    */
   public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT = "0.0";
 
+  /**
+   * The name of the property for the proportion of transactions that read a record with its version and
+   * write it back with compareAndSet.
+   */
+  public static final String CAS_PROPORTION_PROPERTY = "casproportion";
+
+  /**
+   * The default proportion of transactions that are compare-and-set.
+   */
+  public static final String CAS_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the proportion of transactions that increment a counter field.
+   */
+  public static final String INCREMENT_PROPORTION_PROPERTY = "incrementproportion";
+
+  /**
+   * The default proportion of transactions that are increments.
+   */
+  public static final String INCREMENT_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the proportion of transactions that are conditional inserts.
+   */
+  public static final String CONDITIONAL_INSERT_PROPORTION_PROPERTY = "conditionalinsertproportion";
+
+  /**
+   * The default proportion of transactions that are conditional inserts.
+   */
+  public static final String CONDITIONAL_INSERT_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the share of conditional inserts that insert a new record, the
+   * others contend on existing records.
+   */
+  public static final String CONDITIONAL_INSERT_NEW_PROPORTION_PROPERTY = "conditionalinsertnewproportion";
+
+  /**
+   * The default share of conditional inserts that insert a new record.
+   */
+  public static final String CONDITIONAL_INSERT_NEW_PROPORTION_PROPERTY_DEFAULT = "0.5";
+
+  /**
+   * The name of the property for the number of hot records the CAS, increment and conditional insert
+   * transactions contend on. 0 chooses the records with the request distribution.
+   */
+  public static final String CONTENDED_KEY_COUNT_PROPERTY = "contendedkeycount";
+
+  /**
+   * The default number of contended records.
+   */
+  public static final String CONTENDED_KEY_COUNT_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The name of the property for how many times a CAS transaction retries after a conflict.
+   */
+  public static final String CAS_RETRY_LIMIT_PROPERTY = "casretrylimit";
+
+  /**
+   * The default CAS retry limit.
+   */
+  public static final String CAS_RETRY_LIMIT_PROPERTY_DEFAULT = "10";
+
+  /**
+   * The name of the property for the counter field of increment transactions.
+   */
+  public static final String INCREMENT_FIELD_PROPERTY = "incrementfield";
+
+  /**
+   * The default counter field.
+   */
+  public static final String INCREMENT_FIELD_PROPERTY_DEFAULT = "counter";
+
   /**
    * The name of the property for the the distribution of requests across the keyspace. Options are
    * "uniform", "zipfian" and "latest"
@@ -265,6 +444,17 @@ public class CoreWorkload extends Workload {
    */
   public static final String SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT = "uniform";
 
+  /**
+   * The name of the property for deciding whether scans consume their records one at a time through
+   * {@link DB#streamScan} (true) or collect them (false).
+   */
+  public static final String SCAN_STREAMING_PROPERTY = "scanstreaming";
+
+  /**
+   * The default value for the scanstreaming property.
+   */
+  public static final String SCAN_STREAMING_PROPERTY_DEFAULT = "false";
+
   /**
    * The name of the property for the order to insert records. Options are "ordered" or "hashed"
    */
@@ -275,6 +465,52 @@ public class CoreWorkload extends Workload {
    */
   public static final String INSERT_ORDER_PROPERTY_DEFAULT = "hashed";
 
+  /**
+   * The name of the property for the maximum number of records in one batched read or insert.
+   */
+  public static final String BATCH_SIZE_PROPERTY = "batchsize";
+
+  /**
+   * Default batch size, which disables batching.
+   */
+  public static final String BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The name of the property for the batch size distribution. Options are "constant", "uniform" and
+   * "zipfian" (favoring small batches).
+   */
+  public static final String BATCH_SIZE_DISTRIBUTION_PROPERTY = "batchsizedistribution";
+
+  /**
+   * Default batch size distribution.
+   */
+  public static final String BATCH_SIZE_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
+
+  /**
+   * The name of the property for the number of records per chunk of a chunked load.
+   */
+  public static final String LOAD_CHUNK_SIZE_PROPERTY = "loadchunksize";
+
+  /**
+   * Default load chunk size, which disables chunked loads.
+   */
+  public static final String LOAD_CHUNK_SIZE_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The name of the property for inserting the records of each load chunk in key order.
+   */
+  public static final String LOAD_CHUNK_SORTED_PROPERTY = "loadchunksorted";
+
+  /**
+   * Default for inserting load chunks in key order.
+   */
+  public static final String LOAD_CHUNK_SORTED_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The name of the property for the checkpoint file of a chunked load.
+   */
+  public static final String LOAD_CHECKPOINT_FILE_PROPERTY = "loadcheckpointfile";
+
   /**
    * Percentage data items that constitute the hot set.
    */
@@ -307,12 +543,28 @@ public class CoreWorkload extends Workload {
   public static final String INSERTION_RETRY_INTERVAL = "core_workload_insertion_retry_interval";
   public static final String INSERTION_RETRY_INTERVAL_DEFAULT = "3";
 
+  /** Consumes streamed scan records without keeping them. */
+  private static final ScanCallback DISCARD_ROWS = new ScanCallback() {
+    @Override
+    public boolean onRow(Map<String, ByteIterator> row) {
+      return true;
+    }
+  };
+
   protected NumberGenerator keysequence;
   protected DiscreteGenerator operationchooser;
   protected NumberGenerator keychooser;
   protected NumberGenerator fieldchooser;
   protected AcknowledgedCounterGenerator transactioninsertkeysequence;
   protected NumberGenerator scanlength;
+  protected boolean scanstreaming;
+  protected NumberGenerator batchsize;
+  protected NumberGenerator contendedkeychooser;
+  protected int casretrylimit;
+  protected double conditionalinsertnewproportion;
+  protected String incrementfield;
+  protected LoadChunks loadchunks;
+  protected boolean loadchunksorted;
   protected boolean orderedinserts;
   protected long fieldcount;
   protected long recordcount;
@@ -381,7 +633,7 @@ public class CoreWorkload extends Workload {
     long insertstart =
         Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
     long insertcount=
-        Integer.parseInt(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
+        Long.parseLong(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
     // Confirm valid values for insertstart and insertcount in relation to recordcount
     if (recordcount < (insertstart + insertcount)) {
       System.err.println("Invalid combination of insertstart, insertcount and recordcount.");
@@ -441,8 +693,8 @@ public class CoreWorkload extends Workload {
       // the keyspace doesn't change from the perspective of the scrambled zipfian generator
       final double insertproportion = Double.parseDouble(
           p.getProperty(INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT));
-      int opcount = Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-      int expectednewkeys = (int) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
+      long opcount = Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      long expectednewkeys = (long) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
 
       keychooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
     } else if (requestdistrib.compareTo("latest") == 0) {
@@ -459,6 +711,8 @@ public class CoreWorkload extends Workload {
     }
 
     fieldchooser = new UniformLongGenerator(0, fieldcount - 1);
+    allfields = Collections.unmodifiableSet(new LinkedHashSet<>(fieldnames));
+    fieldselector = FieldSelector.create(p, fieldnames, fieldchooser);
 
     if (scanlengthdistrib.compareTo("uniform") == 0) {
       scanlength = new UniformLongGenerator(1, maxscanlength);
@@ -469,12 +723,100 @@ public class CoreWorkload extends Workload {
           "Distribution \"" + scanlengthdistrib + "\" not allowed for scan length");
     }
 
+    scanstreaming = Boolean.parseBoolean(p.getProperty(SCAN_STREAMING_PROPERTY, SCAN_STREAMING_PROPERTY_DEFAULT));
+    batchsize = getBatchSizeGenerator(p);
+    initLoadChunks(p, insertstart, insertcount);
+    initConditionalOperations(p, insertstart, insertcount);
+    initVersionTracking(p);
+
     insertionRetryLimit = Integer.parseInt(p.getProperty(
         INSERTION_RETRY_LIMIT, INSERTION_RETRY_LIMIT_DEFAULT));
     insertionRetryInterval = Integer.parseInt(p.getProperty(
         INSERTION_RETRY_INTERVAL, INSERTION_RETRY_INTERVAL_DEFAULT));
   }
 
+  private void initConditionalOperations(Properties p, long insertstart, long insertcount) {
+    long contendedkeys = Long.parseLong(
+        p.getProperty(CONTENDED_KEY_COUNT_PROPERTY, CONTENDED_KEY_COUNT_PROPERTY_DEFAULT));
+    if (contendedkeys > 0) {
+      contendedkeychooser = new UniformLongGenerator(insertstart,
+          insertstart + Math.min(contendedkeys, insertcount) - 1);
+    }
+    casretrylimit = Integer.parseInt(p.getProperty(CAS_RETRY_LIMIT_PROPERTY, CAS_RETRY_LIMIT_PROPERTY_DEFAULT));
+    conditionalinsertnewproportion = Double.parseDouble(p.getProperty(CONDITIONAL_INSERT_NEW_PROPORTION_PROPERTY,
+        CONDITIONAL_INSERT_NEW_PROPORTION_PROPERTY_DEFAULT));
+    incrementfield = p.getProperty(INCREMENT_FIELD_PROPERTY, INCREMENT_FIELD_PROPERTY_DEFAULT);
+  }
+
+  private void initVersionTracking(Properties p) throws WorkloadException {
+    if (!dataintegrity) {
+      return;
+    }
+    if (fieldlengthgenerator.nextValue().longValue() < DeterministicByteIterator.VERSION_BYTES) {
+      throw new WorkloadException("dataintegrity needs a fieldlength of at least "
+          + DeterministicByteIterator.VERSION_BYTES);
+    }
+    if (Boolean.parseBoolean(p.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))) {
+      double insertproportion = Double.parseDouble(
+          p.getProperty(INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT));
+      long opcount = Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+      long keys = Long.parseLong(p.getProperty(DATA_INTEGRITY_VERSION_KEYS_PROPERTY,
+          String.valueOf(recordcount + (long) (opcount * insertproportion))));
+      versions = new VersionTracker((int) Math.min(keys, Integer.MAX_VALUE - 8));
+    }
+  }
+
+  /**
+   * @return The generator of batch sizes or null if batching is disabled.
+   */
+  protected static NumberGenerator getBatchSizeGenerator(Properties p) throws WorkloadException {
+    int maxbatchsize =
+        Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_PROPERTY_DEFAULT));
+    String batchsizedistrib =
+        p.getProperty(BATCH_SIZE_DISTRIBUTION_PROPERTY, BATCH_SIZE_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (maxbatchsize <= 1) {
+      return null;
+    } else if (batchsizedistrib.compareTo("constant") == 0) {
+      return new ConstantIntegerGenerator(maxbatchsize);
+    } else if (batchsizedistrib.compareTo("uniform") == 0) {
+      return new UniformLongGenerator(1, maxbatchsize);
+    } else if (batchsizedistrib.compareTo("zipfian") == 0) {
+      return new ZipfianGenerator(1, maxbatchsize);
+    }
+    throw new WorkloadException(
+        "Distribution \"" + batchsizedistrib + "\" not allowed for batch size");
+  }
+
+  /**
+   * Split the records of a load into chunks if a chunked load is configured.
+   */
+  private void initLoadChunks(Properties p, long insertstart, long insertcount) throws WorkloadException {
+    long loadchunksize =
+        Long.parseLong(p.getProperty(LOAD_CHUNK_SIZE_PROPERTY, LOAD_CHUNK_SIZE_PROPERTY_DEFAULT));
+    boolean dotransactions =
+        Boolean.parseBoolean(p.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+    if (loadchunksize <= 0 || dotransactions) {
+      return;
+    }
+    loadchunksorted = Boolean.parseBoolean(
+        p.getProperty(LOAD_CHUNK_SORTED_PROPERTY, LOAD_CHUNK_SORTED_PROPERTY_DEFAULT));
+    if (loadchunksorted && loadchunksize > Integer.MAX_VALUE) {
+      throw new WorkloadException("Sorted load chunks can hold at most " + Integer.MAX_VALUE + " records");
+    }
+    String checkpoint = p.getProperty(LOAD_CHECKPOINT_FILE_PROPERTY);
+    loadchunks = new LoadChunks(insertstart, insertcount, loadchunksize,
+        checkpoint == null ? null : new File(checkpoint));
+    System.err.println("Loading " + loadchunks.getPendingRecords() + " records in " +
+        (loadchunks.getChunkCount() - loadchunks.getCompletedCount()) + " chunks of " + loadchunksize);
+  }
+
+  /**
+   * @return The names of the fields of a record, in order.
+   */
+  List<String> getFieldNames() {
+    return fieldnames;
+  }
+
   protected String buildKeyName(long keynum) {
     if (!orderedinserts) {
       keynum = Utils.hash(keynum);
@@ -489,34 +831,37 @@ public class CoreWorkload extends Workload {
   }
 
   /**
-   * Builds a value for a randomly chosen field.
+   * @return The fields of a read, null for all fields unless dataintegrity needs them listed.
    */
-  private HashMap<String, ByteIterator> buildSingleValue(String key) {
-    HashMap<String, ByteIterator> value = new HashMap<>();
-
-    String fieldkey = fieldnames.get(fieldchooser.nextValue().intValue());
-    ByteIterator data;
-    if (dataintegrity) {
-      data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
-    } else {
-      // fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+  protected Set<String> nextReadFields() {
+    if (!readallfields) {
+      return fieldselector.next();
     }
-    value.put(fieldkey, data);
+    return dataintegrity ? allfields : null;
+  }
 
-    return value;
+  /**
+   * Builds the values of an update: all fields with writeallfields, otherwise the fields chosen by
+   * the field selection.
+   */
+  protected HashMap<String, ByteIterator> buildUpdateValues(String key, int version) {
+    return buildValues(key, writeallfields ? fieldnames : fieldselector.next(), version);
   }
 
   /**
    * Builds values for all fields.
    */
-  private HashMap<String, ByteIterator> buildValues(String key) {
-    HashMap<String, ByteIterator> values = new HashMap<>();
+  protected HashMap<String, ByteIterator> buildValues(String key) {
+    return buildValues(key, fieldnames, 0);
+  }
+
+  private HashMap<String, ByteIterator> buildValues(String key, Collection<String> fields, int version) {
+    HashMap<String, ByteIterator> values = new HashMap<>((int) (fields.size() / 0.75f) + 1);
 
-    for (String fieldkey : fieldnames) {
+    for (String fieldkey : fields) {
       ByteIterator data;
       if (dataintegrity) {
-        data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+        data = new DeterministicByteIterator(key, fieldkey, version, fieldlengthgenerator.nextValue().longValue());
       } else {
         // fill with random data
         data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
@@ -526,24 +871,6 @@ public class CoreWorkload extends Workload {
     return values;
   }
 
-  /**
-   * Build a deterministic value given the key information.
-   */
-  private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextValue().intValue();
-    StringBuilder sb = new StringBuilder(size);
-    sb.append(key);
-    sb.append(':');
-    sb.append(fieldkey);
-    while (sb.length() < size) {
-      sb.append(':');
-      sb.append(sb.toString().hashCode());
-    }
-    sb.setLength(size);
-
-    return sb.toString();
-  }
-
   /**
    * Do one insert operation. Because it will be called concurrently from multiple client threads,
    * this function must be thread safe. However, avoid synchronized, or the threads will block waiting
@@ -552,10 +879,40 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doInsert(DB db, Object threadstate) {
-    int keynum = keysequence.nextValue().intValue();
+    if (loadchunks != null) {
+      return doChunkedInsert(db, (LoadChunks.Cursor) threadstate);
+    }
+    long keynum = keysequence.nextValue().longValue();
     String dbkey = buildKeyName(keynum);
-    HashMap<String, ByteIterator> values = buildValues(dbkey);
+    return insertWithRetry(db, dbkey, buildValues(dbkey));
+  }
+
+  /**
+   * Insert the next record of the chunk this thread is loading, claiming a new chunk once the
+   * current one is done.
+   *
+   * @return False if all chunks are loaded or the insert failed.
+   */
+  private boolean doChunkedInsert(DB db, LoadChunks.Cursor cursor) {
+    LoadChunks.Chunk chunk = loadchunks.nextChunk(cursor, this, loadchunksorted);
+    if (chunk == null) {
+      return false;
+    }
+    String dbkey = chunk.nextKey(this);
+    if (!insertWithRetry(db, dbkey, buildValues(dbkey))) {
+      return false;
+    }
+    if (!chunk.hasNext()) {
+      // records acknowledged as BATCHED_OK may still be buffered and must not be checkpointed
+      if (!db.flush().isOk()) {
+        return false;
+      }
+      loadchunks.complete(chunk.getIndex());
+    }
+    return true;
+  }
 
+  private boolean insertWithRetry(DB db, String dbkey, HashMap<String, ByteIterator> values) {
     Status status;
     int numOfRetries = 0;
     do {
@@ -587,6 +944,32 @@ public class CoreWorkload extends Workload {
     return null != status && status.isOk();
   }
 
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    return loadchunks == null ? null : new LoadChunks.Cursor();
+  }
+
+  /**
+   * The threads of a chunked load run until no chunk is left.
+   */
+  @Override
+  public long getLoadOperationCount(long insertcount) {
+    return loadchunks == null ? insertcount : 0;
+  }
+
+  @Override
+  public void cleanup() throws WorkloadException {
+    if (loadchunks != null) {
+      System.err.println("Load chunks completed: " + loadchunks.getCompletedCount() + " of " +
+          loadchunks.getChunkCount());
+      try {
+        loadchunks.close();
+      } catch (IOException e) {
+        throw new WorkloadException("Failed to close load checkpoint", e);
+      }
+    }
+  }
+
   /**
    * Do one transaction operation. Because it will be called concurrently from multiple client
    * threads, this function must be thread safe. However, avoid synchronized, or the threads will block waiting
@@ -600,6 +983,14 @@ public class CoreWorkload extends Workload {
       return false;
     }
 
+    doTransactionOperation(db, operation);
+    return true;
+  }
+
+  /**
+   * Do one transaction operation of the type chosen by the operation chooser.
+   */
+  protected void doTransactionOperation(DB db, String operation) {
     switch (operation) {
     case "READ":
       doTransactionRead(db);
@@ -613,77 +1004,201 @@ public class CoreWorkload extends Workload {
     case "SCAN":
       doTransactionScan(db);
       break;
+    case "CAS":
+      doTransactionCompareAndSet(db);
+      break;
+    case "INCREMENT":
+      doTransactionIncrement(db);
+      break;
+    case "CONDITIONALINSERT":
+      doTransactionConditionalInsert(db);
+      break;
     default:
       doTransactionReadModifyWrite(db);
     }
+  }
 
-    return true;
+  /**
+   * Start a write of a record.
+   *
+   * @return The version of the record to write, 0 if its versions are not tracked.
+   */
+  protected int beginWrite(long keynum) {
+    return versions != null && versions.tracks(keynum) ? versions.beginWrite(keynum) : 0;
   }
 
   /**
-   * Results are reported in the first three buckets of the histogram under
-   * the label "VERIFY".
-   * Bucket 0 means the expected data was returned.
-   * Bucket 1 means incorrect data was returned.
-   * Bucket 2 means null data was returned when some data was expected.
+   * Complete a write started by {@link #beginWrite}.
+   *
+   * @param status The result of the write; OK and BATCHED_OK writes are known to be applied, as a
+   *               coalescing DB flushes a buffered write before reading its record
+   */
+  protected void endWrite(long keynum, Status status) {
+    if (versions != null && versions.tracks(keynum)) {
+      versions.endWrite(keynum, status.isOk());
+    }
+  }
+
+  /**
+   * @return The oldest version of a record that a read starting now may return, to pass to
+   *         {@link #verifyRow(DB, long, String, HashMap, int)} once the read completes.
+   */
+  protected int readFloor(long keynum) {
+    return versions != null && versions.tracks(keynum) ? versions.floor(keynum) : 0;
+  }
+
+  /**
+   * Verify a record read without tracking its version: every field must hold one of its values.
    */
   protected void verifyRow(String key, HashMap<String, ByteIterator> cells) {
-    Status verifyStatus = Status.OK;
+    verifyRow(null, -1, key, cells, 0);
+  }
+
+  /**
+   * Verify a record read by a dataintegrity run. Results are reported under the label "VERIFY":
+   * OK means an expected version was returned, UNEXPECTED_STATE incorrect data or an unknown version,
+   * ERROR no data when some was expected, and when every write covers all fields, STALE_READ and
+   * LOST_WRITE a version older than the last acknowledged write that was or was not returned by a
+   * second read and TORN_RECORD fields of different writes. Writes of some fields leave the others at
+   * older versions, so no version older than the last write can be told apart from a stale one then.
+   *
+   * @param db The DB to read the record again from when it is stale, null not to
+   * @param keynum The key number of the record, -1 if its versions are not tracked
+   * @param floor The value of {@link #readFloor} before the read
+   */
+  protected void verifyRow(DB db, long keynum, String key, HashMap<String, ByteIterator> cells, int floor) {
     long startTime = System.nanoTime();
-    if (!cells.isEmpty()) {
-      for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(buildDeterministicValue(key, entry.getKey()))) {
-          verifyStatus = Status.UNEXPECTED_STATE;
-          break;
-        }
+    Status verifyStatus = checkRow(keynum, key, cells, floor);
+    if (verifyStatus == STALE_READ && db != null) {
+      // read again to tell a write that is late from one that is lost, without measuring it as a READ
+      DB target = db instanceof DBWrapper ? ((DBWrapper) db).getWrapped() : db;
+      HashMap<String, ByteIterator> again = new HashMap<>();
+      target.read(table, key, new HashSet<>(cells.keySet()), again);
+      if (checkRow(keynum, key, again, floor) != Status.OK) {
+        verifyStatus = LOST_WRITE;
       }
-    } else {
-      // This assumes that null data is never valid
-      verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
     measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
     measurements.reportStatus("VERIFY", verifyStatus);
   }
 
+  Status checkRow(long keynum, String key, Map<String, ByteIterator> cells, int floor) {
+    if (cells.isEmpty()) {
+      // This assumes that null data is never valid
+      return Status.ERROR;
+    }
+    boolean tracked = versions != null && versions.tracks(keynum);
+    int ceiling = tracked ? versions.ceiling(keynum) : 0;
+    long length = fieldlengthgenerator.nextValue().longValue();
+    int newest = Integer.MAX_VALUE;
+    int first = -1;
+    boolean mixed = false;
+    for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
+      int version = DeterministicByteIterator.readVersion(entry.getValue());
+      if (version < 0
+          || !DeterministicByteIterator.matches(entry.getValue(), key, entry.getKey(), version, length)) {
+        return Status.UNEXPECTED_STATE;
+      }
+      if (tracked) {
+        int behind = VersionTracker.behind(ceiling, version);
+        if (behind < 0) {
+          return Status.UNEXPECTED_STATE;
+        }
+        newest = Math.min(newest, behind);
+      }
+      mixed |= first >= 0 && first != version;
+      first = version;
+    }
+    if (tracked && writeallfields && newest > VersionTracker.behind(ceiling, floor)) {
+      return STALE_READ;
+    }
+    return mixed && writeallfields ? TORN_RECORD : Status.OK;
+  }
+
   long nextKeynum() {
     long keynum;
     if (keychooser instanceof ExponentialGenerator) {
       do {
-        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().intValue();
+        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().longValue();
       } while (keynum < 0);
     } else {
       do {
-        keynum = keychooser.nextValue().intValue();
+        keynum = keychooser.nextValue().longValue();
       } while (keynum > transactioninsertkeysequence.lastValue());
     }
     return keynum;
   }
 
+  /**
+   * @return The key number of a CAS, increment or conditional insert transaction.
+   */
+  long nextContendedKeynum() {
+    return contendedkeychooser == null ? nextKeynum() : contendedkeychooser.nextValue().longValue();
+  }
+
   public void doTransactionRead(DB db) {
+    if (batchsize != null) {
+      doTransactionBatchRead(db);
+      return;
+    }
     // choose a random key
     long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
-    HashSet<String> fields = null;
+    Set<String> fields = null;
 
     if (!readallfields) {
-      // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
+      // read the fields chosen by the field selection
+      fields = fieldselector.next();
     } else if (dataintegrity) {
       // pass the full field list if dataintegrity is on for verification
-      fields = new HashSet<String>(fieldnames);
+      fields = allfields;
     }
 
     HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    int floor = readFloor(keynum);
     db.read(table, keyname, fields, cells);
 
     if (dataintegrity) {
-      verifyRow(keyname, cells);
+      verifyRow(db, keynum, keyname, cells, floor);
+    }
+  }
+
+  public void doTransactionBatchRead(DB db) {
+    // choose a batch of random keys
+    int count = batchsize.nextValue().intValue();
+    long[] keynums = new long[count];
+    List<String> keynames = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      keynums[i] = nextKeynum();
+      keynames.add(buildKeyName(keynums[i]));
+    }
+
+    Set<String> fields = null;
+
+    if (!readallfields) {
+      // read the fields chosen by the field selection
+      fields = fieldselector.next();
+    } else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = allfields;
+    }
+
+    int[] floors = new int[count];
+    for (int i = 0; i < count; i++) {
+      floors[i] = readFloor(keynums[i]);
+    }
+    Map<String, Map<String, ByteIterator>> rows = new HashMap<>();
+    db.batchRead(table, keynames, fields, rows);
+
+    if (dataintegrity) {
+      for (int i = 0; i < count; i++) {
+        Map<String, ByteIterator> cells = rows.get(keynames.get(i));
+        verifyRow(db, keynums[i], keynames.get(i),
+            cells == null ? new HashMap<String, ByteIterator>() : new HashMap<>(cells), floors[i]);
+      }
     }
   }
 
@@ -693,24 +1208,11 @@ public class CoreWorkload extends Workload {
 
     String keyname = buildKeyName(keynum);
 
-    HashSet<String> fields = null;
+    Set<String> fields = null;
 
     if (!readallfields) {
-      // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
-    }
-
-    HashMap<String, ByteIterator> values;
-
-    if (writeallfields) {
-      // new data for all the fields
-      values = buildValues(keyname);
-    } else {
-      // update a random field
-      values = buildSingleValue(keyname);
+      // read the fields chosen by the field selection
+      fields = fieldselector.next();
     }
 
     // do the transaction
@@ -720,18 +1222,86 @@ public class CoreWorkload extends Workload {
 
     long ist = measurements.getIntendedtartTimeNs();
     long st = System.nanoTime();
+    int floor = readFloor(keynum);
     db.read(table, keyname, fields, cells);
 
-    db.update(table, keyname, values);
+    // new data for all the fields or the fields chosen by the field selection
+    int version = beginWrite(keynum);
+    endWrite(keynum, db.update(table, keyname, buildUpdateValues(keyname, version)));
 
     long en = System.nanoTime();
 
     if (dataintegrity) {
-      verifyRow(keyname, cells);
+      verifyRow(db, keynum, keyname, cells, floor);
     }
 
     measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
     measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    measurements.measureCorrected("READ-MODIFY-WRITE", (int) ((en - st) / 1000), st);
+  }
+
+  /**
+   * Read a record with its version and write it back with compareAndSet, reading again after each
+   * conflict. The whole exchange is measured as CAS-RMW and the number of attempts it took as
+   * CAS-ATTEMPTS, so the latency amplification of contended keys shows next to the single CAS calls.
+   */
+  public void doTransactionCompareAndSet(DB db) {
+    long keynum = nextContendedKeynum();
+    String keyname = buildKeyName(keynum);
+
+    Set<String> fields = null;
+
+    if (!readallfields) {
+      // read the fields chosen by the field selection
+      fields = fieldselector.next();
+    }
+
+    long ist = measurements.getIntendedtartTimeNs();
+    long st = System.nanoTime();
+    long[] version = new long[1];
+    Status status;
+    int attempts = 0;
+    do {
+      attempts++;
+      HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      status = db.readVersion(table, keyname, fields, cells, version);
+      if (!status.isOk()) {
+        break;
+      }
+      int written = beginWrite(keynum);
+      status = db.compareAndSet(table, keyname, version[0], buildUpdateValues(keyname, written));
+      endWrite(keynum, status);
+    } while (status.equals(Status.CONDITION_FAILED) && attempts <= casretrylimit);
+    long en = System.nanoTime();
+
+    measurements.measureValue("CAS-ATTEMPTS", attempts);
+    measurements.measure("CAS-RMW", (int) ((en - st) / 1000));
+    measurements.measureIntended("CAS-RMW", (int) ((en - ist) / 1000));
+    measurements.measureCorrected("CAS-RMW", (int) ((en - st) / 1000), st);
+    measurements.reportStatus("CAS-RMW", status);
+  }
+
+  public void doTransactionIncrement(DB db) {
+    db.increment(table, buildKeyName(nextContendedKeynum()), incrementfield, 1);
+  }
+
+  /**
+   * Inserts a new record with insertIfAbsent, or tries to insert an existing contended one, which
+   * fails with CONDITION_FAILED, in the share set by conditionalinsertnewproportion.
+   */
+  public void doTransactionConditionalInsert(DB db) {
+    if (Utils.random().nextDouble() >= conditionalinsertnewproportion) {
+      String dbkey = buildKeyName(nextContendedKeynum());
+      db.insertIfAbsent(table, dbkey, buildValues(dbkey));
+      return;
+    }
+    long keynum = transactioninsertkeysequence.nextValue();
+    try {
+      String dbkey = buildKeyName(keynum);
+      db.insertIfAbsent(table, dbkey, buildValues(dbkey));
+    } finally {
+      transactioninsertkeysequence.acknowledge(keynum);
+    }
   }
 
   public void doTransactionScan(DB db) {
@@ -743,17 +1313,18 @@ public class CoreWorkload extends Workload {
     // choose a random scan length
     int len = scanlength.nextValue().intValue();
 
-    HashSet<String> fields = null;
+    Set<String> fields = null;
 
     if (!readallfields) {
-      // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
+      // read the fields chosen by the field selection
+      fields = fieldselector.next();
     }
 
-    db.scan(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
+    if (scanstreaming) {
+      db.streamScan(table, startkeyname, len, fields, DISCARD_ROWS);
+    } else {
+      db.scan(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
+    }
   }
 
   public void doTransactionUpdate(DB db) {
@@ -762,20 +1333,16 @@ public class CoreWorkload extends Workload {
 
     String keyname = buildKeyName(keynum);
 
-    HashMap<String, ByteIterator> values;
-
-    if (writeallfields) {
-      // new data for all the fields
-      values = buildValues(keyname);
-    } else {
-      // update a random field
-      values = buildSingleValue(keyname);
-    }
-
-    db.update(table, keyname, values);
+    // new data for all the fields or the fields chosen by the field selection
+    int version = beginWrite(keynum);
+    endWrite(keynum, db.update(table, keyname, buildUpdateValues(keyname, version)));
   }
 
   public void doTransactionInsert(DB db) {
+    if (batchsize != null) {
+      doTransactionBatchInsert(db);
+      return;
+    }
     // choose the next key
     long keynum = transactioninsertkeysequence.nextValue();
 
@@ -789,11 +1356,34 @@ public class CoreWorkload extends Workload {
     }
   }
 
+  public void doTransactionBatchInsert(DB db) {
+    // choose the next keys
+    int count = batchsize.nextValue().intValue();
+    long[] keynums = new long[count];
+    for (int i = 0; i < count; i++) {
+      keynums[i] = transactioninsertkeysequence.nextValue();
+    }
+
+    try {
+      Map<String, Map<String, ByteIterator>> rows = new LinkedHashMap<>();
+      for (long keynum : keynums) {
+        String dbkey = buildKeyName(keynum);
+        rows.put(dbkey, buildValues(dbkey));
+      }
+      db.batchWrite(table, rows);
+    } finally {
+      for (long keynum : keynums) {
+        transactioninsertkeysequence.acknowledge(keynum);
+      }
+    }
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
    * when values are not configured.
-   * Current operations are "READ", "UPDATE", "INSERT", "SCAN" and "READMODIFYWRITE".
+   * Current operations are "READ", "UPDATE", "INSERT", "SCAN", "READMODIFYWRITE", "CAS", "INCREMENT" and
+   * "CONDITIONALINSERT".
    *
    * @param p The properties list to pull weights from.
    * @return A generator that can be used to determine the next operation to perform.
@@ -813,6 +1403,12 @@ public class CoreWorkload extends Workload {
         p.getProperty(SCAN_PROPORTION_PROPERTY, SCAN_PROPORTION_PROPERTY_DEFAULT));
     final double readmodifywriteproportion = Double.parseDouble(p.getProperty(
         READMODIFYWRITE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+    final double casproportion = Double.parseDouble(
+        p.getProperty(CAS_PROPORTION_PROPERTY, CAS_PROPORTION_PROPERTY_DEFAULT));
+    final double incrementproportion = Double.parseDouble(
+        p.getProperty(INCREMENT_PROPORTION_PROPERTY, INCREMENT_PROPORTION_PROPERTY_DEFAULT));
+    final double conditionalinsertproportion = Double.parseDouble(p.getProperty(
+        CONDITIONAL_INSERT_PROPORTION_PROPERTY, CONDITIONAL_INSERT_PROPORTION_PROPERTY_DEFAULT));
 
     final DiscreteGenerator operationchooser = new DiscreteGenerator();
     if (readproportion > 0) {
@@ -834,6 +1430,18 @@ public class CoreWorkload extends Workload {
     if (readmodifywriteproportion > 0) {
       operationchooser.addValue(readmodifywriteproportion, "READMODIFYWRITE");
     }
+
+    if (casproportion > 0) {
+      operationchooser.addValue(casproportion, "CAS");
+    }
+
+    if (incrementproportion > 0) {
+      operationchooser.addValue(incrementproportion, "INCREMENT");
+    }
+
+    if (conditionalinsertproportion > 0) {
+      operationchooser.addValue(conditionalinsertproportion, "CONDITIONALINSERT");
+    }
     return operationchooser;
   }
 }
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.NumberGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Chooses the fields of partial reads and updates. All field sets are built once, in field order, and
+ * are immutable, so the client threads share them and choosing one allocates nothing.
+ * <UL>
+ * <LI><b>single</b>: one field chosen uniformly
+ * <LI><b>kofn</b>: fieldselectioncount fields chosen uniformly without repetition
+ * <LI><b>zipfian</b>: fieldselectioncount distinct fields, the first fields being the most popular
+ * <LI><b>groups</b>: one of fieldgroups column groups of consecutive fields, chosen uniformly
+ * </ul>
+ * The kofn and zipfian selections draw from a pool of fieldselectionpoolsize precomputed sets.
+ */
+final class FieldSelector {
+  private final List<Set<String>> sets;
+  private final NumberGenerator chooser;
+
+  private FieldSelector(List<Set<String>> sets, NumberGenerator chooser) {
+    this.sets = sets;
+    this.chooser = chooser;
+  }
+
+  /**
+   * @param fieldnames The fields of a record.
+   * @param fieldchooser The uniform generator of field indexes, used by the "single" selection.
+   */
+  static FieldSelector create(Properties p, List<String> fieldnames, NumberGenerator fieldchooser)
+      throws WorkloadException {
+    final String selection = p.getProperty(CoreWorkload.FIELD_SELECTION_PROPERTY,
+        CoreWorkload.FIELD_SELECTION_PROPERTY_DEFAULT);
+    final int n = fieldnames.size();
+    final int k = Math.min(n, Integer.parseInt(p.getProperty(CoreWorkload.FIELD_SELECTION_COUNT_PROPERTY,
+        CoreWorkload.FIELD_SELECTION_COUNT_PROPERTY_DEFAULT)));
+    final int poolsize = Integer.parseInt(p.getProperty(CoreWorkload.FIELD_SELECTION_POOL_SIZE_PROPERTY,
+        CoreWorkload.FIELD_SELECTION_POOL_SIZE_PROPERTY_DEFAULT));
+    if (selection.equals("kofn") || selection.equals("zipfian")) {
+      if (k < 1) {
+        throw new WorkloadException("'" + CoreWorkload.FIELD_SELECTION_COUNT_PROPERTY + "' must be greater than zero");
+      }
+      if (poolsize < 1) {
+        throw new WorkloadException("'" + CoreWorkload.FIELD_SELECTION_POOL_SIZE_PROPERTY
+            + "' must be greater than zero");
+      }
+    }
+    final List<Set<String>> sets = new ArrayList<>();
+    final int[] indexes = new int[n];
+    switch (selection) {
+    case "single":
+      for (String field : fieldnames) {
+        sets.add(Collections.singleton(field));
+      }
+      return new FieldSelector(sets, fieldchooser);
+    case "kofn":
+      final Random random = Utils.random();
+      for (int s = 0; s < poolsize; s++) {
+        // partial Fisher-Yates shuffle
+        for (int i = 0; i < n; i++) {
+          indexes[i] = i;
+        }
+        for (int i = 0; i < k; i++) {
+          final int j = i + random.nextInt(n - i);
+          final int swap = indexes[i];
+          indexes[i] = indexes[j];
+          indexes[j] = swap;
+        }
+        sets.add(fieldSet(fieldnames, indexes, k));
+      }
+      break;
+    case "zipfian":
+      final ZipfianGenerator popularity = new ZipfianGenerator(0, n - 1);
+      final boolean[] chosen = new boolean[n];
+      for (int s = 0; s < poolsize; s++) {
+        Arrays.fill(chosen, false);
+        int count = 0;
+        for (int draws = 0; count < k && draws < 100 * k; draws++) {
+          final int i = popularity.nextValue().intValue();
+          if (!chosen[i]) {
+            chosen[i] = true;
+            indexes[count++] = i;
+          }
+        }
+        // fill up with the most popular remaining fields if the tail is hard to hit
+        for (int i = 0; count < k; i++) {
+          if (!chosen[i]) {
+            chosen[i] = true;
+            indexes[count++] = i;
+          }
+        }
+        sets.add(fieldSet(fieldnames, indexes, k));
+      }
+      break;
+    case "groups":
+      final int groups = Math.min(n, Integer.parseInt(p.getProperty(CoreWorkload.FIELD_GROUPS_PROPERTY,
+          CoreWorkload.FIELD_GROUPS_PROPERTY_DEFAULT)));
+      if (groups < 1) {
+        throw new WorkloadException("'" + CoreWorkload.FIELD_GROUPS_PROPERTY + "' must be greater than zero");
+      }
+      for (int g = 0; g < groups; g++) {
+        final int from = (int) ((long) n * g / groups);
+        final int to = (int) ((long) n * (g + 1) / groups);
+        sets.add(Collections.unmodifiableSet(new LinkedHashSet<>(fieldnames.subList(from, to))));
+      }
+      break;
+    default:
+      throw new WorkloadException("Unknown field selection \"" + selection + "\"");
+    }
+    return new FieldSelector(sets, null);
+  }
+
+  private static Set<String> fieldSet(List<String> fieldnames, int[] indexes, int count) {
+    final int[] sorted = Arrays.copyOf(indexes, count);
+    Arrays.sort(sorted);
+    final Set<String> set = new LinkedHashSet<>();
+    for (int i : sorted) {
+      set.add(fieldnames.get(i));
+    }
+    return Collections.unmodifiableSet(set);
+  }
+
+  /**
+   * @return The fields of the next partial read or update.
+   */
+  Set<String> next() {
+    final int index = chooser == null ? Utils.random().nextInt(sets.size()) : chooser.nextValue().intValue();
+    return sets.get(index);
+  }
+
+  /**
+   * @return The number of distinct field sets.
+   */
+  int size() {
+    return sets.size();
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.WorkloadException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits the record range of a load into fixed size chunks that client threads
+ * claim one at a time, and optionally records every completed chunk in a
+ * checkpoint file so a restarted load skips them.
+ * <p>
+ * The checkpoint file starts with a header line describing the load
+ * ("ycsb-load insertstart insertcount chunksize") followed by one line per
+ * completed chunk holding its index. Each line is synced to disk before the
+ * chunk counts as done, so a crash loses at most the chunks in progress.
+ */
+public final class LoadChunks {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String HEADER_PREFIX = "ycsb-load";
+
+  private final long insertstart;
+  private final long insertcount;
+  private final long chunksize;
+  private final int chunkcount;
+  private final BitSet completed = new BitSet();
+  private final int[] pending;
+  private final AtomicInteger next = new AtomicInteger();
+  private final FileOutputStream checkpoint;
+
+  /**
+   * @param insertstart The first record of the load.
+   * @param insertcount The number of records to load.
+   * @param chunksize The number of records per chunk.
+   * @param checkpointFile The checkpoint file, or null to keep no checkpoint.
+   */
+  public LoadChunks(long insertstart, long insertcount, long chunksize, File checkpointFile)
+      throws WorkloadException {
+    this.insertstart = insertstart;
+    this.insertcount = insertcount;
+    this.chunksize = chunksize;
+    final long chunks = (insertcount + chunksize - 1) / chunksize;
+    if (chunks > Integer.MAX_VALUE) {
+      throw new WorkloadException("Too many load chunks, increase the chunk size: " + chunks);
+    }
+    this.chunkcount = (int) chunks;
+    final String header = HEADER_PREFIX + " " + insertstart + " " + insertcount + " " + chunksize;
+
+    try {
+      boolean writeHeader = true;
+      if (checkpointFile != null && checkpointFile.exists() && checkpointFile.length() > 0) {
+        readCheckpoint(checkpointFile, header);
+        writeHeader = false;
+      }
+      if (checkpointFile == null) {
+        checkpoint = null;
+      } else {
+        checkpoint = new FileOutputStream(checkpointFile, true);
+        if (writeHeader) {
+          append(header);
+        }
+      }
+    } catch (IOException e) {
+      throw new WorkloadException("Failed to open load checkpoint " + checkpointFile, e);
+    }
+
+    pending = new int[chunkcount - completed.cardinality()];
+    int i = 0;
+    for (int chunk = completed.nextClearBit(0); chunk < chunkcount; chunk = completed.nextClearBit(chunk + 1)) {
+      pending[i++] = chunk;
+    }
+    if (completed.cardinality() > 0) {
+      System.err.println("Resuming load: " + completed.cardinality() + " of " + chunkcount +
+          " chunks already completed according to " + checkpointFile);
+    }
+  }
+
+  private void readCheckpoint(File file, String header) throws IOException, WorkloadException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8))) {
+      final String first = reader.readLine();
+      if (!header.equals(first)) {
+        throw new WorkloadException("Load checkpoint " + file + " was written for a different load (" + first +
+            "), expected " + header);
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        final int chunk;
+        try {
+          chunk = Integer.parseInt(line);
+        } catch (NumberFormatException e) {
+          // a line torn by a crash, the chunk will be loaded again
+          continue;
+        }
+        if (chunk >= 0 && chunk < chunkcount) {
+          completed.set(chunk);
+        }
+      }
+    }
+  }
+
+  private void append(String line) throws IOException {
+    checkpoint.write((line + "\n").getBytes(UTF8));
+    checkpoint.getFD().sync();
+  }
+
+  /**
+   * @return The index of the next chunk to load or -1 if all chunks are claimed.
+   */
+  public int claim() {
+    final int i = next.getAndIncrement();
+    return i < pending.length ? pending[i] : -1;
+  }
+
+  /**
+   * @return The first record of the chunk.
+   */
+  public long start(int chunk) {
+    return insertstart + chunk * chunksize;
+  }
+
+  /**
+   * @return The record after the last record of the chunk.
+   */
+  public long end(int chunk) {
+    return Math.min(start(chunk) + chunksize, insertstart + insertcount);
+  }
+
+  /**
+   * Record that every record of the chunk was loaded. A checkpoint that cannot
+   * be written is reported but does not stop the load.
+   */
+  public synchronized void complete(int chunk) {
+    completed.set(chunk);
+    if (checkpoint != null) {
+      try {
+        append(Integer.toString(chunk));
+      } catch (IOException e) {
+        System.err.println("Could not update load checkpoint, error: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return The number of chunks recorded as completed, including those of earlier runs.
+   */
+  public synchronized int getCompletedCount() {
+    return completed.cardinality();
+  }
+
+  public int getChunkCount() {
+    return chunkcount;
+  }
+
+  /**
+   * @return The number of records in the chunks not completed by an earlier run.
+   */
+  public long getPendingRecords() {
+    long records = 0;
+    for (int chunk : pending) {
+      records += end(chunk) - start(chunk);
+    }
+    return records;
+  }
+
+  public synchronized void close() throws IOException {
+    if (checkpoint != null) {
+      checkpoint.close();
+    }
+  }
+
+  /**
+   * Claim the next chunk for a client thread.
+   *
+   * @param workload The workload building the key names.
+   * @param sorted Whether to load the records of the chunk in key order.
+   * @return The chunk or null if all chunks are claimed.
+   */
+  Chunk claimChunk(CoreWorkload workload, boolean sorted) {
+    final int chunk = claim();
+    if (chunk < 0) {
+      return null;
+    }
+    List<String> keys = null;
+    if (sorted) {
+      keys = new ArrayList<>((int) (end(chunk) - start(chunk)));
+      for (long keynum = start(chunk); keynum < end(chunk); keynum++) {
+        keys.add(workload.buildKeyName(keynum));
+      }
+      Collections.sort(keys);
+    }
+    return new Chunk(chunk, start(chunk), end(chunk), keys);
+  }
+
+  /**
+   * The chunk a client thread is loading, kept as its thread state.
+   */
+  static final class Cursor {
+    private Chunk chunk;
+  }
+
+  /**
+   * @return The chunk the thread takes its next key from, claiming a new one
+   * when its current chunk is done, or null if all chunks are claimed.
+   */
+  Chunk nextChunk(Cursor cursor, CoreWorkload workload, boolean sorted) {
+    if (cursor.chunk == null || !cursor.chunk.hasNext()) {
+      cursor.chunk = claimChunk(workload, sorted);
+    }
+    return cursor.chunk;
+  }
+
+  /**
+   * The records of one chunk a client thread is loading.
+   */
+  static final class Chunk {
+    private final int index;
+    private final long start;
+    private final long end;
+    private final List<String> sortedKeys;
+    private long position;
+
+    private Chunk(int index, long start, long end, List<String> sortedKeys) {
+      this.index = index;
+      this.start = start;
+      this.end = end;
+      this.sortedKeys = sortedKeys;
+      this.position = start;
+    }
+
+    int getIndex() {
+      return index;
+    }
+
+    boolean hasNext() {
+      return position < end;
+    }
+
+    String nextKey(CoreWorkload workload) {
+      final long keynum = position++;
+      return sortedKeys == null ? workload.buildKeyName(keynum) : sortedKeys.get((int) (keynum - start));
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Predicate;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A workload for secondary indexes and search engines. Every record gets indexed attributes besides its
+ * fields, derived from its key so the expected result of every query is known:
+ * <UL>
+ * <LI><b>num</b>: an integer, uniform in [0, querynumericmax)
+ * <LI><b>lowcat</b>: one of querylowcardinality categories
+ * <LI><b>highcat</b>: one of queryhighcardinality categories
+ * <LI><b>tags</b>: querytagcount whitespace separated tokens out of querytagvocabulary
+ * </ul>
+ * The queryproportion of the operations are {@link DB#query} calls with a {@link Predicate} on these
+ * attributes, chosen along with the other {@link CoreWorkload} operations by their proportions. The query
+ * types are chosen uniformly from querytypes:
+ * <UL>
+ * <LI><b>range</b>: a range of up to queryrangewidth numbers on num
+ * <LI><b>lowcardinality</b>: equality on lowcat
+ * <LI><b>highcardinality</b>: equality on highcat
+ * <LI><b>text</b>: a token of tags
+ * <LI><b>compound</b>: equality on lowcat and a range on num
+ * </ul>
+ * Each type is measured as QUERY-TYPE, with value summaries of the records it returned as QUERY-TYPE-ROWS
+ * and the fraction of all records expected to match in parts per million as QUERY-TYPE-SELECTIVITY, so index
+ * performance can be compared at the same selectivity across stores. At most querylimit records are
+ * returned per query.
+ */
+public class QueryWorkload extends CoreWorkload {
+  public static final String NUMERIC_FIELD = "num";
+  public static final String LOW_CARDINALITY_FIELD = "lowcat";
+  public static final String HIGH_CARDINALITY_FIELD = "highcat";
+  public static final String TAGS_FIELD = "tags";
+
+  public static final String QUERY_PROPORTION_PROPERTY = "queryproportion";
+  public static final String QUERY_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  public static final String QUERY_TYPES_PROPERTY = "querytypes";
+  public static final String QUERY_TYPES_PROPERTY_DEFAULT = "range,lowcardinality,highcardinality,text,compound";
+
+  public static final String QUERY_LIMIT_PROPERTY = "querylimit";
+  public static final String QUERY_LIMIT_PROPERTY_DEFAULT = "100";
+
+  public static final String NUMERIC_MAX_PROPERTY = "querynumericmax";
+  public static final String NUMERIC_MAX_PROPERTY_DEFAULT = "1000000";
+
+  public static final String RANGE_WIDTH_PROPERTY = "queryrangewidth";
+  public static final String RANGE_WIDTH_PROPERTY_DEFAULT = "1000";
+
+  public static final String LOW_CARDINALITY_PROPERTY = "querylowcardinality";
+  public static final String LOW_CARDINALITY_PROPERTY_DEFAULT = "10";
+
+  public static final String HIGH_CARDINALITY_PROPERTY = "queryhighcardinality";
+  public static final String HIGH_CARDINALITY_PROPERTY_DEFAULT = "100000";
+
+  public static final String TAG_COUNT_PROPERTY = "querytagcount";
+  public static final String TAG_COUNT_PROPERTY_DEFAULT = "5";
+
+  public static final String TAG_VOCABULARY_PROPERTY = "querytagvocabulary";
+  public static final String TAG_VOCABULARY_PROPERTY_DEFAULT = "10000";
+
+  private static final String[] TYPES = {"range", "lowcardinality", "highcardinality", "text", "compound"};
+
+  private String[] querytypes;
+  private int querylimit;
+  private long numericmax;
+  private long rangewidth;
+  private long lowcardinality;
+  private long highcardinality;
+  private int tagcount;
+  private long tagvocabulary;
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    super.init(p);
+    double queryproportion = Double.parseDouble(
+        p.getProperty(QUERY_PROPORTION_PROPERTY, QUERY_PROPORTION_PROPERTY_DEFAULT));
+    if (queryproportion > 0) {
+      operationchooser.addValue(queryproportion, "QUERY");
+    }
+    querytypes = p.getProperty(QUERY_TYPES_PROPERTY, QUERY_TYPES_PROPERTY_DEFAULT).split(",");
+    for (int i = 0; i < querytypes.length; i++) {
+      querytypes[i] = querytypes[i].trim();
+      boolean known = false;
+      for (String type : TYPES) {
+        known |= type.equals(querytypes[i]);
+      }
+      if (!known) {
+        throw new WorkloadException("Unknown query type \"" + querytypes[i] + "\"");
+      }
+    }
+    querylimit = Integer.parseInt(p.getProperty(QUERY_LIMIT_PROPERTY, QUERY_LIMIT_PROPERTY_DEFAULT));
+    numericmax = Long.parseLong(p.getProperty(NUMERIC_MAX_PROPERTY, NUMERIC_MAX_PROPERTY_DEFAULT));
+    rangewidth = Math.min(numericmax,
+        Long.parseLong(p.getProperty(RANGE_WIDTH_PROPERTY, RANGE_WIDTH_PROPERTY_DEFAULT)));
+    lowcardinality = Long.parseLong(p.getProperty(LOW_CARDINALITY_PROPERTY, LOW_CARDINALITY_PROPERTY_DEFAULT));
+    highcardinality = Long.parseLong(p.getProperty(HIGH_CARDINALITY_PROPERTY, HIGH_CARDINALITY_PROPERTY_DEFAULT));
+    tagcount = Integer.parseInt(p.getProperty(TAG_COUNT_PROPERTY, TAG_COUNT_PROPERTY_DEFAULT));
+    tagvocabulary = Long.parseLong(p.getProperty(TAG_VOCABULARY_PROPERTY, TAG_VOCABULARY_PROPERTY_DEFAULT));
+    if (numericmax < 1 || rangewidth < 1 || lowcardinality < 1 || highcardinality < 1 || tagvocabulary < 1) {
+      throw new WorkloadException("The query attribute domains must not be empty");
+    }
+  }
+
+  /**
+   * A well mixed hash of the key, different for every attribute.
+   */
+  private static long attributeHash(String key, int attribute) {
+    long h = Utils.FNV_OFFSET_BASIS_64 ^ attribute;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * Utils.FNV_PRIME_64;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h & Long.MAX_VALUE;
+  }
+
+  /**
+   * Builds the fields of a record and adds its indexed attributes.
+   */
+  @Override
+  protected HashMap<String, ByteIterator> buildValues(String key) {
+    HashMap<String, ByteIterator> values = super.buildValues(key);
+    values.put(NUMERIC_FIELD, new StringByteIterator(String.valueOf(attributeHash(key, 0) % numericmax)));
+    values.put(LOW_CARDINALITY_FIELD, new StringByteIterator("low" + attributeHash(key, 1) % lowcardinality));
+    values.put(HIGH_CARDINALITY_FIELD, new StringByteIterator("high" + attributeHash(key, 2) % highcardinality));
+    StringBuilder tags = new StringBuilder();
+    for (int i = 0; i < tagcount; i++) {
+      if (i > 0) {
+        tags.append(' ');
+      }
+      tags.append("tag").append(attributeHash(key, 3 + i) % tagvocabulary);
+    }
+    values.put(TAGS_FIELD, new StringByteIterator(tags.toString()));
+    return values;
+  }
+
+  @Override
+  protected void doTransactionOperation(DB db, String operation) {
+    if (operation.equals("QUERY")) {
+      doTransactionQuery(db);
+    } else {
+      super.doTransactionOperation(db, operation);
+    }
+  }
+
+  public void doTransactionQuery(DB db) {
+    String type = querytypes[Utils.random().nextInt(querytypes.length)];
+    Predicate predicate;
+    double selectivity;
+    switch (type) {
+    case "range":
+      predicate = nextRange();
+      selectivity = (double) (predicate.getHigh() - predicate.getLow()) / numericmax;
+      break;
+    case "lowcardinality":
+      predicate = Predicate.equalTo(LOW_CARDINALITY_FIELD, "low" + nextValue(lowcardinality));
+      selectivity = 1.0 / lowcardinality;
+      break;
+    case "highcardinality":
+      predicate = Predicate.equalTo(HIGH_CARDINALITY_FIELD, "high" + nextValue(highcardinality));
+      selectivity = 1.0 / highcardinality;
+      break;
+    case "text":
+      predicate = Predicate.contains(TAGS_FIELD, "tag" + nextValue(tagvocabulary));
+      selectivity = 1 - Math.pow(1 - 1.0 / tagvocabulary, tagcount);
+      break;
+    default:
+      Predicate range = nextRange();
+      predicate = Predicate.and(Predicate.equalTo(LOW_CARDINALITY_FIELD, "low" + nextValue(lowcardinality)), range);
+      selectivity = (double) (range.getHigh() - range.getLow()) / numericmax / lowcardinality;
+    }
+
+    Set<String> fields = readallfields ? null : nextReadFields();
+
+    Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+    String name = "QUERY-" + type.toUpperCase(Locale.ROOT);
+    long ist = measurements.getIntendedtartTimeNs();
+    long st = System.nanoTime();
+    Status status = db.query(table, predicate, querylimit, fields, result);
+    long en = System.nanoTime();
+
+    measurements.measure(name, (int) ((en - st) / 1000));
+    measurements.measureIntended(name, (int) ((en - ist) / 1000));
+    measurements.measureCorrected(name, (int) ((en - st) / 1000), st);
+    measurements.reportStatus(name, status);
+    if (status.isOk()) {
+      measurements.measureValue(name + "-ROWS", result.size());
+      measurements.measureValue(name + "-SELECTIVITY", Math.round(selectivity * 1000000));
+    }
+  }
+
+  private static long nextValue(long cardinality) {
+    return (long) (Utils.random().nextDouble() * cardinality);
+  }
+
+  private Predicate nextRange() {
+    long width = 1 + nextValue(rangewidth);
+    long low = nextValue(numericmax - width + 1);
+    return Predicate.range(NUMERIC_FIELD, low, low + width);
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import com.yahoo.ycsb.ByteIterator;
+
+/**
+ * The data points of one {@link TimeSeriesWorkload} thread that are written
+ * after newer ones: late points waiting for the generator to reach their
+ * arrival time, and the points of a key held back by a backfill outage.
+ * <p>
+ * After every {@code backfillperiod} points the key of the next point goes
+ * silent. Its points are held back until {@code backfillsize} of them were
+ * collected or the outage lasted its full span, then handed out in one burst
+ * ahead of any late point.
+ */
+final class TimeSeriesLatePoints {
+  
+  /** Points between backfill outages, the most points held by one and how
+   * long it lasts in timestamp units. */
+  private final int backfillPeriod;
+  private final int backfillSize;
+  private final long backfillSpan;
+  
+  /** Points since the last outage. */
+  private int sinceBackfill;
+  
+  /** The key index silent during the current outage, -1 for none, and the
+   * timestamp the outage ends at. */
+  private int outageKeyIdx = -1;
+  private long outageEnd;
+  
+  /** The points held back by the current outage and those of the last one
+   * still to be written. */
+  private final List<LatePoint> held = new ArrayList<LatePoint>();
+  private final ArrayDeque<LatePoint> burst = new ArrayDeque<LatePoint>();
+  
+  /** Late points in the order they arrive. */
+  private final PriorityQueue<LatePoint> late = new PriorityQueue<LatePoint>();
+  private long sequence;
+  
+  TimeSeriesLatePoints(final int backfillPeriod, final int backfillSize, final long backfillSpan) {
+    this.backfillPeriod = backfillPeriod;
+    this.backfillSize = backfillSize;
+    this.backfillSpan = backfillSpan;
+  }
+  
+  /**
+   * Queues a copy of a point to be written once the generator reaches its
+   * arrival time.
+   */
+  void delay(final String key, final Map<String, ByteIterator> values, final long timestamp, 
+      final long arrival) {
+    late.add(new LatePoint(key, new TreeMap<String, ByteIterator>(values), timestamp, arrival, sequence++));
+  }
+  
+  /**
+   * Starts a backfill outage every {@code backfillperiod} points and holds a
+   * copy of the point back if its key is silent.
+   * @param key The point's key.
+   * @param values The point's tags, timestamp and value.
+   * @param keyIdx The index of the point's key.
+   * @param timestamp The point's timestamp.
+   * @param now The generator's current timestamp.
+   * @return Whether the point was held back.
+   */
+  boolean holdForBackfill(final String key, final Map<String, ByteIterator> values, final int keyIdx, 
+      final long timestamp, final long now) {
+    if (backfillPeriod < 1) {
+      return false;
+    }
+    if (outageKeyIdx < 0) {
+      if (++sinceBackfill < backfillPeriod) {
+        return false;
+      }
+      sinceBackfill = 0;
+      outageKeyIdx = keyIdx;
+      outageEnd = now + backfillSpan;
+    }
+    if (now >= outageEnd) {
+      endOutage();
+      return false;
+    }
+    if (keyIdx != outageKeyIdx) {
+      return false;
+    }
+    held.add(new LatePoint(key, new TreeMap<String, ByteIterator>(values), timestamp, now, sequence++));
+    if (held.size() >= backfillSize) {
+      endOutage();
+    }
+    return true;
+  }
+  
+  /**
+   * @param now The generator's current timestamp.
+   * @return The next point of a backfill burst, or the late point arriving
+   * first if it is due, or null.
+   */
+  LatePoint nextDue(final long now) {
+    if (!burst.isEmpty()) {
+      return burst.poll();
+    }
+    final LatePoint head = late.peek();
+    if (head != null && head.arrival <= now) {
+      return late.poll();
+    }
+    return null;
+  }
+  
+  /**
+   * Ends any outage and takes the next point regardless of its arrival time,
+   * to drain the points when the thread finishes.
+   * @return The next point or null if none are left.
+   */
+  LatePoint drain() {
+    endOutage();
+    return burst.isEmpty() ? late.poll() : burst.poll();
+  }
+  
+  private void endOutage() {
+    burst.addAll(held);
+    held.clear();
+    outageKeyIdx = -1;
+  }
+  
+  /**
+   * A data point that is written after newer ones, in the order of its
+   * arrival timestamp and then of generation.
+   */
+  static final class LatePoint implements Comparable<LatePoint> {
+    private final String key;
+    private final Map<String, ByteIterator> values;
+    private final long timestamp;
+    private final long arrival;
+    private final long sequence;
+    
+    private LatePoint(final String key, final Map<String, ByteIterator> values, final long timestamp,
+        final long arrival, final long sequence) {
+      this.key = key;
+      this.values = values;
+      this.timestamp = timestamp;
+      this.arrival = arrival;
+      this.sequence = sequence;
+    }
+    
+    String getKey() {
+      return key;
+    }
+    
+    Map<String, ByteIterator> getValues() {
+      return values;
+    }
+    
+    long getTimestamp() {
+      return timestamp;
+    }
+    
+    @Override
+    public int compareTo(final LatePoint other) {
+      final int byArrival = Long.compare(arrival, other.arrival);
+      return byArrival != 0 ? byArrival : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+
+/**
+ * A weighted mix of query classes for the {@link TimeSeriesWorkload}, to
+ * replay the queries a dashboard sends as its panels refresh rather than a
+ * single kind of read.
+ * <p>
+ * The {@value #QUERY_MIX_PROPERTY} property lists the class names. Each class
+ * is configured with properties prefixed by {@code querymix.<name>.}:
+ * <ul>
+ * <li><b>weight</b>: the relative frequency of the class (default: 1)</li>
+ * <li><b>window</b>: how far back from the newest data the query reaches, in
+ * the workload's timestamp units (required)</li>
+ * <li><b>aggregation</b>: a function aggregating the matching series into one,
+ * e.g. sum or avg (default: none)</li>
+ * <li><b>groupbykeys</b>: a comma separated list of 0s or 1s marking the tag
+ * keys to group the aggregation by (default: none)</li>
+ * <li><b>downsamplefunction</b> and <b>downsampleinterval</b>: a function and
+ * interval to roll the points up into buckets (default: none)</li>
+ * <li><b>rate</b>: whether to return the rate of change instead of the values
+ * (default: false)</li>
+ * <li><b>topk</b>: return only the k series with the highest values, 0 for all
+ * (default: 0)</li>
+ * <li><b>wildcards</b>: how many of the last tag keys match any value instead of
+ * a random one (default: 0)</li>
+ * </ul>
+ * The latency and status of each class are reported as QUERY-name.
+ */
+public final class TimeSeriesQueryMix {
+  /** The comma separated names of the query classes. Empty for the single read
+   * configured by the workload's query properties. */
+  public static final String QUERY_MIX_PROPERTY = "querymix";
+
+  /** The prefix of the properties configuring each class. */
+  public static final String QUERY_MIX_PREFIX = "querymix.";
+
+  private final Map<String, QueryClass> classes = new LinkedHashMap<>();
+  private final DiscreteGenerator chooser = new DiscreteGenerator();
+
+  /**
+   * @param p The properties to read the classes from.
+   * @param tagPairs The number of tag keys of every series.
+   * @throws WorkloadException If a class is misconfigured.
+   */
+  public TimeSeriesQueryMix(final Properties p, final int tagPairs) throws WorkloadException {
+    boolean weighted = false;
+    for (final String part : p.getProperty(QUERY_MIX_PROPERTY, "").split(",")) {
+      final String name = part.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      final QueryClass query = new QueryClass(p, name, tagPairs);
+      if (classes.put(name, query) != null) {
+        throw new WorkloadException("Query class '" + name + "' is listed more than once.");
+      }
+      if (query.weight > 0) {
+        chooser.addValue(query.weight, name);
+        weighted = true;
+      }
+    }
+    if (!classes.isEmpty() && !weighted) {
+      throw new WorkloadException("At least one query class needs a positive weight.");
+    }
+  }
+
+  /** @return Whether any query classes were configured. */
+  public boolean isEnabled() {
+    return !classes.isEmpty();
+  }
+
+  /** @return The configured classes, in the order they were listed. */
+  public Collection<QueryClass> getClasses() {
+    return classes.values();
+  }
+
+  /** @return A class chosen at random by weight. */
+  public QueryClass next() {
+    return classes.get(chooser.nextString());
+  }
+
+  /**
+   * The shape of one kind of dashboard query.
+   */
+  public static final class QueryClass {
+    private final String name;
+    private final String measurement;
+    private final double weight;
+    private final long window;
+    private final String aggregation;
+    private final boolean[] groupBy;
+    private final String downsampleFunction;
+    private final long downsampleInterval;
+    private final boolean rate;
+    private final int topK;
+    private final int wildcards;
+
+    private QueryClass(final Properties p, final String name, final int tagPairs) throws WorkloadException {
+      this.name = name;
+      measurement = "QUERY-" + name;
+      final String prefix = QUERY_MIX_PREFIX + name + ".";
+      try {
+        weight = Double.parseDouble(p.getProperty(prefix + "weight", "1"));
+        final String windowValue = p.getProperty(prefix + "window");
+        if (windowValue == null || windowValue.isEmpty()) {
+          throw new WorkloadException("Query class '" + name + "' is missing '" + prefix + "window'.");
+        }
+        window = Long.parseLong(windowValue);
+        downsampleInterval = Long.parseLong(p.getProperty(prefix + "downsampleinterval", "0"));
+        topK = Integer.parseInt(p.getProperty(prefix + "topk", "0"));
+        wildcards = Integer.parseInt(p.getProperty(prefix + "wildcards", "0"));
+      } catch (NumberFormatException e) {
+        throw new WorkloadException("Unable to parse the settings of query class '" + name + "'", e);
+      }
+      aggregation = emptyToNull(p.getProperty(prefix + "aggregation"));
+      downsampleFunction = emptyToNull(p.getProperty(prefix + "downsamplefunction"));
+      rate = Boolean.parseBoolean(p.getProperty(prefix + "rate", "false"));
+      if (window <= 0 || weight < 0 || topK < 0 || wildcards < 0 || wildcards > tagPairs) {
+        throw new WorkloadException("Query class '" + name + "' needs a positive window, a non-negative "
+            + "weight and top-k, and at most " + tagPairs + " wildcards.");
+      }
+      if (downsampleFunction != null && downsampleInterval <= 0) {
+        throw new WorkloadException("Query class '" + name + "' needs a positive '" + prefix
+            + "downsampleinterval' to downsample.");
+      }
+
+      final String groupByKeys = emptyToNull(p.getProperty(prefix + "groupbykeys"));
+      if (groupByKeys == null) {
+        groupBy = new boolean[tagPairs];
+      } else {
+        final String[] keys = groupByKeys.split(",");
+        if (keys.length != tagPairs) {
+          throw new WorkloadException("Query class '" + name + "' has " + keys.length
+              + " group by keys but there are " + tagPairs + " tag keys.");
+        }
+        if (aggregation == null) {
+          throw new WorkloadException("Query class '" + name + "' groups by tags without an aggregation.");
+        }
+        groupBy = new boolean[tagPairs];
+        try {
+          for (int i = 0; i < keys.length; i++) {
+            groupBy[i] = Integer.parseInt(keys[i].trim()) != 0;
+          }
+        } catch (NumberFormatException e) {
+          throw new WorkloadException("Unable to parse '" + prefix + "groupbykeys' of query class '" + name + "'", e);
+        }
+      }
+    }
+
+    private static String emptyToNull(final String value) {
+      return value == null || value.isEmpty() ? null : value;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /** @return The name latencies of this class are measured under. */
+    public String getMeasurement() {
+      return measurement;
+    }
+
+    public double getWeight() {
+      return weight;
+    }
+
+    public long getWindow() {
+      return window;
+    }
+
+    /** @return The aggregation function or null for none. */
+    public String getAggregation() {
+      return aggregation;
+    }
+
+    /** @return Whether the aggregation is grouped by the tag key at the index. */
+    public boolean isGroupBy(final int tag) {
+      return groupBy[tag];
+    }
+
+    /** @return The downsampling function or null for none. */
+    public String getDownsampleFunction() {
+      return downsampleFunction;
+    }
+
+    public long getDownsampleInterval() {
+      return downsampleInterval;
+    }
+
+    public boolean isRate() {
+      return rate;
+    }
+
+    public int getTopK() {
+      return topK;
+    }
+
+    public int getWildcards() {
+      return wildcards;
+    }
+  }
+}
@@ -16,8 +16,12 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -28,6 +32,7 @@ import java.util.concurrent.TimeUnit;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.CoalescingDB;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.NumericByteIterator;
 import com.yahoo.ycsb.Status;
@@ -36,7 +41,6 @@ import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.Workload;
 import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.IncrementingPrintableStringGenerator;
 import com.yahoo.ycsb.generator.NumberGenerator;
@@ -124,8 +128,11 @@ import com.yahoo.ycsb.measurements.Measurements;
  * <p>
  * As mentioned, the workload generates strings for the keys and tags. On initialization
  * three string generators are created using the {@link IncrementingPrintableStringGenerator} 
- * implementation. Then the generators fill three arrays with values based on the
- * number of keys, the number of tags and the cardinality of each tag key/value pair.
+ * implementation. The tag keys are generated up front while keys and tag values are
+ * computed from their index when needed, and each thread caches the most recent ones
+ * ({@code seriescachesize}). A series is identified by a 64 bit index that is the key
+ * index followed by the index of each tag value, as the digits of a mixed radix number,
+ * so the number of series is only bounded by that index and not by memory.
  * This implementation gives us time series like the example table where every string
  * starts at something like "AA" (depending on the length of keys, tag keys and tag values)
  * and continuing to "ZZ" wherein they rollover back to "AA". 
@@ -143,7 +150,7 @@ import com.yahoo.ycsb.measurements.Measurements;
  * tag key "AB" would have values "AA" and "AB" due to a cardinality of 2. This 
  * cardinality map, along with the number of unique time series keys determines how 
  * many unique time series are generated for the workload. Tag values share a common
- * array of generated strings to save on memory.
+ * sequence of generated strings.
  * <p>
  * <b>Operation Order</b>
  * <p>
@@ -156,7 +163,25 @@ import com.yahoo.ycsb.measurements.Measurements;
  * property determines the percentage of time series that are delayed by up to
  * {@code delayedintervals} intervals. E.g. setting this value to 0.05 means that 
  * 5% of the time series will be written with timestamps earlier than the timestamp
- * generator's current time.
+ * generator's current time. By default each delayed series lags by a fixed number of
+ * intervals; {@code latenessdistribution} can instead draw the lag of every point from
+ * an exponential or a heavy tailed Pareto distribution with a mean of
+ * {@code latenessmean} intervals, still capped at {@code delayedintervals}. Such a point
+ * keeps its timestamp but is held back and only written once the generator has moved
+ * on by its lag, so every interval of a series is still written exactly once.
+ * <p>
+ * To mimic sources catching up after an outage, after every {@code backfillperiod}
+ * inserts the time series key of the next point goes silent while the thread's other
+ * keys keep reporting. Its points are held back until {@code backfillsize} of them
+ * were collected or {@code backfilldepth} intervals have passed, then written in one
+ * burst. Points still held back when a thread finishes are written on cleanup.
+ * With {@code churnperiod} set, a different
+ * {@code churnfraction} of the series is silent in each period of that many intervals,
+ * so series appear and disappear over time.
+ * <p>
+ * Every insert is reported under INSERT-ORDER as OK, or as OUT_OF_ORDER when it is older
+ * than a point the thread has already written, giving the realized out of order ratio.
+ * How many intervals out of order points are behind is measured as INSERT-LATENESS.
  * </p>
  * <b>Reads and Scans</b>
  * <p>
@@ -199,6 +224,17 @@ import com.yahoo.ycsb.measurements.Measurements;
  * to the DB with timestamps that are beyond the written data time range (or even the
  * system clock of the DB).
  * <p>
+ * <b>Query Mix</b> - Instead of a single kind of read, the {@code querymix} property
+ * may list weighted classes of queries such as a dashboard sends as its panels
+ * refresh, e.g. the raw last 5 minutes, an hourly average or the top 10 series of
+ * the last day (see {@link TimeSeriesQueryMix}). Each class reads a window ending at
+ * the newest timestamp written and may add the aggregation and downsampling fields
+ * above, {@code topkkey} (defaulting to "YCSBTK") with the number of series to
+ * return, or {@code ratekey} (defaulting to "YCSBRT") without a value to ask for
+ * the rate of change. Tag keys matching any value are sent with the value in
+ * {@code querywildcard} (defaulting to "*"), e.g. {@code AA=*}. Latencies are
+ * reported per class as {@code QUERY-<name>}.
+ * <p>
  * <b>Deletes</b>
  * <p>
  * Because the delete API only accepts a single key, a full key and tag key/value 
@@ -247,11 +283,21 @@ import com.yahoo.ycsb.measurements.Measurements;
  * series, only 5% of the timestamps in the interval will have a value. The distribution
  * of values is random.
  * <p>
+ * <b>Batching</b>
+ * <p>
+ * Time series clients usually send many data points per request. With
+ * {@code insertbatchsize} greater than 1, each thread collects the points it
+ * generates, across series and timestamps, and sends them with one
+ * {@link DB#batchInsert(String, List, List)} call once the batch is full or its
+ * oldest point has waited {@code insertbatchflushms} milliseconds. Each call still
+ * counts as one operation. The batch latency is reported as BATCH-INSERT and the
+ * latency of every point, from generation until its batch returned, as INSERT-POINT.
+ * <p>
  * <b>Notes/Warnings</b>
  * <p>
  * <ul>
- * <li>Because time series keys and tag key/values are generated and stored in memory,
- * be careful of setting the cardinality too high for the JVM's heap.</li>
+ * <li>Each tag value index is an int, so the cardinality of a single tag is limited
+ * to Java's Integer.MAX_VALUE, while their product may use the whole 64 bit range.</li>
  * <li>When running for data integrity, a number of settings are incompatible and will
  * throw errors. Check the error messages for details.</li>
  * <li>Databases that support keys only and can't store tags should order and then 
@@ -305,6 +351,22 @@ public class TimeSeriesWorkload extends Workload {
     }
   }
   
+  /**
+   * How far behind the writer's current time delayed series are.
+   */
+  public enum LatenessDistribution {
+    /** Each series is behind by a fixed number of intervals derived from its index. */
+    FIXED,
+    /** Each point is behind by an exponentially distributed number of intervals. */
+    EXPONENTIAL,
+    /** Each point is behind by a Pareto distributed, i.e. heavy tailed, number of intervals. */
+    PARETO
+  }
+  
+  /** Status reported under INSERT-ORDER for an insert older than one written before it. */
+  public static final Status OUT_OF_ORDER = new Status("OUT_OF_ORDER",
+      "The data point is older than a data point written before it.");
+  
   /** Name and default value for the timestamp key property. */
   public static final String TIMESTAMP_KEY_PROPERTY = "timestampkey";
   public static final String TIMESTAMP_KEY_PROPERTY_DEFAULT = "YCSBTS";
@@ -401,13 +463,26 @@ public class TimeSeriesWorkload extends Workload {
   /** Name and default value for the downsampling interval property. */
   public static final String DOWNSAMPLING_INTERVAL_PROPERTY = "downsamplinginterval";
   
+  /** Name and default value for the top-k key property. */
+  public static final String TOPK_KEY_PROPERTY = "topkkey";
+  public static final String TOPK_KEY_PROPERTY_DEFAULT = "YCSBTK";
+  
+  /** Name and default value for the rate key property. */
+  public static final String RATE_KEY_PROPERTY = "ratekey";
+  public static final String RATE_KEY_PROPERTY_DEFAULT = "YCSBRT";
+  
+  /** Name and default value for the tag value matching any value in queries. */
+  public static final String QUERY_WILDCARD_PROPERTY = "querywildcard";
+  public static final String QUERY_WILDCARD_PROPERTY_DEFAULT = "*";
+  
   /** The properties to pull settings from. */
   protected Properties properties;
   
-  /** Generators for keys, tag keys and tag values. */
-  protected Generator<String> keyGenerator;
-  protected Generator<String> tagKeyGenerator;
-  protected Generator<String> tagValueGenerator;
+  /** Generators for keys, tag keys and tag values. Keys and tag values are 
+   * computed from their index on demand rather than stored. */
+  protected IncrementingPrintableStringGenerator keyGenerator;
+  protected IncrementingPrintableStringGenerator tagKeyGenerator;
+  protected IncrementingPrintableStringGenerator tagValueGenerator;
   
   /** The timestamp key, defaults to "YCSBTS". */
   protected String timestampKey;
@@ -432,14 +507,14 @@ public class TimeSeriesWorkload extends Workload {
   protected ValueType valueType;
   
   /** Used to calculate an offset for each time series. */
-  protected int[] cumulativeCardinality;
+  protected long[] cumulativeCardinality;
   
   /** The calculated total cardinality based on the config. */
-  protected int totalCardinality;
+  protected long totalCardinality;
   
   /** The calculated per-time-series-key cardinality. I.e. the number of unique
    * tag key and value combinations. */
-  protected int perKeyCardinality;
+  protected long perKeyCardinality;
   
   /** How much data to scan for in each call. */
   protected NumberGenerator scanlength;
@@ -466,18 +541,31 @@ public class TimeSeriesWorkload extends Workload {
   /** How many time series keys will be generated. */
   protected int numKeys;
   
-  /** The generated list of possible time series key values. */
-  protected String[] keys;
-
   /** The generated list of possible tag key values. */
   protected String[] tagKeys;
   
-  /** The generated list of possible tag value values. */
-  protected String[] tagValues;
-  
   /** The cardinality for each tag key. */
   protected int[] tagCardinality;
   
+  /** The number of distinct tag values, i.e. the highest tag cardinality. */
+  protected int maxCardinality;
+  
+  /** Map key and tag value indices to the index of their string in the
+   * generator's sequence as {@code (index * stride + offset) % count}, which is
+   * the identity unless the time series order is randomized. */
+  protected int keyStride = 1;
+  protected int keyOffset;
+  protected int tagValueStride = 1;
+  protected int tagValueOffset;
+  
+  /** Name and default value for the number of keys, tag values and, when
+   * reusing write buffers, tag iterators each thread caches. */
+  public static final String SERIES_CACHE_SIZE_PROPERTY = "seriescachesize";
+  public static final String SERIES_CACHE_SIZE_PROPERTY_DEFAULT = "10000";
+  
+  /** The size of each per-thread cache of series strings. */
+  protected int seriesCacheSize;
+  
   /** A helper to skip non-incrementing tag values. */
   protected int firstIncrementableCardinality;
   
@@ -490,6 +578,63 @@ public class TimeSeriesWorkload extends Workload {
   /** The maximum number of intervals to delay a series. */
   protected int delayedIntervals;
   
+  /** Name and default value for the distribution of delays of delayed series. */
+  public static final String LATENESS_DISTRIBUTION_PROPERTY = "latenessdistribution";
+  public static final String LATENESS_DISTRIBUTION_PROPERTY_DEFAULT = "fixed";
+  
+  /** Name and default value for the mean delay, in intervals, of the exponential 
+   * and Pareto lateness distributions. */
+  public static final String LATENESS_MEAN_PROPERTY = "latenessmean";
+  public static final String LATENESS_MEAN_PROPERTY_DEFAULT = "1.0";
+  
+  /** Name and default value for the shape of the Pareto lateness distribution. 
+   * Must be greater than 1; the closer to 1, the heavier the tail. */
+  public static final String LATENESS_SHAPE_PROPERTY = "latenessshape";
+  public static final String LATENESS_SHAPE_PROPERTY_DEFAULT = "1.5";
+  
+  /** Name and default value for the number of inserts between the backfill
+   * bursts of each thread. 0 disables backfill. */
+  public static final String BACKFILL_PERIOD_PROPERTY = "backfillperiod";
+  public static final String BACKFILL_PERIOD_PROPERTY_DEFAULT = "0";
+  
+  /** Name and default value for the most points in a backfill burst. */
+  public static final String BACKFILL_SIZE_PROPERTY = "backfillsize";
+  public static final String BACKFILL_SIZE_PROPERTY_DEFAULT = "100";
+  
+  /** Name and default value for the most intervals a key is silent before its
+   * backfill burst. */
+  public static final String BACKFILL_DEPTH_PROPERTY = "backfilldepth";
+  public static final String BACKFILL_DEPTH_PROPERTY_DEFAULT = "60";
+  
+  /** Name and default value for the length, in intervals, of a churn period. 
+   * 0 disables churn. */
+  public static final String CHURN_PERIOD_PROPERTY = "churnperiod";
+  public static final String CHURN_PERIOD_PROPERTY_DEFAULT = "0";
+  
+  /** Name and default value for the fraction of series silent in each churn period. */
+  public static final String CHURN_FRACTION_PROPERTY = "churnfraction";
+  public static final String CHURN_FRACTION_PROPERTY_DEFAULT = "0.1";
+  
+  /** The distribution of delays for delayed series. */
+  protected LatenessDistribution latenessDistribution;
+  
+  /** The mean delay in intervals for the exponential and Pareto distributions. */
+  protected double latenessMean;
+  
+  /** The shape of the Pareto distribution. */
+  protected double latenessShape;
+  
+  /** Inserts between backfill outages, the most points per burst and the most
+   * intervals an outage lasts. */
+  protected int backfillPeriod;
+  protected int backfillSize;
+  protected int backfillDepth;
+  
+  /** The length of a churn period in intervals and the fraction of series 
+   * silent during each. */
+  protected int churnPeriod;
+  protected double churnFraction;
+  
   /** Optional query time interval during reads/scans. */
   protected int queryTimeSpan;
   
@@ -529,6 +674,52 @@ public class TimeSeriesWorkload extends Workload {
   
   /** The downsampling interval. */
   protected int downsampleInterval;
+  
+  /** The weighted query classes replacing the single read, if any. */
+  protected TimeSeriesQueryMix queryMix;
+  
+  /** The keys for top-k and rate queries. */
+  protected String topKKey;
+  protected String rateKey;
+  
+  /** The tag value sent for tag keys matching any value. */
+  protected String queryWildcard;
+
+  /** Name and default value for the property reusing one map and set of byte
+   * iterators per thread for every write. Only safe with DB bindings that are
+   * done with the values when insert() or update() returns. */
+  public static final String REUSE_WRITE_BUFFERS_PROPERTY = "reusewritebuffers";
+  public static final String REUSE_WRITE_BUFFERS_PROPERTY_DEFAULT = "false";
+
+  /** Whether or not threads reuse their write map and iterators. */
+  protected boolean reuseWriteBuffers;
+
+  /** Name and default value for the number of data points each thread sends
+   * in one {@link DB#batchInsert(String, List, List)} call. 1 inserts every
+   * point on its own. */
+  public static final String INSERT_BATCH_SIZE_PROPERTY = "insertbatchsize";
+  public static final String INSERT_BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  /** Name and default value for the longest time in milliseconds a data point
+   * waits for its batch to fill before the batch is sent anyway. 0 only sends
+   * full batches. */
+  public static final String INSERT_BATCH_FLUSH_PROPERTY = "insertbatchflushms";
+  public static final String INSERT_BATCH_FLUSH_PROPERTY_DEFAULT = "0";
+
+  /** How many data points to send per insert request. */
+  protected int insertBatchSize;
+
+  /** How long a data point may wait in a partial batch, 0 for no limit. */
+  protected long insertBatchFlushNanos;
+
+  /** Indices into {@link #tagKeys} in sorted order, for the validation hash. */
+  protected int[] sortedTagKeys;
+
+  /** The {@link String#hashCode()} of each tag key and value along with 31
+   * raised to the length of the string, so the hash of a concatenation can be
+   * computed without building it. */
+  protected int[] tagKeyHashes;
+  protected int[] tagKeyPowers;
 
   /**
    * Set to true if want to check correctness of reads. Must also
@@ -673,10 +864,18 @@ public class TimeSeriesWorkload extends Workload {
     
     delayedSeries = Double.parseDouble(p.getProperty(DELAYED_SERIES_PROPERTY, DELAYED_SERIES_PROPERTY_DEFAULT));
     delayedIntervals = Integer.parseInt(p.getProperty(DELAYED_INTERVALS_PROPERTY, DELAYED_INTERVALS_PROPERTY_DEFAULT));
+    initLateness(p);
     
     valueType = ValueType.fromString(p.getProperty(VALUE_TYPE_PROPERTY, VALUE_TYPE_PROPERTY_DEFAULT));
+    reuseWriteBuffers = Boolean.parseBoolean(p.getProperty(REUSE_WRITE_BUFFERS_PROPERTY,
+        REUSE_WRITE_BUFFERS_PROPERTY_DEFAULT));
+    insertBatchSize = Integer.parseInt(p.getProperty(INSERT_BATCH_SIZE_PROPERTY,
+        INSERT_BATCH_SIZE_PROPERTY_DEFAULT));
+    insertBatchFlushNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(p.getProperty(
+        INSERT_BATCH_FLUSH_PROPERTY, INSERT_BATCH_FLUSH_PROPERTY_DEFAULT)));
     table = p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
     initKeysAndTags();
+    initQueryMix(p);
     validateSettings();
   }
   
@@ -693,12 +892,26 @@ public class TimeSeriesWorkload extends Workload {
     if (threadstate == null) {
       throw new IllegalStateException("Missing thread state.");
     }
-    final Map<String, ByteIterator> tags = new TreeMap<String, ByteIterator>();
-    final String key = ((ThreadState)threadstate).nextDataPoint(tags, true);
-    if (db.insert(table, key, tags) == Status.OK) {
-      return true;
+    final ThreadState state = (ThreadState) threadstate;
+    final Map<String, ByteIterator> tags = state.writeMap();
+    final String key = state.nextInsert(tags);
+    if (insertBatchSize > 1) {
+      return state.batchInsert(db, key, tags).isOk();
+    }
+    // a coalescing layer answers BATCHED_OK for buffered points
+    return db.insert(table, key, tags).isOk();
+  }
+  
+  @Override
+  public void cleanupThread(DB db, Object threadstate) throws WorkloadException {
+    if (threadstate == null) {
+      return;
+    }
+    final ThreadState state = (ThreadState) threadstate;
+    state.insertLatePoints(db);
+    if (insertBatchSize > 1) {
+      state.flushBatch(db);
     }
-    return false;
   }
 
   @Override
@@ -706,9 +919,16 @@ public class TimeSeriesWorkload extends Workload {
     if (threadstate == null) {
       throw new IllegalStateException("Missing thread state.");
     }
+    if (insertBatchSize > 1) {
+      ((ThreadState) threadstate).flushExpiredBatch(db);
+    }
     switch (operationchooser.nextString()) {
     case "READ":
-      doTransactionRead(db, threadstate);
+      if (queryMix.isEnabled()) {
+        doTransactionQuery(db, threadstate);
+      } else {
+        doTransactionRead(db, threadstate);
+      }
       break;
     case "UPDATE":
       doTransactionUpdate(db, threadstate);
@@ -730,7 +950,7 @@ public class TimeSeriesWorkload extends Workload {
 
   protected void doTransactionRead(final DB db, Object threadstate) {
     final ThreadState state = (ThreadState) threadstate;
-    final String keyname = keys[keychooser.nextValue().intValue()];
+    final String keyname = state.key(keychooser.nextValue().intValue());
     
     int offsets = state.queryOffsetGenerator.nextValue().intValue();
     //int offsets = Utils.random().nextInt(maxOffsets - 1);
@@ -748,7 +968,7 @@ public class TimeSeriesWorkload extends Workload {
         fields.add(tagKeys[i]);
       } else {
         fields.add(tagKeys[i] + tagPairDelimiter + 
-            tagValues[Utils.random().nextInt(tagCardinality[i])]);
+            state.tagValue(Utils.random().nextInt(tagCardinality[i])));
       }
     }
     
@@ -778,11 +998,60 @@ public class TimeSeriesWorkload extends Workload {
     }
   }
   
+  /**
+   * Sends a read of a class chosen from the {@link #queryMix}, over a window
+   * ending at the newest data, and measures it under the name of the class.
+   * @param db The DB to read from.
+   * @param threadstate The state of the calling thread.
+   */
+  protected void doTransactionQuery(final DB db, Object threadstate) {
+    final ThreadState state = (ThreadState) threadstate;
+    final TimeSeriesQueryMix.QueryClass query = queryMix.next();
+    final String keyname = state.key(keychooser.nextValue().intValue());
+    
+    final Set<String> fields = new HashSet<String>();
+    final int firstWildcard = tagPairs - query.getWildcards();
+    for (int i = 0; i < tagPairs; ++i) {
+      if (query.isGroupBy(i)) {
+        fields.add(tagKeys[i]);
+      } else if (i >= firstWildcard) {
+        fields.add(tagKeys[i] + tagPairDelimiter + queryWildcard);
+      } else {
+        fields.add(tagKeys[i] + tagPairDelimiter + 
+            state.tagValue(Utils.random().nextInt(tagCardinality[i])));
+      }
+    }
+    
+    final long endTimestamp = Math.max(state.timestampGenerator.currentValue(),
+        state.startTimestamp + state.timestampGenerator.getOffset(maxOffsets - 1));
+    final long startTimestamp = Math.max(state.startTimestamp, endTimestamp - query.getWindow());
+    fields.add(timestampKey + tagPairDelimiter + startTimestamp + queryTimeSpanDelimiter + endTimestamp);
+    if (query.getAggregation() != null) {
+      fields.add(groupByKey + tagPairDelimiter + query.getAggregation());
+    }
+    if (query.getDownsampleFunction() != null) {
+      fields.add(downsampleKey + tagPairDelimiter + query.getDownsampleFunction() 
+          + query.getDownsampleInterval());
+    }
+    if (query.getTopK() > 0) {
+      fields.add(topKKey + tagPairDelimiter + query.getTopK());
+    }
+    if (query.isRate()) {
+      fields.add(rateKey);
+    }
+    
+    final Map<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    final long start = System.nanoTime();
+    final Status status = db.read(table, keyname, fields, cells);
+    measurements.measure(query.getMeasurement(), (int) ((System.nanoTime() - start) / 1000));
+    measurements.reportStatus(query.getMeasurement(), status);
+  }
+  
   protected void doTransactionUpdate(final DB db, Object threadstate) {
     if (threadstate == null) {
       throw new IllegalStateException("Missing thread state.");
     }
-    final Map<String, ByteIterator> tags = new TreeMap<String, ByteIterator>();
+    final Map<String, ByteIterator> tags = ((ThreadState)threadstate).writeMap();
     final String key = ((ThreadState)threadstate).nextDataPoint(tags, false);
     db.update(table, key, tags);
   }
@@ -794,7 +1063,7 @@ public class TimeSeriesWorkload extends Workload {
   protected void doTransactionScan(final DB db, Object threadstate) {
     final ThreadState state = (ThreadState) threadstate;
     
-    final String keyname = keys[Utils.random().nextInt(keys.length)];
+    final String keyname = state.key(Utils.random().nextInt(numKeys));
     
     // choose a random scan length
     int len = scanlength.nextValue().intValue();
@@ -814,7 +1083,7 @@ public class TimeSeriesWorkload extends Workload {
         fields.add(tagKeys[i]);
       } else {
         fields.add(tagKeys[i] + tagPairDelimiter + 
-            tagValues[Utils.random().nextInt(tagCardinality[i])]);
+            state.tagValue(Utils.random().nextInt(tagCardinality[i])));
       }
     }
     
@@ -843,7 +1112,7 @@ public class TimeSeriesWorkload extends Workload {
   protected void doTransactionDelete(final DB db, Object threadstate) {
     final ThreadState state = (ThreadState) threadstate;
     
-    final StringBuilder buf = new StringBuilder().append(keys[Utils.random().nextInt(keys.length)]);
+    final StringBuilder buf = new StringBuilder().append(state.key(Utils.random().nextInt(numKeys)));
     
     int offsets = Utils.random().nextInt(maxOffsets - 1);
     final long startTimestamp;
@@ -860,7 +1129,7 @@ public class TimeSeriesWorkload extends Workload {
            .append(tagKeys[i]);
       } else {
         buf.append(deleteDelimiter).append(tagKeys[i] + tagPairDelimiter + 
-            tagValues[Utils.random().nextInt(tagCardinality[i])]);
+            state.tagValue(Utils.random().nextInt(tagCardinality[i])));
       }
     }
     
@@ -929,14 +1198,46 @@ public class TimeSeriesWorkload extends Workload {
    */
   protected long validationFunction(final String key, final long timestamp, 
                                     final TreeMap<String, String> tags) {
-    final StringBuilder validationBuffer = new StringBuilder(keys[0].length() + 
-        (tagPairs * tagKeys[0].length()) + (tagPairs * tagCardinality[1]));
+    final StringBuilder validationBuffer = new StringBuilder();
     for (final Entry<String, String> pair : tags.entrySet()) {
       validationBuffer.append(pair.getKey()).append(pair.getValue());
     }
     return (long) validationBuffer.toString().hashCode() ^ timestamp;
   }
   
+  /**
+   * Computes the same value as {@link #validationFunction(String, long, TreeMap)}
+   * for the tag values of a series, folding in the hash codes of the tag keys
+   * and values instead of concatenating the strings.
+   * @param values The tag value for each tag key, in the order of {@link #tagKeys}.
+   * @param timestamp A timestamp in the proper units for the workload.
+   * @return A hash value as an 8 byte integer.
+   */
+  protected long validationHash(final String[] values, final long timestamp) {
+    int hash = 0;
+    for (final int i : sortedTagKeys) {
+      hash = hash * tagKeyPowers[i] + tagKeyHashes[i];
+      hash = hash * hashPower(values[i].length()) + values[i].hashCode();
+    }
+    return (long) hash ^ timestamp;
+  }
+  
+  /**
+   * @param idx A time series key index from 0 to {@code fieldcount - 1}.
+   * @return The time series key, computed from its index.
+   */
+  protected String keyAt(final int idx) {
+    return keyGenerator.valueAt(((long) idx * keyStride + keyOffset) % numKeys);
+  }
+  
+  /**
+   * @param idx A tag value index lower than the highest tag cardinality.
+   * @return The tag value, computed from its index.
+   */
+  protected String tagValueAt(final int idx) {
+    return tagValueGenerator.valueAt(((long) idx * tagValueStride + tagValueOffset) % maxCardinality);
+  }
+  
   /**
    * Breaks out the keys, tags and cardinality initialization in another method
    * to keep CheckStyle happy.
@@ -954,6 +1255,11 @@ public class TimeSeriesWorkload extends Workload {
     keyGenerator = new IncrementingPrintableStringGenerator(keyLength);
     tagKeyGenerator = new IncrementingPrintableStringGenerator(tagKeyLength);
     tagValueGenerator = new IncrementingPrintableStringGenerator(tagValueLength);
+    seriesCacheSize = Integer.parseInt(properties.getProperty(SERIES_CACHE_SIZE_PROPERTY, 
+        SERIES_CACHE_SIZE_PROPERTY_DEFAULT));
+    if (seriesCacheSize < 1) {
+      throw new WorkloadException("'" + SERIES_CACHE_SIZE_PROPERTY + "' must be greater than zero.");
+    }
     
     final int threads = Integer.parseInt(properties.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
     final String tagCardinalityString = properties.getProperty(
@@ -963,7 +1269,7 @@ public class TimeSeriesWorkload extends Workload {
     int idx = 0;
     totalCardinality = numKeys;
     perKeyCardinality = 1;
-    int maxCardinality = 0;
+    maxCardinality = 0;
     for (final String card : tagCardinalityParts) {
       try {
         tagCardinality[idx] = Integer.parseInt(card.trim());
@@ -975,6 +1281,10 @@ public class TimeSeriesWorkload extends Workload {
         throw new WorkloadException("Cardinality must be greater than zero: " + 
             tagCardinality[idx]);
       }
+      if (totalCardinality > Long.MAX_VALUE / tagCardinality[idx]) {
+        throw new WorkloadException("The total cardinality of the time series exceeds " 
+            + Long.MAX_VALUE);
+      }
       totalCardinality *= tagCardinality[idx];
       perKeyCardinality *= tagCardinality[idx];
       if (tagCardinality[idx] > maxCardinality) {
@@ -993,7 +1303,7 @@ public class TimeSeriesWorkload extends Workload {
     }
     
     // fill tags without explicit cardinality with 1
-    if (idx < tagPairs) {
+    while (idx < tagPairs) {
       tagCardinality[idx++] = 1;
     }
     
@@ -1004,43 +1314,113 @@ public class TimeSeriesWorkload extends Workload {
       }
     }
     
-    keys = new String[numKeys];
     tagKeys = new String[tagPairs];
-    tagValues = new String[maxCardinality];
-    for (int i = 0; i < numKeys; ++i) {
-      keys[i] = keyGenerator.nextString();
-    }
-
     for (int i = 0; i < tagPairs; ++i) {
       tagKeys[i] = tagKeyGenerator.nextString();
     }
     
-    for (int i = 0; i < maxCardinality; i++) {
-      tagValues[i] = tagValueGenerator.nextString();
-    }
     if (randomizeTimeseriesOrder) {
-      Utils.shuffleArray(keys);
-      Utils.shuffleArray(tagValues);
+      keyStride = coprimeStride(numKeys);
+      keyOffset = Utils.random().nextInt(numKeys);
+      tagValueStride = coprimeStride(maxCardinality);
+      tagValueOffset = Utils.random().nextInt(maxCardinality);
     }
+    initValidationHashes();
     
-    maxOffsets = (recordcount / totalCardinality) + 1;
-    final int[] keyAndTagCardinality = new int[tagPairs + 1];
-    keyAndTagCardinality[0] = numKeys;
-    for (int i = 0; i < tagPairs; i++) {
-      keyAndTagCardinality[i + 1] = tagCardinality[i];
-    }
+    maxOffsets = (int) (recordcount / totalCardinality) + 1;
     
-    cumulativeCardinality = new int[keyAndTagCardinality.length];
-    for (int i = 0; i < keyAndTagCardinality.length; i++) {
-      int cumulation = 1;
-      for (int x = i; x <= keyAndTagCardinality.length - 1; x++) {
-        cumulation *= keyAndTagCardinality[x];
-      }
-      if (i > 0) {
-        cumulativeCardinality[i - 1] = cumulation;
+    // the weight of each digit of the mixed radix series index, i.e. the key
+    // index followed by the index of each tag value
+    cumulativeCardinality = new long[tagPairs + 1];
+    cumulativeCardinality[tagPairs] = 1;
+    for (int i = tagPairs - 1; i >= 0; i--) {
+      cumulativeCardinality[i] = cumulativeCardinality[i + 1] * tagCardinality[i];
+    }
+  }
+  
+  /**
+   * @return A random stride co-prime with the count, so that stepping through
+   * the indices with it visits each of them once, in a scrambled order.
+   */
+  private static int coprimeStride(final int count) {
+    if (count < 3) {
+      return 1;
+    }
+    while (true) {
+      final int stride = 1 + Utils.random().nextInt(count - 1);
+      if (BigInteger.valueOf(stride).gcd(BigInteger.valueOf(count)).intValue() == 1) {
+        return stride;
       }
     }
-    cumulativeCardinality[cumulativeCardinality.length - 1] = 1;
+  }
+  
+  /**
+   * Caches the hash codes of the tag keys so that
+   * {@link #validationHash(String[], long)} runs without allocating.
+   */
+  protected void initValidationHashes() {
+    final TreeMap<String, Integer> order = new TreeMap<String, Integer>();
+    for (int i = 0; i < tagKeys.length; i++) {
+      order.put(tagKeys[i], i);
+    }
+    sortedTagKeys = new int[order.size()];
+    int idx = 0;
+    for (final Integer i : order.values()) {
+      sortedTagKeys[idx++] = i;
+    }
+    tagKeyHashes = new int[tagKeys.length];
+    tagKeyPowers = new int[tagKeys.length];
+    for (int i = 0; i < tagKeys.length; i++) {
+      tagKeyHashes[i] = tagKeys[i].hashCode();
+      tagKeyPowers[i] = hashPower(tagKeys[i].length());
+    }
+  }
+  
+  private static int hashPower(final int length) {
+    int power = 1;
+    for (int i = 0; i < length; i++) {
+      power *= 31;
+    }
+    return power;
+  }
+  
+  /**
+   * Parses the query mix and the keys of the fields only it sends.
+   * @param p The properties to pull settings from.
+   * @throws WorkloadException If a query class was invalid.
+   */
+  protected void initQueryMix(final Properties p) throws WorkloadException {
+    topKKey = p.getProperty(TOPK_KEY_PROPERTY, TOPK_KEY_PROPERTY_DEFAULT);
+    rateKey = p.getProperty(RATE_KEY_PROPERTY, RATE_KEY_PROPERTY_DEFAULT);
+    queryWildcard = p.getProperty(QUERY_WILDCARD_PROPERTY, QUERY_WILDCARD_PROPERTY_DEFAULT);
+    queryMix = new TimeSeriesQueryMix(p, tagPairs);
+  }
+  
+  /**
+   * Parses the lateness, backfill and churn settings.
+   * @param p The properties to pull settings from.
+   * @throws WorkloadException If a setting was invalid.
+   */
+  protected void initLateness(final Properties p) throws WorkloadException {
+    try {
+      latenessDistribution = LatenessDistribution.valueOf(p.getProperty(LATENESS_DISTRIBUTION_PROPERTY, 
+          LATENESS_DISTRIBUTION_PROPERTY_DEFAULT).toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException("Unknown lateness distribution", e);
+    }
+    latenessMean = Double.parseDouble(p.getProperty(LATENESS_MEAN_PROPERTY, LATENESS_MEAN_PROPERTY_DEFAULT));
+    latenessShape = Double.parseDouble(p.getProperty(LATENESS_SHAPE_PROPERTY, LATENESS_SHAPE_PROPERTY_DEFAULT));
+    if (latenessDistribution == LatenessDistribution.PARETO && latenessShape <= 1) {
+      throw new WorkloadException("'" + LATENESS_SHAPE_PROPERTY + "' must be greater than 1.");
+    }
+    backfillPeriod = Integer.parseInt(p.getProperty(BACKFILL_PERIOD_PROPERTY, BACKFILL_PERIOD_PROPERTY_DEFAULT));
+    backfillSize = Integer.parseInt(p.getProperty(BACKFILL_SIZE_PROPERTY, BACKFILL_SIZE_PROPERTY_DEFAULT));
+    backfillDepth = Integer.parseInt(p.getProperty(BACKFILL_DEPTH_PROPERTY, BACKFILL_DEPTH_PROPERTY_DEFAULT));
+    churnPeriod = Integer.parseInt(p.getProperty(CHURN_PERIOD_PROPERTY, CHURN_PERIOD_PROPERTY_DEFAULT));
+    churnFraction = Double.parseDouble(p.getProperty(CHURN_FRACTION_PROPERTY, CHURN_FRACTION_PROPERTY_DEFAULT));
+    if (churnFraction < 0 || churnFraction >= 1) {
+      throw new WorkloadException("'" + CHURN_FRACTION_PROPERTY + "' must be at least 0 and less than 1.");
+    }
   }
   
   /**
@@ -1069,12 +1449,33 @@ public class TimeSeriesWorkload extends Workload {
         throw new WorkloadException("Data integrity was enabled. 'randomizetimeseriesorder' must "
             + "be false.");
       }
+      if (queryMix.isEnabled()) {
+        throw new WorkloadException("Data integrity was enabled. '" 
+            + TimeSeriesQueryMix.QUERY_MIX_PROPERTY + "' must be empty.");
+      }
       final String startTimestamp = properties.getProperty(CoreWorkload.INSERT_START_PROPERTY);
       if (startTimestamp == null || startTimestamp.isEmpty()) {
         throw new WorkloadException("Data integrity was enabled. 'insertstart' must "
             + "be set to a Unix Epoch timestamp.");
       }
     }
+    if (reuseWriteBuffers && Boolean.parseBoolean(properties.getProperty(
+        CoalescingDB.COALESCE_PROPERTY, CoalescingDB.COALESCE_PROPERTY_DEFAULT))) {
+      throw new WorkloadException("'" + REUSE_WRITE_BUFFERS_PROPERTY + "' cannot be used with '"
+          + CoalescingDB.COALESCE_PROPERTY + "' as buffered writes hold on to their values.");
+    }
+    if (insertBatchSize < 1) {
+      throw new WorkloadException("'" + INSERT_BATCH_SIZE_PROPERTY + "' must be greater than zero.");
+    }
+    if (reuseWriteBuffers && insertBatchSize > 1) {
+      throw new WorkloadException("'" + REUSE_WRITE_BUFFERS_PROPERTY + "' cannot be used with '"
+          + INSERT_BATCH_SIZE_PROPERTY + "' as batched points hold on to their values.");
+    }
+    if (reuseWriteBuffers && (backfillPeriod > 0
+        || (delayedSeries > 0 && latenessDistribution != LatenessDistribution.FIXED))) {
+      throw new WorkloadException("'" + REUSE_WRITE_BUFFERS_PROPERTY + "' cannot be used with late or "
+          + "backfilled points as delayed points hold on to their values.");
+    }
   }
   
   /**
@@ -1105,6 +1506,38 @@ public class TimeSeriesWorkload extends Workload {
     /** The starting timestamp. */
     protected long startTimestamp;
     
+    /** The newest timestamp inserted by this thread, to spot out of order inserts. */
+    protected long newestTimestamp = Long.MIN_VALUE;
+    
+    /** Late and backfilled points still to be written. */
+    private final TimeSeriesLatePoints latePoints = 
+        new TimeSeriesLatePoints(backfillPeriod, backfillSize, (long) timestampInterval * backfillDepth);
+    
+    /** The key index and timestamp of the last generated point, and how many
+     * intervals late it arrives. */
+    private int generatedKeyIdx;
+    private long generatedTimestamp;
+    private long generatedLateness;
+    
+    /** Recently used keys and tag values by index. */
+    private final SeriesCache<String> keyCache;
+    private final SeriesCache<String> tagValueCache;
+    
+    /** The values of the tags of the data point being generated. */
+    private final String[] currentTagValues;
+    
+    /** The map and iterators reused for every write when enabled, otherwise null. */
+    private final Map<String, ByteIterator> writeBuffer;
+    private final SeriesCache<StringByteIterator> tagIterators;
+    private final NumericByteIterator timestampIterator;
+    private final NumericByteIterator valueIterator;
+    
+    /** The data points waiting for the next batched insert, along with the
+     * nano time each was generated at. */
+    private List<String> batchKeys;
+    private List<Map<String, ByteIterator>> batchValues;
+    private final long[] batchStarts;
+    
     /**
      * Default ctor.
      * @param threadID The zero based thread ID.
@@ -1118,16 +1551,16 @@ public class TimeSeriesWorkload extends Workload {
         throw new IllegalStateException("Thread ID " + threadID + " cannot be greater "
             + "than or equal than the thread count " + totalThreads);
       }
-      if (keys.length < threadCount) {
+      if (numKeys < threadCount) {
         throw new WorkloadException("Thread count " + totalThreads + " must be greater "
-            + "than or equal to key count " + keys.length);
+            + "than or equal to key count " + numKeys);
       }
       
-      int keysPerThread = keys.length / totalThreads;
+      int keysPerThread = numKeys / totalThreads;
       keyIdx = keysPerThread * threadID;
       keyIdxStart = keyIdx;
       if (totalThreads - 1 == threadID) {
-        keyIdxEnd = keys.length;
+        keyIdxEnd = numKeys;
       } else {
         keyIdxEnd = keyIdxStart + keysPerThread;
       }
@@ -1157,6 +1590,297 @@ public class TimeSeriesWorkload extends Workload {
       startTimestamp = timestampGenerator.nextValue();
       // TODO - pick it
       queryOffsetGenerator = new UniformLongGenerator(0, maxOffsets - 2);
+      
+      keyCache = new SeriesCache<String>(seriesCacheSize);
+      tagValueCache = new SeriesCache<String>(seriesCacheSize);
+      currentTagValues = new String[tagPairs];
+      
+      if (reuseWriteBuffers) {
+        writeBuffer = new TreeMap<String, ByteIterator>();
+        tagIterators = new SeriesCache<StringByteIterator>(seriesCacheSize);
+        timestampIterator = new NumericByteIterator(0L);
+        valueIterator = new NumericByteIterator(0L);
+      } else {
+        writeBuffer = null;
+        tagIterators = null;
+        timestampIterator = null;
+        valueIterator = null;
+      }
+      
+      batchKeys = new ArrayList<String>(insertBatchSize);
+      batchValues = new ArrayList<Map<String, ByteIterator>>(insertBatchSize);
+      batchStarts = new long[insertBatchSize];
+    }
+    
+    /**
+     * Adds a data point to the pending batch, sending the batch if it is full or
+     * its oldest point has waited for the flush interval.
+     * @return {@link Status#BATCHED_OK} if the point is still pending, otherwise
+     * the status of the batched insert.
+     */
+    protected Status batchInsert(final DB db, final String key, final Map<String, ByteIterator> values) {
+      final long now = System.nanoTime();
+      batchStarts[batchKeys.size()] = now;
+      batchKeys.add(key);
+      batchValues.add(values);
+      if (batchKeys.size() >= insertBatchSize
+          || (insertBatchFlushNanos > 0 && now - batchStarts[0] >= insertBatchFlushNanos)) {
+        return flushBatch(db);
+      }
+      return Status.BATCHED_OK;
+    }
+    
+    /**
+     * Sends the pending batch if its oldest point has waited for the flush interval.
+     */
+    protected void flushExpiredBatch(final DB db) {
+      if (insertBatchFlushNanos > 0 && !batchKeys.isEmpty()
+          && System.nanoTime() - batchStarts[0] >= insertBatchFlushNanos) {
+        flushBatch(db);
+      }
+    }
+    
+    /**
+     * Sends the pending data points in one batched insert. The latency of each
+     * point, from when it was generated until the batch returned, is measured as
+     * INSERT-POINT; the batch itself is measured by the DB wrapper.
+     * @return The status of the batched insert, or OK if nothing was pending.
+     */
+    protected Status flushBatch(final DB db) {
+      if (batchKeys.isEmpty()) {
+        return Status.OK;
+      }
+      final Status status = db.batchInsert(table, batchKeys, batchValues);
+      final long end = System.nanoTime();
+      for (int i = 0; i < batchKeys.size(); i++) {
+        measurements.measure("INSERT-POINT", (int) ((end - batchStarts[i]) / 1000));
+      }
+      measurements.reportStatus("INSERT-POINT", status);
+      batchKeys = new ArrayList<String>(insertBatchSize);
+      batchValues = new ArrayList<Map<String, ByteIterator>>(insertBatchSize);
+      return status;
+    }
+    
+    /**
+     * @return The map to pass to {@link #nextDataPoint(Map, boolean)}. When
+     * reusing buffers the same map is returned every time; since each write puts
+     * the same keys, its entries are simply overwritten.
+     */
+    protected Map<String, ByteIterator> writeMap() {
+      return writeBuffer != null ? writeBuffer : new TreeMap<String, ByteIterator>();
+    }
+    
+    /**
+     * @return The time series key at the index, from the cache if possible.
+     */
+    protected String key(final int idx) {
+      String key = keyCache.get(idx);
+      if (key == null) {
+        key = keyAt(idx);
+        keyCache.put(idx, key);
+      }
+      return key;
+    }
+    
+    /**
+     * @return The tag value at the index, from the cache if possible.
+     */
+    protected String tagValue(final int idx) {
+      String value = tagValueCache.get(idx);
+      if (value == null) {
+        value = tagValueAt(idx);
+        tagValueCache.put(idx, value);
+      }
+      return value;
+    }
+    
+    private ByteIterator tagIterator(final int tag, final String value, final int valueIdx) {
+      if (tagIterators == null) {
+        return new StringByteIterator(value);
+      }
+      // the same value may be in the map for several tags, each needs its own iterator
+      final long id = (long) valueIdx * tagPairs + tag;
+      StringByteIterator it = tagIterators.get(id);
+      if (it == null) {
+        it = new StringByteIterator(value);
+        tagIterators.put(id, it);
+      } else {
+        it.reset();
+      }
+      return it;
+    }
+    
+    private ByteIterator timestampValue(final long timestamp) {
+      return timestampIterator != null ? timestampIterator.set(timestamp) : new NumericByteIterator(timestamp);
+    }
+    
+    private ByteIterator longValue(final long value) {
+      return valueIterator != null ? valueIterator.set(value) : new NumericByteIterator(value);
+    }
+    
+    private ByteIterator doubleValue(final double value) {
+      return valueIterator != null ? valueIterator.set(value) : new NumericByteIterator(value);
+    }
+    
+    /**
+     * @return The index of the current series across all keys and tag values.
+     */
+    protected long seriesIndex() {
+      long overallIdx = keyIdx * cumulativeCardinality[0];
+      for (int i = 0; i < tagPairs; ++i) {
+        overallIdx += (tagValueIdxs[i] * cumulativeCardinality[i + 1]);
+      }
+      return overallIdx;
+    }
+    
+    /**
+     * Whether the series reports during the current churn period. A different,
+     * pseudo random subset of {@code churnfraction} of the series is silent in
+     * each period.
+     */
+    protected boolean seriesActive(final long overallIdx) {
+      final long period = (timestampGenerator.currentValue() - startTimestamp) 
+          / ((long) timestampInterval * churnPeriod);
+      final long hash = Utils.fnvhash64(Utils.fnvhash64(overallIdx) ^ period);
+      return (double) (hash & 0xffff) / 0x10000 >= churnFraction;
+    }
+    
+    /**
+     * @return The timestamp for an insert of the given series at the generator's
+     * current time, moved back for series delayed by a fixed lag. Points of series
+     * with a random lag keep the current time and arrive late instead.
+     */
+    protected long insertTimestamp(final long overallIdx) {
+      long delay = 0;
+      generatedLateness = 0;
+      // See if the series falls in a delay bucket and calculate an offset earlier
+      // than the current timestamp value if so.
+      if (delayedSeries > 0 && (double) overallIdx / (double) totalCardinality < delayedSeries) {
+        if (latenessDistribution == LatenessDistribution.FIXED) {
+          delay = lateness(overallIdx);
+        } else {
+          generatedLateness = lateness(overallIdx);
+        }
+      }
+      return timestampGenerator.currentValue() - timestampInterval * delay;
+    }
+    
+    /**
+     * Generates the next data point to insert, or takes a late or backfilled one
+     * that is due, and reports its order.
+     * @param map The map to fill with the tags, timestamp and value.
+     * @return The key of the point.
+     */
+    protected String nextInsert(final Map<String, ByteIterator> map) {
+      while (true) {
+        final TimeSeriesLatePoints.LatePoint due = latePoints.nextDue(timestampGenerator.currentValue());
+        if (due != null) {
+          map.putAll(due.getValues());
+          trackOrder(due.getTimestamp());
+          return due.getKey();
+        }
+        final String key = nextDataPoint(map, true);
+        if (latePoints.holdForBackfill(key, map, generatedKeyIdx, generatedTimestamp, 
+            timestampGenerator.currentValue())) {
+          map.clear();
+        } else if (generatedLateness > 0) {
+          latePoints.delay(key, map, generatedTimestamp, generatedTimestamp + timestampInterval * generatedLateness);
+          map.clear();
+        } else {
+          trackOrder(generatedTimestamp);
+          return key;
+        }
+      }
+    }
+    
+    /**
+     * Writes the points still held back by an outage or waiting to arrive, so
+     * none of the generated points are lost when the thread finishes.
+     */
+    protected void insertLatePoints(final DB db) {
+      TimeSeriesLatePoints.LatePoint point;
+      while ((point = latePoints.drain()) != null) {
+        trackOrder(point.getTimestamp());
+        if (insertBatchSize > 1) {
+          batchInsert(db, point.getKey(), point.getValues());
+        } else {
+          db.insert(table, point.getKey(), point.getValues());
+        }
+      }
+    }
+    
+    /**
+     * @return How many intervals a delayed series is behind, at most 
+     * {@code delayedintervals}.
+     */
+    protected long lateness(final long overallIdx) {
+      final double sample;
+      switch (latenessDistribution) {
+      case EXPONENTIAL:
+        sample = -latenessMean * Math.log(1 - Utils.random().nextDouble());
+        break;
+      case PARETO:
+        // the scale giving the configured mean for this shape
+        final double scale = latenessMean * (latenessShape - 1) / latenessShape;
+        sample = scale / Math.pow(1 - Utils.random().nextDouble(), 1 / latenessShape);
+        break;
+      default:
+        return Math.abs(overallIdx % delayedIntervals);
+      }
+      return Math.min((long) sample, delayedIntervals);
+    }
+    
+    /**
+     * @return A random earlier timestamp for an update.
+     */
+    protected long updateTimestamp() {
+      final long delta = (timestampGenerator.currentValue() - startTimestamp) / timestampInterval;
+      final int intervals = Utils.random().nextInt((int) delta);
+      return startTimestamp + (intervals * timestampInterval);
+    }
+    
+    /**
+     * Reports whether an insert is older than the newest one this thread has
+     * written, as INSERT-ORDER, and measures how many intervals behind it is as
+     * INSERT-LATENESS.
+     */
+    protected void trackOrder(final long timestamp) {
+      if (timestamp < newestTimestamp) {
+        measurements.reportStatus("INSERT-ORDER", OUT_OF_ORDER);
+        measurements.measure("INSERT-LATENESS", (int) ((newestTimestamp - timestamp) / timestampInterval));
+      } else {
+        measurements.reportStatus("INSERT-ORDER", Status.OK);
+        newestTimestamp = timestamp;
+      }
+    }
+    
+    /**
+     * Puts the value of a data point, the validation hash when checking data
+     * integrity or a random number of the configured type otherwise.
+     */
+    private void putValue(final Map<String, ByteIterator> map, final long timestamp) {
+      if (dataintegrity) {
+        map.put(valueKey, longValue(validationHash(currentTagValues, timestamp)));
+      } else {
+        switch (valueType) {
+        case INTEGERS:
+          map.put(valueKey, longValue(Utils.random().nextInt()));
+          break;
+        case FLOATS:
+          map.put(valueKey, doubleValue(Utils.random().nextDouble() * (double) 100000));
+          break;
+        case MIXED:
+          if (Utils.random().nextBoolean()) {
+            map.put(valueKey, longValue(Utils.random().nextInt()));
+          } else {
+            map.put(valueKey, doubleValue(Utils.random().nextDouble() * (double) 100000));
+          }
+          break;
+        default:
+          throw new IllegalStateException("Somehow we didn't have a value "
+              + "type configured that we support: " + valueType);
+        }        
+      }
     }
     
     /**
@@ -1169,7 +1893,7 @@ public class TimeSeriesWorkload extends Workload {
      */
     protected String nextDataPoint(final Map<String, ByteIterator> map, final boolean isInsert) {
       int iterations = sparsity <= 0 ? 1 : 
-          Utils.random().nextInt((int) ((double) perKeyCardinality * sparsity));
+          Utils.random().nextInt((int) Math.min(Integer.MAX_VALUE, (double) perKeyCardinality * sparsity));
       if (iterations < 1) {
         iterations = 1;
       }
@@ -1181,74 +1905,23 @@ public class TimeSeriesWorkload extends Workload {
         }
         String key = null;
         if (iterations <= 0) {
-          final TreeMap<String, String> validationTags;
-          if (dataintegrity) {
-            validationTags = new TreeMap<String, String>();
+          final long overallIdx = seriesIndex();
+          if (churnPeriod > 0 && !seriesActive(overallIdx)) {
+            // the series isn't reporting during this churn period, try the next one
+            iterations = 1;
           } else {
-            validationTags = null;
-          }
-          key = keys[keyIdx];
-          int overallIdx = keyIdx * cumulativeCardinality[0];
-          for (int i = 0; i < tagPairs; ++i) {
-            int tvidx = tagValueIdxs[i];
-            map.put(tagKeys[i], new StringByteIterator(tagValues[tvidx]));
-            if (dataintegrity) {
-              validationTags.put(tagKeys[i], tagValues[tvidx]);
-            }
-            if (delayedSeries > 0) {
-              overallIdx += (tvidx * cumulativeCardinality[i + 1]);
-            }
-          }
-          
-          if (!isInsert) {
-            final long delta = (timestampGenerator.currentValue() - startTimestamp) / timestampInterval;
-            final int intervals = Utils.random().nextInt((int) delta);
-            map.put(timestampKey, new NumericByteIterator(startTimestamp + (intervals * timestampInterval)));
-          } else if (delayedSeries > 0) {
-            // See if the series falls in a delay bucket and calculate an offset earlier
-            // than the current timestamp value if so.
-            double pct = (double) overallIdx / (double) totalCardinality;
-            if (pct < delayedSeries) {
-              int modulo = overallIdx % delayedIntervals;
-              if (modulo < 0) {
-                modulo *= -1;
-              }
-              map.put(timestampKey, new NumericByteIterator(timestampGenerator.currentValue() - 
-                  timestampInterval * modulo));
-            } else {
-              map.put(timestampKey, new NumericByteIterator(timestampGenerator.currentValue()));
+            key = key(keyIdx);
+            generatedKeyIdx = keyIdx;
+            for (int i = 0; i < tagPairs; ++i) {
+              currentTagValues[i] = tagValue(tagValueIdxs[i]);
+              map.put(tagKeys[i], tagIterator(i, currentTagValues[i], tagValueIdxs[i]));
             }
-          } else {
-            map.put(timestampKey, new NumericByteIterator(timestampGenerator.currentValue()));
-          }
-          
-          if (dataintegrity) {
-            map.put(valueKey, new NumericByteIterator(validationFunction(key, 
-                timestampGenerator.currentValue(), validationTags)));
-          } else {
-            switch (valueType) {
-            case INTEGERS:
-              map.put(valueKey, new NumericByteIterator(Utils.random().nextInt()));
-              break;
-            case FLOATS:
-              map.put(valueKey, new NumericByteIterator(
-                  Utils.random().nextDouble() * (double) 100000));
-              break;
-            case MIXED:
-              if (Utils.random().nextBoolean()) {
-                map.put(valueKey, new NumericByteIterator(Utils.random().nextInt()));
-              } else {
-                map.put(valueKey, new NumericByteIterator(
-                    Utils.random().nextDouble() * (double) 100000));
-              }
-              break;
-            default:
-              throw new IllegalStateException("Somehow we didn't have a value "
-                  + "type configured that we support: " + valueType);
-            }        
+            final long timestamp = isInsert ? insertTimestamp(overallIdx) : updateTimestamp();
+            map.put(timestampKey, timestampValue(timestamp));
+            generatedTimestamp = timestamp;
+            putValue(map, timestamp);
           }
         }
-        
         boolean tagRollover = false;
         for (int i = tagCardinality.length - 1; i >= 0; --i) {
           if (tagCardinality[i] <= 1) {
@@ -1283,4 +1956,32 @@ public class TimeSeriesWorkload extends Workload {
     }
   }
 
-}
\ No newline at end of file
+  
+  /**
+   * A bounded, direct mapped cache of values by a non-negative index, so that
+   * the strings of the series a thread works through are only computed again
+   * once evicted, without allocating on a hit.
+   */
+  private static final class SeriesCache<T> {
+    private final long[] ids;
+    private final Object[] values;
+    
+    private SeriesCache(final int size) {
+      ids = new long[size];
+      Arrays.fill(ids, -1);
+      values = new Object[size];
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T get(final long id) {
+      final int slot = (int) (id % ids.length);
+      return ids[slot] == id ? (T) values[slot] : null;
+    }
+    
+    private void put(final long id, final T value) {
+      final int slot = (int) (id % ids.length);
+      ids[slot] = id;
+      values[slot] = value;
+    }
+  }
+}
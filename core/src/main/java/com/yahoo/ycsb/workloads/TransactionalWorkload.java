@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.generator.NumberGenerator;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Vector;
+
+/**
+ * A workload of multi-operation transactions. Each transaction runs a number of operations chosen
+ * with the {@link CoreWorkload} proportions between {@link DB#beginTransaction()} and
+ * {@link DB#commit()}, and is retried as a whole when the store reports a conflict.
+ * <p>
+ * The whole transaction, including its retries, is measured as one TRANSACTION sample and the number
+ * of attempts it took as the value TRANSACTION-ATTEMPTS. The BEGIN, COMMIT and ABORT calls and the single
+ * operations are measured by the DB wrapper as usual, so the CONFLICT counts show where conflicts were
+ * reported. On stores without transactions the hooks do nothing and the operations run on their own.
+ * Increments run inside the transaction like the other operations. CAS operations, which retry on
+ * their own, and conditional inserts are not supported.
+ * <p>
+ * Properties to control the client, in addition to those of {@link CoreWorkload}:
+ * <UL>
+ * <LI><b>transactionsize</b>: the maximum number of operations of a transaction (default: 4)
+ * <LI><b>transactionsizedistribution</b>: what distribution should be used to choose the number of
+ * operations of each transaction, between 1 and transactionsize - constant, uniform or zipfian
+ * (default: constant)
+ * <LI><b>transactionkeys</b>: "random" to choose every key with the request distribution (or among
+ * the contendedkeycount hot records), "adjacent" to operate on consecutive records starting from one
+ * chosen that way (default: random)
+ * <LI><b>transactionretrylimit</b>: how many times a transaction is retried after a conflict
+ * (default: 3)
+ * </ul>
+ */
+public class TransactionalWorkload extends CoreWorkload {
+  public static final String TRANSACTION_SIZE_PROPERTY = "transactionsize";
+  public static final String TRANSACTION_SIZE_PROPERTY_DEFAULT = "4";
+
+  public static final String TRANSACTION_SIZE_DISTRIBUTION_PROPERTY = "transactionsizedistribution";
+  public static final String TRANSACTION_SIZE_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
+
+  public static final String TRANSACTION_KEYS_PROPERTY = "transactionkeys";
+  public static final String TRANSACTION_KEYS_PROPERTY_DEFAULT = "random";
+
+  public static final String TRANSACTION_RETRY_LIMIT_PROPERTY = "transactionretrylimit";
+  public static final String TRANSACTION_RETRY_LIMIT_PROPERTY_DEFAULT = "3";
+
+  private NumberGenerator transactionsize;
+  private boolean adjacentkeys;
+  private int retrylimit;
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    super.init(p);
+    for (String property : new String[] {CAS_PROPORTION_PROPERTY, CONDITIONAL_INSERT_PROPORTION_PROPERTY}) {
+      if (Double.parseDouble(p.getProperty(property, "0")) > 0) {
+        throw new WorkloadException(property + " is not supported in transactions");
+      }
+    }
+
+    int maxsize = Integer.parseInt(p.getProperty(TRANSACTION_SIZE_PROPERTY, TRANSACTION_SIZE_PROPERTY_DEFAULT));
+    String sizedistrib = p.getProperty(TRANSACTION_SIZE_DISTRIBUTION_PROPERTY,
+        TRANSACTION_SIZE_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (maxsize < 1) {
+      throw new WorkloadException("Invalid " + TRANSACTION_SIZE_PROPERTY + " " + maxsize);
+    } else if (sizedistrib.compareTo("constant") == 0) {
+      transactionsize = new ConstantIntegerGenerator(maxsize);
+    } else if (sizedistrib.compareTo("uniform") == 0) {
+      transactionsize = new UniformLongGenerator(1, maxsize);
+    } else if (sizedistrib.compareTo("zipfian") == 0) {
+      transactionsize = new ZipfianGenerator(1, maxsize);
+    } else {
+      throw new WorkloadException(
+          "Distribution \"" + sizedistrib + "\" not allowed for transaction size");
+    }
+
+    String keys = p.getProperty(TRANSACTION_KEYS_PROPERTY, TRANSACTION_KEYS_PROPERTY_DEFAULT);
+    if (keys.equals("adjacent")) {
+      adjacentkeys = true;
+    } else if (!keys.equals("random")) {
+      throw new WorkloadException("Unknown " + TRANSACTION_KEYS_PROPERTY + " \"" + keys + "\"");
+    }
+    retrylimit = Integer.parseInt(
+        p.getProperty(TRANSACTION_RETRY_LIMIT_PROPERTY, TRANSACTION_RETRY_LIMIT_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * Plan one transaction, then run it until it commits, fails for another reason than a conflict or
+   * runs out of retries. Retries repeat the same operations on the same keys.
+   */
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    int count = transactionsize.nextValue().intValue();
+    String[] operations = new String[count];
+    long[] keynums = new long[count];
+    List<Long> inserted = new ArrayList<>();
+    long first = -1;
+    for (int i = 0; i < count; i++) {
+      operations[i] = operationchooser.nextString();
+      if (operations[i] == null) {
+        acknowledge(inserted);
+        return false;
+      }
+      if (operations[i].equals("INSERT")) {
+        keynums[i] = transactioninsertkeysequence.nextValue();
+        inserted.add(keynums[i]);
+      } else if (adjacentkeys && first >= 0) {
+        keynums[i] = Math.min(first + i, transactioninsertkeysequence.lastValue());
+      } else {
+        keynums[i] = nextContendedKeynum();
+        first = first < 0 ? keynums[i] - i : first;
+      }
+    }
+
+    long ist = measurements.getIntendedtartTimeNs();
+    long st = System.nanoTime();
+    Status status;
+    int attempts = 0;
+    try {
+      do {
+        attempts++;
+        status = runTransaction(db, operations, keynums);
+      } while (status.equals(Status.CONFLICT) && attempts <= retrylimit);
+    } finally {
+      acknowledge(inserted);
+    }
+    long en = System.nanoTime();
+
+    measurements.measureValue("TRANSACTION-ATTEMPTS", attempts);
+    measurements.measure("TRANSACTION", (int) ((en - st) / 1000));
+    measurements.measureIntended("TRANSACTION", (int) ((en - ist) / 1000));
+    measurements.measureCorrected("TRANSACTION", (int) ((en - st) / 1000), st);
+    measurements.reportStatus("TRANSACTION", status);
+    return true;
+  }
+
+  private void acknowledge(List<Long> inserted) {
+    for (long keynum : inserted) {
+      transactioninsertkeysequence.acknowledge(keynum);
+    }
+  }
+
+  /**
+   * Run the operations in one transaction, aborting it at the first operation that fails. The writes
+   * are tracked for dataintegrity as applied only if the transaction commits.
+   *
+   * @return The status of the commit or of the operation that failed.
+   */
+  private Status runTransaction(DB db, String[] operations, long[] keynums) {
+    Status status = db.beginTransaction();
+    if (!status.isOk()) {
+      return status;
+    }
+    List<Long> written = new ArrayList<>();
+    for (int i = 0; i < operations.length && status.isOk(); i++) {
+      status = runOperation(db, operations[i], keynums[i], written);
+    }
+    if (status.isOk()) {
+      status = db.commit();
+    } else {
+      db.abort();
+    }
+    for (long keynum : written) {
+      endWrite(keynum, status);
+    }
+    return status;
+  }
+
+  private Status runOperation(DB db, String operation, long keynum, List<Long> written) {
+    String keyname = buildKeyName(keynum);
+    switch (operation) {
+    case "READ":
+      return read(db, keynum, keyname);
+    case "UPDATE":
+      return update(db, keynum, keyname, written);
+    case "INSERT":
+      return db.insert(table, keyname, buildValues(keyname));
+    case "SCAN":
+      return db.scan(table, keyname, scanlength.nextValue().intValue(), readallfields ? null : nextReadFields(),
+          new Vector<HashMap<String, ByteIterator>>());
+    case "INCREMENT":
+      return db.increment(table, keyname, incrementfield, 1);
+    default:
+      // READMODIFYWRITE
+      Status status = read(db, keynum, keyname);
+      if (!status.isOk()) {
+        return status;
+      }
+      return update(db, keynum, keyname, written);
+    }
+  }
+
+  private Status read(DB db, long keynum, String keyname) {
+    HashMap<String, ByteIterator> cells = new HashMap<>();
+    int floor = readFloor(keynum);
+    Status status = db.read(table, keyname, nextReadFields(), cells);
+    if (status.isOk() && dataintegrity) {
+      verifyRow(db, keynum, keyname, cells, floor);
+    }
+    return status;
+  }
+
+  private Status update(DB db, long keynum, String keyname, List<Long> written) {
+    int version = beginWrite(keynum);
+    written.add(keynum);
+    return db.update(table, keyname, buildUpdateValues(keyname, version));
+  }
+}
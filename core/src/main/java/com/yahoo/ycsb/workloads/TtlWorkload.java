@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.ConstantLongGenerator;
+import com.yahoo.ycsb.generator.NumberGenerator;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A workload of expiring records. The insert operations of {@link CoreWorkload} write new records with
+ * a time to live through {@link DB#insertWithTtl}, under their own key prefix so that the other
+ * operations keep working on the loaded records, which do not expire.
+ * <p>
+ * Every record written with a TTL schedules one probe read around its expiry, a random offset within
+ * ttlprobewindow before or after it. Read operations run the probes that are due before reading
+ * loaded records. A probe that completes before the record can have expired must find it, one that
+ * starts ttlgrace after the latest possible expiry must get NOT_FOUND; the probes in between are not
+ * verified, since stores expire lazily or on a timer. The verdicts are reported under VERIFY-TTL: OK,
+ * ERROR for a record gone before its expiry and UNEXPECTED_STATE for an expired record still returned.
+ * Probe latencies are measured as READ-LIVE and READ-EXPIRED, as expired reads often take another
+ * path in the store.
+ * <p>
+ * Properties to control the client, in addition to those of {@link CoreWorkload}:
+ * <UL>
+ * <LI><b>ttl</b>: the longest time to live of a record, in milliseconds (default: 60000)
+ * <LI><b>ttlmin</b>: the shortest time to live of a record, in milliseconds (default: ttl)
+ * <LI><b>ttldistribution</b>: what distribution should be used to choose the time to live between
+ * ttlmin and ttl - constant (always ttl), uniform or zipfian (favoring short TTLs) (default: constant)
+ * <LI><b>ttlprobewindow</b>: how far before or after its expiry a record is probed, in milliseconds
+ * (default: 2000)
+ * <LI><b>ttlgrace</b>: how long after its expiry an expired record may still be returned, in
+ * milliseconds (default: 1000)
+ * <LI><b>ttlmaxprobes</b>: the most probes waiting at once, further writes are not probed
+ * (default: 100000)
+ * <LI><b>ttlkeyprefix</b>: the prefix of the keys of records written with a TTL (default: ttl)
+ * </ul>
+ */
+public class TtlWorkload extends CoreWorkload {
+  public static final String TTL_PROPERTY = "ttl";
+  public static final String TTL_PROPERTY_DEFAULT = "60000";
+
+  public static final String TTL_MIN_PROPERTY = "ttlmin";
+
+  public static final String TTL_DISTRIBUTION_PROPERTY = "ttldistribution";
+  public static final String TTL_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
+
+  public static final String TTL_PROBE_WINDOW_PROPERTY = "ttlprobewindow";
+  public static final String TTL_PROBE_WINDOW_PROPERTY_DEFAULT = "2000";
+
+  public static final String TTL_GRACE_PROPERTY = "ttlgrace";
+  public static final String TTL_GRACE_PROPERTY_DEFAULT = "1000";
+
+  public static final String TTL_MAX_PROBES_PROPERTY = "ttlmaxprobes";
+  public static final String TTL_MAX_PROBES_PROPERTY_DEFAULT = "100000";
+
+  public static final String TTL_KEY_PREFIX_PROPERTY = "ttlkeyprefix";
+  public static final String TTL_KEY_PREFIX_PROPERTY_DEFAULT = "ttl";
+
+  private NumberGenerator ttlgenerator;
+  private long probewindow;
+  private long grace;
+  private int maxprobes;
+  private String ttlkeyprefix;
+  private final AtomicLong ttlkeysequence = new AtomicLong();
+  private final DelayQueue<Probe> probes = new DelayQueue<>();
+  private final Measurements measurements = Measurements.getMeasurements();
+
+  /**
+   * A scheduled read of a record written with a TTL.
+   */
+  static final class Probe implements Delayed {
+    private final String key;
+    private final long writeStart;
+    private final long writeEnd;
+    private final long ttl;
+    private final long due;
+
+    Probe(String key, long writeStart, long writeEnd, long ttl, long due) {
+      this.key = key;
+      this.writeStart = writeStart;
+      this.writeEnd = writeEnd;
+      this.ttl = ttl;
+      this.due = due;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(due - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(due, ((Probe) other).due);
+    }
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    super.init(p);
+
+    long maxttl = Long.parseLong(p.getProperty(TTL_PROPERTY, TTL_PROPERTY_DEFAULT));
+    long minttl = Long.parseLong(p.getProperty(TTL_MIN_PROPERTY, String.valueOf(maxttl)));
+    String ttldistrib = p.getProperty(TTL_DISTRIBUTION_PROPERTY, TTL_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (minttl < 1 || minttl > maxttl) {
+      throw new WorkloadException("Invalid TTL range " + minttl + " to " + maxttl);
+    } else if (ttldistrib.compareTo("constant") == 0) {
+      ttlgenerator = new ConstantLongGenerator(maxttl);
+    } else if (ttldistrib.compareTo("uniform") == 0) {
+      ttlgenerator = new UniformLongGenerator(minttl, maxttl);
+    } else if (ttldistrib.compareTo("zipfian") == 0) {
+      ttlgenerator = new ZipfianGenerator(minttl, maxttl);
+    } else {
+      throw new WorkloadException("Distribution \"" + ttldistrib + "\" not allowed for TTL");
+    }
+
+    probewindow = Long.parseLong(p.getProperty(TTL_PROBE_WINDOW_PROPERTY, TTL_PROBE_WINDOW_PROPERTY_DEFAULT));
+    grace = Long.parseLong(p.getProperty(TTL_GRACE_PROPERTY, TTL_GRACE_PROPERTY_DEFAULT));
+    maxprobes = Integer.parseInt(p.getProperty(TTL_MAX_PROBES_PROPERTY, TTL_MAX_PROBES_PROPERTY_DEFAULT));
+    ttlkeyprefix = p.getProperty(TTL_KEY_PREFIX_PROPERTY, TTL_KEY_PREFIX_PROPERTY_DEFAULT);
+  }
+
+  /**
+   * @return The probes waiting for their time.
+   */
+  DelayQueue<Probe> getProbes() {
+    return probes;
+  }
+
+  /**
+   * Write a new record with a TTL and schedule its probe.
+   */
+  @Override
+  public void doTransactionInsert(DB db) {
+    String dbkey = ttlkeyprefix + buildKeyName(ttlkeysequence.getAndIncrement());
+    HashMap<String, ByteIterator> values = buildValues(dbkey);
+    long ttl = ttlgenerator.nextValue().longValue();
+
+    long start = System.currentTimeMillis();
+    Status status = db.insertWithTtl(table, dbkey, values, ttl);
+    long end = System.currentTimeMillis();
+
+    if (status.isOk() && probes.size() < maxprobes) {
+      long offset = probewindow == 0 ? 0 : ThreadLocalRandom.current().nextLong(-probewindow, probewindow + 1);
+      probes.add(new Probe(dbkey, start, end, ttl, start + ttl + offset));
+    }
+  }
+
+  /**
+   * Run a probe that is due, or read a loaded record if there is none.
+   */
+  @Override
+  public void doTransactionRead(DB db) {
+    Probe probe = probes.poll();
+    if (probe == null) {
+      super.doTransactionRead(db);
+    } else {
+      readProbe(db, probe);
+    }
+  }
+
+  /**
+   * Read a probed record and verify it against its expiry.
+   *
+   * @return The verdict reported under VERIFY-TTL, or null if the read was too close to the expiry to
+   *         tell.
+   */
+  Status readProbe(DB db, Probe probe) {
+    HashMap<String, ByteIterator> cells = new HashMap<>();
+    long start = System.currentTimeMillis();
+    long st = System.nanoTime();
+    Status res = db.read(table, probe.key, dataintegrity ? allfields : null, cells);
+    long en = System.nanoTime();
+    long end = System.currentTimeMillis();
+
+    Status verdict;
+    if (end < probe.writeStart + probe.ttl) {
+      measurements.measure("READ-LIVE", (int) ((en - st) / 1000));
+      if (res.equals(Status.NOT_FOUND)) {
+        verdict = Status.ERROR;
+      } else {
+        verdict = res;
+        if (res.isOk() && dataintegrity) {
+          verifyRow(probe.key, cells);
+        }
+      }
+    } else if (start >= probe.writeEnd + probe.ttl + grace) {
+      measurements.measure("READ-EXPIRED", (int) ((en - st) / 1000));
+      if (res.equals(Status.NOT_FOUND)) {
+        verdict = Status.OK;
+      } else {
+        verdict = res.isOk() ? Status.UNEXPECTED_STATE : res;
+      }
+    } else {
+      return null;
+    }
+    measurements.reportStatus("VERIFY-TTL", verdict);
+    return verdict;
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.DeterministicByteIterator;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the versions written to each record by this client, so that dataintegrity reads can tell
+ * which versions a record may hold. Versions count the writes of a record from 0 for the loaded value
+ * and wrap around at {@link DeterministicByteIterator#VERSION_MASK}.
+ * <p>
+ * Writes that overlap on a record form a group, and the store may end up with any of their versions.
+ * When the last write of a group completes, the lowest version of the group becomes the floor of the
+ * record, unless one of the writes failed and may not have been applied. A read may return any version
+ * from the floor when it started to the highest version started when it ended.
+ * <p>
+ * The state of a record is one long and one int in primitive arrays indexed by key number, so that
+ * tracking millions of records costs 12 bytes each and no objects: the highest started version in
+ * bits 40 to 63, the lowest version of the current group in bits 16 to 39, whether a write of the
+ * group failed in bit 15 and the number of writes in flight in the low bits.
+ */
+final class VersionTracker {
+  private static final int STARTED_SHIFT = 40;
+  private static final int GROUP_SHIFT = 16;
+  private static final long FAILED = 1L << 15;
+  private static final long INFLIGHT_MASK = FAILED - 1;
+  private static final long GROUP_BITS = (long) DeterministicByteIterator.VERSION_MASK << GROUP_SHIFT | FAILED;
+  private static final int HALF_RANGE = (DeterministicByteIterator.VERSION_MASK + 1) / 2;
+
+  private final AtomicLongArray states;
+  private final AtomicIntegerArray floors;
+
+  VersionTracker(int capacity) {
+    states = new AtomicLongArray(capacity);
+    floors = new AtomicIntegerArray(capacity);
+  }
+
+  /**
+   * @return true if the versions of a record are tracked.
+   */
+  boolean tracks(long keynum) {
+    return keynum >= 0 && keynum < states.length();
+  }
+
+  /**
+   * @return How many versions {@code older} is behind {@code newer}, negative if it is ahead.
+   */
+  static int behind(int newer, int older) {
+    int distance = (newer - older) & DeterministicByteIterator.VERSION_MASK;
+    return distance >= HALF_RANGE ? distance - DeterministicByteIterator.VERSION_MASK - 1 : distance;
+  }
+
+  private static int started(long state) {
+    return (int) (state >>> STARTED_SHIFT) & DeterministicByteIterator.VERSION_MASK;
+  }
+
+  private static int groupLow(long state) {
+    return (int) (state >>> GROUP_SHIFT) & DeterministicByteIterator.VERSION_MASK;
+  }
+
+  /**
+   * Start a write of a record.
+   *
+   * @return The version to write.
+   */
+  int beginWrite(long keynum) {
+    int index = (int) keynum;
+    while (true) {
+      long state = states.get(index);
+      long inflight = state & INFLIGHT_MASK;
+      if (inflight == INFLIGHT_MASK) {
+        throw new IllegalStateException("Too many concurrent writes of record " + keynum);
+      }
+      int version = (started(state) + 1) & DeterministicByteIterator.VERSION_MASK;
+      long group = inflight == 0 ? (long) version << GROUP_SHIFT : state & GROUP_BITS;
+      if (states.compareAndSet(index, state, (long) version << STARTED_SHIFT | group | (inflight + 1))) {
+        return version;
+      }
+    }
+  }
+
+  /**
+   * Complete a write started by {@link #beginWrite}.
+   *
+   * @param applied Whether the store acknowledged the write as applied
+   */
+  void endWrite(long keynum, boolean applied) {
+    int index = (int) keynum;
+    long state;
+    long next;
+    do {
+      state = states.get(index);
+      next = (state - 1) | (applied ? 0 : FAILED);
+      if ((next & INFLIGHT_MASK) == 0) {
+        next &= ~FAILED;
+      }
+    } while (!states.compareAndSet(index, state, next));
+
+    if ((next & INFLIGHT_MASK) == 0 && (state & FAILED) == 0 && applied) {
+      int low = groupLow(state);
+      int floor;
+      do {
+        floor = floors.get(index);
+      } while (behind(low, floor) > 0 && !floors.compareAndSet(index, floor, low));
+    }
+  }
+
+  /**
+   * @return The oldest version a read of the record starting now may return.
+   */
+  int floor(long keynum) {
+    return floors.get((int) keynum);
+  }
+
+  /**
+   * @return The newest version a read of the record ending now may return.
+   */
+  int ceiling(long keynum) {
+    return started(states.get((int) keynum));
+  }
+}
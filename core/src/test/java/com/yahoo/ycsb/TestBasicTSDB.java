@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.workloads.TimeSeriesWorkload;
+
+public class TestBasicTSDB {
+
+  private static Map<String, ByteIterator> point(final boolean withValue) {
+    final Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put("AA", new StringByteIterator("AAAA"));
+    values.put(TimeSeriesWorkload.TIMESTAMP_KEY_PROPERTY_DEFAULT, new NumericByteIterator(1451606400L));
+    if (withValue) {
+      values.put(TimeSeriesWorkload.VALUE_KEY_PROPERTY_DEFAULT, new NumericByteIterator(1.5));
+    }
+    return values;
+  }
+
+  @Test
+  public void batchReportsFailedPoints() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(BasicDB.VERBOSE, "false");
+    p.setProperty(BasicDB.COUNT, "true");
+    final BasicTSDB db = new BasicTSDB();
+    db.setProperties(p);
+    db.init();
+
+    final List<String> keys = Arrays.asList("m1", "m2");
+    @SuppressWarnings("unchecked")
+    final List<Map<String, ByteIterator>> good = Arrays.asList(point(true), point(true));
+    assertEquals(db.batchInsert("ts", keys, good), Status.OK);
+    @SuppressWarnings("unchecked")
+    final List<Map<String, ByteIterator>> bad = Arrays.asList(point(true), point(false));
+    assertEquals(db.batchInsert("ts", keys, bad), Status.BAD_REQUEST);
+  }
+}
@@ -36,4 +36,36 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testDeterministicByteIterator() {
+    int size = 4099;
+    ByteIterator itor = new DeterministicByteIterator("user1", "field0", size);
+    assertEquals(size, itor.bytesLeft());
+    String value = itor.toString();
+    assertEquals(size, value.getBytes().length);
+    assertFalse(itor.hasNext());
+
+    itor.reset();
+    assertEquals(value, itor.toString());
+    assertEquals(value, new DeterministicByteIterator("user1", "field0", 0, size).toString());
+    assertFalse(value.equals(new DeterministicByteIterator("user1", "field1", size).toString()));
+    assertFalse(value.equals(new DeterministicByteIterator("user1", "field0", 1, size).toString()));
+
+    itor = new StringByteIterator(value);
+    assertEquals(0, DeterministicByteIterator.readVersion(itor));
+    assertTrue(DeterministicByteIterator.matches(itor, "user1", "field0", 0, size));
+    itor = new DeterministicByteIterator("user1", "field0", 77, size);
+    assertEquals(77, DeterministicByteIterator.readVersion(itor));
+    assertFalse(DeterministicByteIterator.matches(itor, "user1", "field0", 76, size));
+    itor = new StringByteIterator(value.substring(1));
+    DeterministicByteIterator.readVersion(itor);
+    assertFalse(DeterministicByteIterator.matches(itor, "user1", "field0", 0, size));
+    char[] chars = value.toCharArray();
+    chars[size - 1] = chars[size - 1] == 'a' ? 'b' : 'a';
+    itor = new StringByteIterator(new String(chars));
+    DeterministicByteIterator.readVersion(itor);
+    assertFalse(DeterministicByteIterator.matches(itor, "user1", "field0", 0, size));
+    assertEquals(-1, DeterministicByteIterator.readVersion(new StringByteIterator("us*r1")));
+  }
 }
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestCoalescingDB {
+  private RecordingDB recorder;
+  private CoalescingDB db;
+
+  @BeforeMethod
+  public void setUp() throws DBException {
+    Measurements.setProperties(new Properties());
+    recorder = new RecordingDB();
+    final Properties props = new Properties();
+    props.setProperty(CoalescingDB.MAX_RECORDS_PROPERTY, "3");
+    props.setProperty(CoalescingDB.MAX_BYTES_PROPERTY, "100");
+    props.setProperty(CoalescingDB.MAX_DELAY_PROPERTY, "0");
+    recorder.setProperties(props);
+    db = new CoalescingDB(recorder);
+    db.init();
+  }
+
+  private static Map<String, ByteIterator> value(int length) {
+    final Map<String, ByteIterator> values = new HashMap<>();
+    values.put("f", new RandomByteIterator(length));
+    return values;
+  }
+
+  @Test
+  public void flushesByCount() throws DBException {
+    assertEquals(db.insert("t", "k1", value(1)), Status.BATCHED_OK);
+    assertEquals(db.insert("t", "k2", value(1)), Status.BATCHED_OK);
+    assertTrue(recorder.batches.isEmpty());
+    assertEquals(db.insert("t", "k3", value(1)), Status.OK);
+    assertEquals(recorder.batches.size(), 1);
+    assertEquals((int) recorder.batches.get(0), 3);
+
+    db.insert("t", "k4", value(1));
+    db.cleanup();
+    assertEquals(recorder.batches.size(), 2);
+    assertEquals((int) recorder.batches.get(1), 1);
+  }
+
+  @Test
+  public void flushesByBytes() {
+    db.insert("t", "k1", value(40));
+    db.insert("t", "k2", value(60));
+    assertEquals(recorder.batches.size(), 1);
+    assertEquals((int) recorder.batches.get(0), 2);
+  }
+
+  @Test
+  public void flushesBeforeReadingBufferedKey() {
+    db.insert("t", "k1", value(1));
+    db.read("t", "other", null, new HashMap<String, ByteIterator>());
+    assertTrue(recorder.batches.isEmpty());
+    db.read("t", "k1", null, new HashMap<String, ByteIterator>());
+    assertEquals(recorder.batches.size(), 1);
+  }
+
+  @Test
+  public void keepsRepeatedKeys() {
+    db.insert("t", "k1", value(1));
+    db.insert("t", "k1", value(1));
+    assertEquals(db.insert("t", "k2", value(1)), Status.OK);
+    assertTrue(recorder.batches.isEmpty());
+    assertEquals(recorder.inserts, 3);
+  }
+
+  @Test
+  public void countsRecordsOfFailedFlushes() throws Exception {
+    recorder.failing = true;
+    assertEquals(db.insert("t", "k1", value(1)), Status.BATCHED_OK);
+    assertEquals(db.insert("t", "k2", value(1)), Status.BATCHED_OK);
+    // the flush is triggered by the read, the inserts were answered already
+    db.read("t", "k1", null, new HashMap<String, ByteIterator>());
+    assertEquals(recorder.batches.size(), 1);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.getMeasurements().exportMeasurements(exporter);
+    exporter.close();
+    final String report = out.toString("UTF-8");
+    assertTrue(report.contains("[COALESCE-RECORD], Return=ERROR, 2"), report);
+  }
+
+  /** Records the size of every multi-put and counts single inserts. */
+  static class RecordingDB extends DB {
+    private final List<Integer> batches = new ArrayList<>();
+    private int inserts;
+    private boolean failing;
+
+    @Override
+    public Status batchWrite(String table, Map<String, Map<String, ByteIterator>> values) {
+      batches.add(values.size());
+      return failing ? Status.ERROR : Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      inserts++;
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestStreamScan {
+
+  /** Scans return numbered rows and remember the last result vector. */
+  static class NumberedDB extends DB {
+    private Vector<HashMap<String, ByteIterator>> lastResult;
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      for (int i = 0; i < recordcount; i++) {
+        final HashMap<String, ByteIterator> row = new HashMap<>();
+        row.put("n", new StringByteIterator(String.valueOf(i)));
+        result.add(row);
+      }
+      lastResult = result;
+      return Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  @Test
+  public void adapterStreamsAndReleasesRows() {
+    final NumberedDB db = new NumberedDB();
+    final List<String> seen = new ArrayList<>();
+    final Status status = db.streamScan("usertable", "user1", 5, null, new ScanCallback() {
+      @Override
+      public boolean onRow(Map<String, ByteIterator> row) {
+        seen.add(row.get("n").toString());
+        return seen.size() < 3;
+      }
+    });
+    assertEquals(status, Status.OK);
+    // the callback ended the scan after the third row
+    assertEquals(seen.toString(), "[0, 1, 2]");
+    for (int i = 0; i < 3; i++) {
+      assertNull(db.lastResult.get(i));
+    }
+  }
+
+  @Test
+  public void wrapperMeasuresFirstRowAndRate() throws Exception {
+    Measurements.setProperties(new Properties());
+    final DBWrapper db = new DBWrapper(new NumberedDB(),
+        new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+    db.streamScan("usertable", "user1", 10, null, new ScanCallback() {
+      @Override
+      public boolean onRow(Map<String, ByteIterator> row) {
+        return true;
+      }
+    });
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.getMeasurements().exportMeasurements(exporter);
+    exporter.close();
+    final String report = out.toString("UTF-8");
+    assertTrue(report.contains("[SCAN], Operations, 1"), report);
+    assertTrue(report.contains("[SCAN-FIRST-ROW], Operations, 1"), report);
+    assertTrue(report.contains("[SCAN-ROWS-PER-SEC], Operations, 1"), report);
+  }
+}
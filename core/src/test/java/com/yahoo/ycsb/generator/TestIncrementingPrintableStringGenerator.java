@@ -115,6 +115,19 @@ public class TestIncrementingPrintableStringGenerator {
     } catch (IllegalArgumentException e) { }
   }
   
+  @Test
+  public void valueAtMatchesSequence() throws Exception {
+    final IncrementingPrintableStringGenerator gen = 
+        new IncrementingPrintableStringGenerator(3, ATOC);
+    for (int i = 0; i < 30; i++) {
+      assertEquals(gen.valueAt(i), gen.nextValue());
+    }
+    // wraps around like a rollover
+    assertEquals(gen.valueAt(27), "AAA");
+    assertEquals(gen.valueAt(Long.MAX_VALUE), 
+        gen.valueAt(Long.MAX_VALUE % 27));
+  }
+  
   @Test
   public void invalidCharacterSets() throws Exception {
     try {
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestGCPauseMonitor {
+
+  @Test
+  public void capturesExplicitCollection() throws Exception {
+    Measurements.setProperties(new Properties());
+    final GCPauseMonitor monitor = GCPauseMonitor.start(new Properties());
+
+    String report = "";
+    for (int attempt = 0; attempt < 50 && !report.contains("GC_PAUSE_TOP_0_"); attempt++) {
+      monitor.recordLatency(System.currentTimeMillis(), 123456);
+      System.gc();
+      // notifications are delivered asynchronously
+      Thread.sleep(100);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+      monitor.exportMeasurements(exporter);
+      exporter.close();
+      report = out.toString("UTF-8");
+    }
+
+    assertTrue(report.contains("[GC_PAUSES], Count, "), report);
+    assertTrue(report.contains("Duration(ms)"), report);
+    assertTrue(report.contains("MaxOpLatencyDuringPause(us), 123456"), report);
+  }
+}
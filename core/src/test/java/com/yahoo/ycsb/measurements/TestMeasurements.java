@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestMeasurements {
+
+  private static String export(Measurements mm) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    mm.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void noCorrectionByDefault() throws IOException {
+    final Measurements mm = new Measurements(new Properties());
+    mm.measure("READ", 1000);
+    mm.measureCorrected("READ", 1000, System.nanoTime());
+    assertFalse(export(mm).contains("Corrected-READ"));
+  }
+
+  @Test
+  public void expectedIntervalCorrection() throws IOException {
+    for (String type : new String[]{"hdrhistogram", "histogram"}) {
+      final Properties props = new Properties();
+      props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+      props.setProperty(Measurements.MEASUREMENT_CO_CORRECTION_PROPERTY, "expectedinterval");
+      props.setProperty(Measurements.MEASUREMENT_CO_INTERVAL_PROPERTY, "100");
+      final Measurements mm = new Measurements(props);
+      for (int i = 0; i < 10; i++) {
+        mm.measure("READ", 50);
+        mm.measureCorrected("READ", 50, System.nanoTime());
+      }
+      // one stall of 1ms hides the 9 operations that would have followed
+      mm.measure("READ", 1000);
+      mm.measureCorrected("READ", 1000, System.nanoTime());
+
+      final String report = export(mm);
+      assertTrue(report.contains("[READ], Operations, 11"), report);
+      assertTrue(report.contains("[Corrected-READ], Operations, 20"), report);
+      // the corrected measurement follows the raw one
+      assertTrue(report.indexOf("[Corrected-READ]") > report.indexOf("[READ]"), report);
+    }
+  }
+
+  @Test
+  public void valuesAreNotLatencies() throws IOException {
+    final Measurements mm = new Measurements(new Properties());
+    mm.measureValue("ALLOC", 4096);
+    mm.measureValue("ALLOC", 3000000000L);
+    final String report = export(mm);
+    assertTrue(report.contains("[ALLOC], Count, 2"), report);
+    assertTrue(report.contains("[ALLOC], Total, 3000004096"), report);
+    assertTrue(report.contains("[ALLOC], Max, 3000000000"), report);
+    assertFalse(report.contains("(us)"), report);
+    assertTrue(mm.getSummary().contains("[ALLOC Average="), mm.getSummary());
+  }
+
+  @Test
+  public void derivedExpectedInterval() {
+    final Measurements.ExpectedIntervalHolder holder = new Measurements.ExpectedIntervalHolder();
+    holder.update(1000000L);
+    for (int i = 1; i <= 100; i++) {
+      holder.update(1000000L + i * 200000L);
+    }
+    // a single late start barely moves the estimate
+    assertTrue(holder.update(1000000L + 100 * 200000L + 50000000L) < 300);
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestRawSampleFile {
+
+  @Test
+  public void roundTrip() throws IOException {
+    final File file = File.createTempFile("ycsb", RawSampleFile.FILE_SUFFIX);
+    file.deleteOnExit();
+    final long base = 1500000000000L;
+    // small buffer to force several flushes
+    try (RawSampleFile.Writer writer = new RawSampleFile.Writer(file, "READ", base, 16)) {
+      for (int i = 0; i < 5000; i++) {
+        writer.append(base + i / 10, i * 7);
+      }
+      // a clock step backwards and an odd latency must survive too
+      writer.append(base - 5, -1);
+    }
+
+    try (RawSampleFile.Reader reader = new RawSampleFile.Reader(file)) {
+      assertEquals(reader.getName(), "READ");
+      for (int i = 0; i < 5000; i++) {
+        assertTrue(reader.next());
+        assertEquals(reader.timestamp(), base + i / 10);
+        assertEquals(reader.latency(), i * 7);
+      }
+      assertTrue(reader.next());
+      assertEquals(reader.timestamp(), base - 5);
+      assertEquals(reader.latency(), -1);
+      assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void measurementWritesPerThreadFiles() throws Exception {
+    final File dir = Files.createTempDirectory("ycsbraw").toFile();
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementRawBinary.OUTPUT_DIR, dir.getPath());
+    final OneMeasurementRawBinary measurement = new OneMeasurementRawBinary("UPDATE", props);
+
+    final Thread[] threads = new Thread[3];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 1; i <= 1000; i++) {
+            measurement.measure(i);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurement.exportMeasurements(exporter);
+    exporter.close();
+    final String report = out.toString("UTF-8");
+    assertTrue(report.contains("[UPDATE], Operations, 3000"));
+    assertTrue(report.contains("[UPDATE], MaxLatency(us), 1000"));
+
+    final List<File> files = RawSampleTool.listFiles(Collections.singletonList(dir.getPath()));
+    assertEquals(files.size(), 3);
+    final Map<String, List<File>> grouped = RawSampleTool.groupByMeasurement(files);
+    assertEquals(grouped.keySet(), Collections.singleton("UPDATE"));
+
+    final StringWriter csv = new StringWriter();
+    RawSampleTool.writeCsv(grouped, csv);
+    final String[] lines = csv.toString().split("\n");
+    assertEquals(lines.length, 3001);
+    assertEquals(lines[0], "operation,timestamp_ms,latency_us");
+    long last = Long.MIN_VALUE;
+    for (int i = 1; i < lines.length; i++) {
+      final long ts = Long.parseLong(lines[i].split(",")[1]);
+      assertTrue(ts >= last);
+      last = ts;
+    }
+
+    final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+    RawSampleTool.summarize(grouped, new PrintStream(summary, true, "UTF-8"));
+    final String summaryReport = summary.toString("UTF-8");
+    assertTrue(summaryReport.contains("[UPDATE], Operations, 3000"), summaryReport);
+    assertTrue(summaryReport.contains("[UPDATE], MinLatency(us), 1\n"), summaryReport);
+    assertTrue(summaryReport.contains("[UPDATE], MaxLatency(us), 1000"), summaryReport);
+    assertTrue(summaryReport.contains("[UPDATE], p50, 500"), summaryReport);
+
+    for (File f : files) {
+      f.delete();
+    }
+    dir.delete();
+  }
+}
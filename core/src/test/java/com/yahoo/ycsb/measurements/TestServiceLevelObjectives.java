@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestServiceLevelObjectives {
+
+  @Test
+  public void parsesTargets() {
+    assertEquals(ServiceLevelObjectives.parseLatency("2ms"), 2000.0);
+    assertEquals(ServiceLevelObjectives.parseLatency("500us"), 500.0);
+    assertEquals(ServiceLevelObjectives.parseLatency("1.5s"), 1500000.0);
+    assertEquals(ServiceLevelObjectives.parseLatency("750"), 750.0);
+    assertEquals(ServiceLevelObjectives.parseRate("0.1%"), 0.001, 1e-12);
+    assertEquals(ServiceLevelObjectives.parseRate("0.02"), 0.02);
+    assertNull(ServiceLevelObjectives.create(new Properties()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsUnknownMetric() {
+    final Properties props = new Properties();
+    props.setProperty("slo.READ.median", "2ms");
+    ServiceLevelObjectives.create(props);
+  }
+
+  @Test
+  public void tracksViolationsPerInterval() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    props.setProperty("slo.READ.p99", "2ms");
+    props.setProperty("slo.INSERT.errorRate", "10%");
+    props.setProperty(ServiceLevelObjectives.ABORT_PROPERTY, "true");
+    props.setProperty(ServiceLevelObjectives.ABORT_AFTER_PROPERTY, "2");
+    final Measurements mm = new Measurements(props);
+    final ServiceLevelObjectives slos = ServiceLevelObjectives.create(props);
+
+    // interval 0: fast reads, 1 of 20 inserts fails
+    for (int i = 0; i < 100; i++) {
+      mm.measure("READ", 500);
+      mm.reportStatus("READ", Status.OK);
+    }
+    for (int i = 0; i < 20; i++) {
+      mm.measure("INSERT", 500);
+      mm.reportStatus("INSERT", i == 0 ? Status.ERROR : Status.OK);
+    }
+    mm.getSummary();
+    assertFalse(slos.evaluate(mm, 1000));
+
+    // intervals 1 and 2: slow reads, the second one stops the run
+    for (int interval = 1; interval <= 2; interval++) {
+      for (int i = 0; i < 100; i++) {
+        mm.measure("READ", 5000);
+      }
+      mm.getSummary();
+      assertEquals(slos.evaluate(mm, 1000 * (interval + 1)), interval == 2);
+    }
+    assertEquals(slos.getAbortReason(), "SLO-READ-p99");
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    slos.exportMeasurements(exporter);
+    exporter.close();
+    final String report = out.toString("UTF-8");
+    assertTrue(report.contains("[SLO], Stopped, 1"), report);
+    assertTrue(report.contains("[SLO-READ-p99], Intervals, 3"), report);
+    assertTrue(report.contains("[SLO-READ-p99], ViolatedIntervals, 2"), report);
+    assertTrue(report.contains("[SLO-READ-p99], FirstBreach(ms), 2000"), report);
+    assertTrue(report.contains("[SLO-INSERT-errorRate], Intervals, 1"), report);
+    assertTrue(report.contains("[SLO-INSERT-errorRate], ViolatedIntervals, 0"), report);
+    assertTrue(slos.getSummary().contains("first breached"));
+  }
+
+  @Test
+  public void countsErrorsOfCombinedMeasurements() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram+histogram");
+    props.setProperty("slo.INSERT.errorRate", "10%");
+    final Measurements mm = new Measurements(props);
+    final ServiceLevelObjectives slos = ServiceLevelObjectives.create(props);
+    for (int i = 0; i < 10; i++) {
+      mm.measure("INSERT", 500);
+      mm.reportStatus("INSERT", i < 5 ? Status.ERROR : Status.OK);
+    }
+    mm.getSummary();
+    slos.evaluate(mm, 1000);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    slos.exportMeasurements(exporter);
+    exporter.close();
+    final String report = out.toString("UTF-8");
+    assertTrue(report.contains("[SLO-INSERT-errorRate], ViolatedIntervals, 1"), report);
+  }
+}
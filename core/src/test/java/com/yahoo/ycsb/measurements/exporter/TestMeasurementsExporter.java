@@ -55,4 +55,64 @@ public class TestMeasurementsExporter {
         assertEquals(json.get(4).get("measurement").asText(), "MaxLatency(us)");
         assertEquals(json.get(11).get("measurement").asText(), "4");
     }
+
+    @Test
+    public void testNDJSONMeasurementsExporterStreamsIntervals() throws IOException {
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+        Measurements mm = new Measurements(props);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NDJSONMeasurementsExporter export = new NDJSONMeasurementsExporter(out);
+
+        for (int interval = 0; interval < 2; interval++) {
+            for (int i = 1; i <= 100; i++) {
+                mm.measure("READ", i * (interval + 1));
+            }
+            mm.getSummary();
+            export.startInterval(interval, 1000L * interval);
+            mm.exportLastIntervals(export);
+            export.flush();
+            // each interval is complete in the stream before the exporter is closed
+            assertTrue(out.toString("UTF-8").endsWith("\n"));
+        }
+        export.endIntervals();
+        export.write("OVERALL", "Throughput(ops/sec)", Double.NaN);
+        export.close();
+
+        ObjectMapper mapper = new ObjectMapper();
+        String[] lines = out.toString("UTF-8").split("\n");
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(first.get("interval").asInt(), 0);
+        assertEquals(first.get("metric").asText(), "READ");
+        assertEquals(first.get("measurement").asText(), "Operations");
+        assertEquals(first.get("value").asLong(), 100);
+        boolean sawSecondMax = false;
+        for (String line : lines) {
+            JsonNode json = mapper.readTree(line);
+            if (json.get("interval").asInt() == 1 && json.get("measurement").asText().equals("MaxLatency(us)")) {
+                assertEquals(json.get("value").asLong(), 200);
+                sawSecondMax = true;
+            }
+        }
+        assertTrue(sawSecondMax);
+        JsonNode last = mapper.readTree(lines[lines.length - 1]);
+        assertEquals(last.get("interval").asInt(), -1);
+        assertTrue(last.get("value").isNull());
+    }
+
+    @Test
+    public void testCSVMeasurementsExporter() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CSVMeasurementsExporter export = new CSVMeasurementsExporter(out);
+        export.startInterval(3, 42);
+        export.write("READ", "Operations", 10);
+        export.write("SCAN, \"wide\"", "AverageLatency(us)", 1.5);
+        export.close();
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(lines.length, 3);
+        assertEquals(lines[0] + "\n", CSVMeasurementsExporter.HEADER);
+        assertEquals(lines[1], "42,3,READ,Operations,10");
+        assertEquals(lines[2], "42,3,\"SCAN, \"\"wide\"\"\",AverageLatency(us),1.5");
+    }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.Client;
+
+public class TestBulkFileGenerator {
+
+  private static Properties properties(File dir) {
+    final Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "250");
+    props.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "3");
+    props.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    props.setProperty(Client.THREAD_COUNT_PROPERTY, "3");
+    props.setProperty(BulkFileGenerator.DIR_PROPERTY, dir.getPath());
+    props.setProperty(BulkFileGenerator.SHARD_SIZE_PROPERTY, "100");
+    return props;
+  }
+
+  @Test
+  public void writesSortedCsvShards() throws Exception {
+    final File dir = Files.createTempDirectory("ycsbbulk").toFile();
+    final Properties props = properties(dir);
+    props.setProperty(BulkFileGenerator.COMPRESSION_PROPERTY, "gzip");
+    final long[] written = BulkFileGenerator.generate(props);
+    assertEquals(written[0], 250);
+
+    final File[] files = dir.listFiles();
+    Arrays.sort(files);
+    assertEquals(files.length, 3);
+    assertEquals(files[0].getName(), "part-00000.csv.gz");
+
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(props);
+    final List<String> fields = workload.getFieldNames();
+    final Set<String> keys = new HashSet<>();
+    for (File file : files) {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+          new GZIPInputStream(new FileInputStream(file)), "UTF-8"))) {
+        assertEquals(reader.readLine(), "YCSB_KEY,field0,field1,field2");
+        String last = "";
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          final String[] columns = line.split(",");
+          assertTrue(columns[0].compareTo(last) > 0, line);
+          last = columns[0];
+          keys.add(columns[0]);
+          for (int i = 0; i < fields.size(); i++) {
+            assertEquals(columns[i + 1], workload.buildValues(columns[0]).get(fields.get(i)).toString());
+          }
+        }
+      }
+      file.delete();
+    }
+    dir.delete();
+
+    assertEquals(keys.size(), 250);
+    for (long i = 0; i < 250; i++) {
+      assertTrue(keys.contains(workload.buildKeyName(i)));
+    }
+  }
+
+  @Test
+  public void writesJsonDocuments() throws Exception {
+    final File dir = Files.createTempDirectory("ycsbbulk").toFile();
+    final Properties props = properties(dir);
+    props.setProperty(BulkFileGenerator.FORMAT_PROPERTY, "json");
+    BulkFileGenerator.generate(props);
+
+    final File first = new File(dir, "part-00000.json");
+    final List<String> lines = Files.readAllLines(first.toPath(), StandardCharsets.UTF_8);
+    assertEquals(lines.size(), 100);
+    assertTrue(lines.get(0).startsWith("{\"_id\":\"user"), lines.get(0));
+    assertTrue(lines.get(0).contains("\"field2\":\""), lines.get(0));
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+}
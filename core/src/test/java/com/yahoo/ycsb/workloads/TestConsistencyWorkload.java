@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestConsistencyWorkload {
+
+  /**
+   * A store of one record whose every third read is served by a replica two writes behind, or one
+   * write behind when it fails every third write.
+   */
+  static class LaggingDB extends TestCoreWorkload.RecordingDB {
+    private final List<String> versions = new ArrayList<>();
+    private final List<String> stamps = new ArrayList<>();
+    private final boolean lagging;
+    private final boolean failing;
+    private int reads;
+    private int updates;
+
+    LaggingDB(boolean lagging, boolean failing) {
+      this.lagging = lagging;
+      this.failing = failing;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      if (failing && updates++ % 3 == 0) {
+        return Status.ERROR;
+      }
+      versions.add(values.get("version").toString());
+      stamps.add(values.get("stamp").toString());
+      return Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      int lag = lagging && reads++ % 3 == 1 ? (failing ? 1 : 2) : 0;
+      if (versions.size() > lag) {
+        result.put("version", new StringByteIterator(versions.get(versions.size() - 1 - lag)));
+        result.put("stamp", new StringByteIterator(stamps.get(stamps.size() - 1 - lag)));
+      }
+      return Status.OK;
+    }
+  }
+
+  private static String run(boolean lagging, boolean failing) throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty(ConsistencyWorkload.KEY_COUNT_PROPERTY, "1");
+    Measurements.setProperties(p);
+    final ConsistencyWorkload workload = new ConsistencyWorkload();
+    workload.init(p);
+    final Object writer = workload.initThread(p, 0, 2);
+    final Object reader = workload.initThread(p, 1, 2);
+    final LaggingDB db = new LaggingDB(lagging, failing);
+    for (int i = 0; i < 10; i++) {
+      workload.doTransaction(db, writer);
+      workload.doTransaction(db, reader);
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.getMeasurements().exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void consistentStore() throws Exception {
+    final String report = run(false, false);
+    assertTrue(report.contains("[STALENESS-VERSIONS], Count, 10"), report);
+    assertTrue(report.contains("[STALENESS-VERSIONS], Max, 0"), report);
+    assertFalse(report.contains("STALENESS-TIME"), report);
+    assertFalse(report.contains("Return=STALE_READ"), report);
+  }
+
+  @Test
+  public void laggingReplica() throws Exception {
+    final String report = run(true, false);
+    assertTrue(report.contains("[STALENESS-VERSIONS], Max, 2"), report);
+    assertTrue(report.contains("[STALENESS-TIME], Operations, "), report);
+    assertTrue(report.contains("[STALENESS-LAG], Operations, "), report);
+    assertTrue(report.contains("[READ-YOUR-WRITES], Return=STALE_READ, "), report);
+    assertTrue(report.contains("[MONOTONIC-READS], Return=STALE_READ, "), report);
+  }
+
+  @Test
+  public void failedWritesHaveNoAckTime() throws Exception {
+    final String report = run(true, true);
+    final Matcher max = Pattern.compile("\\[STALENESS-TIME\\], MaxLatency\\(us\\), (\\d+)").matcher(report);
+    assertTrue(max.find(), report);
+    // only the times of acknowledged versions count, not ones left unset by failed writes
+    assertTrue(Long.parseLong(max.group(1)) < 10000000L, report);
+  }
+
+  @Test
+  public void everyRecordHasOneWriter() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty(ConsistencyWorkload.KEY_COUNT_PROPERTY, "5");
+    p.setProperty(ConsistencyWorkload.WRITERS_PROPERTY, "2");
+    p.setProperty(ConsistencyWorkload.SESSION_READS_PROPERTY, "false");
+    Measurements.setProperties(p);
+    final ConsistencyWorkload workload = new ConsistencyWorkload();
+    workload.init(p);
+    final List<Set<String>> written = new ArrayList<>();
+    for (int writer = 0; writer < 2; writer++) {
+      final Set<String> keys = new HashSet<>();
+      final TestCoreWorkload.RecordingDB db = new TestCoreWorkload.RecordingDB() {
+        @Override
+        public Status update(String table, String key, Map<String, ByteIterator> values) {
+          keys.add(key);
+          return Status.OK;
+        }
+      };
+      final Object state = workload.initThread(p, writer, 3);
+      for (int i = 0; i < 100; i++) {
+        workload.doTransaction(db, state);
+      }
+      written.add(keys);
+    }
+    assertEquals(written.get(0).size() + written.get(1).size(), 5);
+    written.get(0).retainAll(written.get(1));
+    assertTrue(written.get(0).isEmpty(), written.toString());
+  }
+}
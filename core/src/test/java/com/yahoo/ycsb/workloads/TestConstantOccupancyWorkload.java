@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+
+public class TestConstantOccupancyWorkload {
+
+  /** Room for 100 records of 100 bytes, half full after the load. */
+  private static Properties getProperties() {
+    final Properties p = new Properties();
+    p.setProperty(ConstantOccupancyWorkload.DISK_SIZE_PROPERTY, "10000");
+    p.setProperty(ConstantOccupancyWorkload.OCCUPANCY_PROPERTY, "0.5");
+    p.setProperty(ConstantOccupancyWorkload.OCCUPANCY_BAND_PROPERTY, "0.1");
+    p.setProperty(ConstantOccupancyWorkload.OCCUPANCY_PROBE_INTERVAL_PROPERTY, "0");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "100");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.5");
+    return p;
+  }
+
+  private static ConstantOccupancyWorkload load(final Properties p, final StoreDB db) throws WorkloadException {
+    final ConstantOccupancyWorkload workload = new ConstantOccupancyWorkload();
+    workload.init(p);
+    final Object state = workload.initThread(p, 0, 1);
+    while (workload.doInsert(db, state)) {
+      if (db.records.size() == 50) {
+        break;
+      }
+    }
+    return workload;
+  }
+
+  @Test
+  public void staysInBand() throws WorkloadException {
+    final StoreDB db = new StoreDB(-1);
+    final ConstantOccupancyWorkload workload = load(getProperties(), db);
+    for (int i = 0; i < 2000; i++) {
+      workload.doTransaction(db, null);
+      assertTrue(db.records.size() >= 39 && db.records.size() <= 61, "records: " + db.records.size());
+    }
+    assertTrue(db.deletes > 0);
+    assertEquals(db.missedReads, 0);
+  }
+
+  @Test
+  public void followsProbedSize() throws WorkloadException {
+    // every record takes twice its size on disk
+    final StoreDB db = new StoreDB(200);
+    final ConstantOccupancyWorkload workload = load(getProperties(), db);
+    for (int i = 0; i < 2000; i++) {
+      workload.doTransaction(db, null);
+    }
+    assertTrue(db.records.size() >= 19 && db.records.size() <= 31, "records: " + db.records.size());
+    assertEquals(db.missedReads, 0);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsBandBeyondDisk() throws WorkloadException {
+    final Properties p = getProperties();
+    p.setProperty(ConstantOccupancyWorkload.OCCUPANCY_BAND_PROPERTY, "0.6");
+    new ConstantOccupancyWorkload().init(p);
+  }
+
+  /** A store keeping the record keys, reporting a size per record if given one. */
+  static class StoreDB extends DB {
+    private final Set<String> records = new HashSet<>();
+    private final long bytesPerRecord;
+    private int deletes;
+    private int missedReads;
+
+    StoreDB(final long bytesPerRecord) {
+      this.bytesPerRecord = bytesPerRecord;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      if (!records.contains(key)) {
+        missedReads++;
+        return Status.NOT_FOUND;
+      }
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      records.add(key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      deletes++;
+      return records.remove(key) ? Status.OK : Status.NOT_FOUND;
+    }
+
+    @Override
+    public long storeSize(String table) {
+      return bytesPerRecord < 0 ? -1 : records.size() * bytesPerRecord;
+    }
+  }
+}
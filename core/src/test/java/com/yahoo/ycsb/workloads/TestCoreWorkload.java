@@ -16,12 +16,24 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
 
 import org.testng.annotations.Test;
 
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
 
 public class TestCoreWorkload {
@@ -67,4 +79,189 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void batchedReadsAndInserts() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "100");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "uniform");
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "4");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final RecordingDB db = new RecordingDB();
+
+    workload.doTransactionRead(db);
+    // the default batchRead falls back to single reads
+    assertEquals(db.reads.size(), 4);
+    assertTrue(db.reads.get(0).startsWith("user"));
+
+    workload.doTransactionInsert(db);
+    workload.doTransactionInsert(db);
+    assertEquals(db.inserts.size(), 8);
+    // inserted keys are consecutive new records, batches do not overlap
+    assertEquals(db.inserts.get(7), workload.buildKeyName(107));
+  }
+
+  @Test
+  public void conditionalInsertsMixNewKeys() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "100");
+    p.setProperty(CoreWorkload.CONTENDED_KEY_COUNT_PROPERTY, "10");
+    p.setProperty(CoreWorkload.CONDITIONAL_INSERT_NEW_PROPORTION_PROPERTY, "1.0");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final List<String> keys = new ArrayList<>();
+    final DB db = new RecordingDB() {
+      @Override
+      public Status insertIfAbsent(String table, String key, Map<String, ByteIterator> values) {
+        keys.add(key);
+        return Status.OK;
+      }
+    };
+
+    // new records follow the loaded ones
+    workload.doTransactionConditionalInsert(db);
+    workload.doTransactionConditionalInsert(db);
+    assertEquals(keys.get(0), workload.buildKeyName(100));
+    assertEquals(keys.get(1), workload.buildKeyName(101));
+
+    // the others contend on the hot records
+    workload.conditionalinsertnewproportion = 0;
+    keys.clear();
+    for (int i = 0; i < 100; i++) {
+      workload.doTransactionConditionalInsert(db);
+    }
+    final Set<String> hot = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      hot.add(workload.buildKeyName(i));
+    }
+    assertTrue(hot.containsAll(keys), keys.toString());
+  }
+
+  @Test
+  public void keysBeyondIntRange() throws Exception {
+    final long start = 5000000000L;
+    final Properties p = new Properties();
+    p.setProperty("recordcount", String.valueOf(start + 100));
+    p.setProperty(CoreWorkload.INSERT_START_PROPERTY, String.valueOf(start));
+    p.setProperty(CoreWorkload.INSERT_COUNT_PROPERTY, "100");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "uniform");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    for (int i = 0; i < 100; i++) {
+      final long keynum = workload.nextKeynum();
+      assertTrue(keynum >= start && keynum < start + 100, String.valueOf(keynum));
+    }
+
+    final RecordingDB db = new RecordingDB();
+    workload.doInsert(db, workload.initThread(p, 0, 1));
+    assertEquals(db.getInserts().get(0), "user" + start);
+  }
+
+  @Test
+  public void compareAndSetRetriesConflicts() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "100");
+    p.setProperty(CoreWorkload.CONTENDED_KEY_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.CAS_RETRY_LIMIT_PROPERTY, "3");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    // another writer changes the record between the first two reads and writes
+    final ConflictingDB db = new ConflictingDB(2);
+    workload.doTransactionCompareAndSet(db);
+    assertEquals(db.getReads().size(), 3);
+    assertEquals(db.getReads().get(0), workload.buildKeyName(0));
+    assertEquals(db.getWrites(), 1);
+
+    // more conflicts than retries give up after the limit
+    final ConflictingDB hopeless = new ConflictingDB(10);
+    workload.doTransactionCompareAndSet(hopeless);
+    assertEquals(hopeless.getReads().size(), 4);
+    assertEquals(hopeless.getWrites(), 0);
+
+    // the conditional operations are not implemented by default
+    assertEquals(new RecordingDB().increment("usertable", "user0", "counter", 1), Status.NOT_IMPLEMENTED);
+  }
+
+  /** A versioned record whose version a concurrent writer bumps for the first few CAS attempts. */
+  static class ConflictingDB extends RecordingDB {
+    private int conflicts;
+    private long version = 0;
+    private int writes = 0;
+
+    ConflictingDB(int conflicts) {
+      this.conflicts = conflicts;
+    }
+
+    @Override
+    public Status readVersion(String table, String key, Set<String> fields, Map<String, ByteIterator> result,
+                              long[] recordVersion) {
+      read(table, key, fields, result);
+      recordVersion[0] = version;
+      if (conflicts > 0) {
+        conflicts--;
+        version++;
+      }
+      return Status.OK;
+    }
+
+    @Override
+    public Status compareAndSet(String table, String key, long expectedVersion, Map<String, ByteIterator> values) {
+      if (expectedVersion != version) {
+        return Status.CONDITION_FAILED;
+      }
+      version++;
+      writes++;
+      return Status.OK;
+    }
+
+    List<String> getReads() {
+      return super.reads;
+    }
+
+    int getWrites() {
+      return writes;
+    }
+  }
+
+  /** Records the keys of the single operations the default batch operations call. */
+  static class RecordingDB extends DB {
+    private final List<String> reads = new ArrayList<>();
+    private final List<String> inserts = new ArrayList<>();
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      reads.add(key);
+      result.put("field0", new StringByteIterator("value"));
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      inserts.add(key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+
+    List<String> getInserts() {
+      return inserts;
+    }
+  }
+}
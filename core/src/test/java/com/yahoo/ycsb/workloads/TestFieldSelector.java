@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
+
+public class TestFieldSelector {
+
+  private static List<String> fields(int n) {
+    final List<String> fields = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      fields.add("field" + i);
+    }
+    return fields;
+  }
+
+  private static FieldSelector selector(int n, String selection, String count) throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(CoreWorkload.FIELD_SELECTION_PROPERTY, selection);
+    p.setProperty(CoreWorkload.FIELD_SELECTION_COUNT_PROPERTY, count);
+    p.setProperty(CoreWorkload.FIELD_GROUPS_PROPERTY, "4");
+    p.setProperty(CoreWorkload.FIELD_SELECTION_POOL_SIZE_PROPERTY, "200");
+    return FieldSelector.create(p, fields(n), new UniformLongGenerator(0, n - 1));
+  }
+
+  @Test
+  public void kOfNOnWideRows() throws WorkloadException {
+    final FieldSelector selector = selector(5000, "kofn", "50");
+    assertEquals(selector.size(), 200);
+    for (int i = 0; i < 100; i++) {
+      final Set<String> set = selector.next();
+      assertEquals(set.size(), 50);
+      // in field order
+      int last = -1;
+      for (String field : set) {
+        final int index = Integer.parseInt(field.substring("field".length()));
+        assertTrue(index > last);
+        last = index;
+      }
+    }
+  }
+
+  @Test
+  public void zipfianFavorsFirstFields() throws WorkloadException {
+    final FieldSelector selector = selector(100, "zipfian", "3");
+    int first = 0;
+    int last = 0;
+    for (int i = 0; i < 1000; i++) {
+      final Set<String> set = selector.next();
+      assertEquals(set.size(), 3);
+      first += set.contains("field0") ? 1 : 0;
+      last += set.contains("field99") ? 1 : 0;
+    }
+    assertTrue(first > last, first + " " + last);
+  }
+
+  @Test
+  public void groupsPartitionTheFields() throws WorkloadException {
+    final FieldSelector selector = selector(10, "groups", "1");
+    assertEquals(selector.size(), 4);
+    final Set<Set<String>> seen = new HashSet<>();
+    for (int i = 0; i < 200; i++) {
+      seen.add(selector.next());
+    }
+    assertEquals(seen.size(), 4);
+    int total = 0;
+    for (Set<String> group : seen) {
+      total += group.size();
+    }
+    assertEquals(total, 10);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsEmptySelections() throws WorkloadException {
+    selector(10, "kofn", "0");
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsEmptyPool() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(CoreWorkload.FIELD_SELECTION_PROPERTY, "zipfian");
+    p.setProperty(CoreWorkload.FIELD_SELECTION_POOL_SIZE_PROPERTY, "0");
+    FieldSelector.create(p, fields(10), new UniformLongGenerator(0, 9));
+  }
+
+  @Test
+  public void selectionReusesPrecomputedSets() throws WorkloadException {
+    final FieldSelector selector = selector(1, "single", "1");
+    assertSame(selector.next(), selector.next());
+    assertEquals(selector.next().iterator().next(), "field0");
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.CoalescingDB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestLoadChunks {
+
+  @Test
+  public void splitsRange() throws WorkloadException {
+    final LoadChunks chunks = new LoadChunks(10, 25, 10, null);
+    assertEquals(chunks.getChunkCount(), 3);
+    assertEquals(chunks.getPendingRecords(), 25);
+    final int last = 2;
+    assertEquals(chunks.start(last), 30);
+    assertEquals(chunks.end(last), 35);
+  }
+
+  @Test
+  public void resumesFromCheckpoint() throws IOException, WorkloadException {
+    final File file = File.createTempFile("ycsb", ".checkpoint");
+    file.delete();
+    file.deleteOnExit();
+
+    LoadChunks chunks = new LoadChunks(0, 100, 10, file);
+    for (int i = 0; i < 4; i++) {
+      chunks.complete(chunks.claim());
+    }
+    // claimed but not completed when the load stopped
+    chunks.claim();
+    chunks.close();
+
+    chunks = new LoadChunks(0, 100, 10, file);
+    assertEquals(chunks.getCompletedCount(), 4);
+    assertEquals(chunks.getPendingRecords(), 60);
+    assertEquals(chunks.claim(), 4);
+    chunks.close();
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsCheckpointOfDifferentLoad() throws IOException, WorkloadException {
+    final File file = File.createTempFile("ycsb", ".checkpoint");
+    file.deleteOnExit();
+    new LoadChunks(0, 100, 10, file).close();
+    new LoadChunks(0, 100, 20, file);
+  }
+
+  @Test
+  public void unboundedOnlyWhenChunked() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "50");
+    p.setProperty("dotransactions", "false");
+    final CoreWorkload plain = new CoreWorkload();
+    plain.init(p);
+    assertEquals(plain.getLoadOperationCount(50), 50);
+
+    p.setProperty(CoreWorkload.LOAD_CHUNK_SIZE_PROPERTY, "20");
+    final CoreWorkload chunked = new CoreWorkload();
+    chunked.init(p);
+    // the threads run until no chunk is left
+    assertEquals(chunked.getLoadOperationCount(50), 0);
+  }
+
+  @Test
+  public void loadsSortedChunks() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "50");
+    p.setProperty("dotransactions", "false");
+    p.setProperty(CoreWorkload.LOAD_CHUNK_SIZE_PROPERTY, "20");
+    p.setProperty(CoreWorkload.LOAD_CHUNK_SORTED_PROPERTY, "true");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final TestCoreWorkload.RecordingDB db = new TestCoreWorkload.RecordingDB();
+    final Object state = workload.initThread(p, 0, 1);
+    int inserts = 0;
+    while (workload.doInsert(db, state)) {
+      inserts++;
+    }
+    assertEquals(inserts, 50);
+    assertEquals(workload.loadchunks.getCompletedCount(), 3);
+
+    final List<String> first = new ArrayList<>(db.getInserts().subList(0, 20));
+    final List<String> sorted = new ArrayList<>(first);
+    Collections.sort(sorted);
+    assertEquals(first, sorted);
+    assertTrue(db.getInserts().get(20).compareTo(db.getInserts().get(39)) < 0);
+    assertNull(workload.loadchunks.nextChunk(new LoadChunks.Cursor(), workload, true));
+  }
+
+  @Test
+  public void checkpointsOnlyFlushedRecords() throws DBException, WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "30");
+    p.setProperty("dotransactions", "false");
+    p.setProperty(CoreWorkload.LOAD_CHUNK_SIZE_PROPERTY, "20");
+    p.setProperty(CoalescingDB.MAX_RECORDS_PROPERTY, "100");
+    p.setProperty(CoalescingDB.MAX_DELAY_PROPERTY, "0");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final TestCoreWorkload.RecordingDB recorder = new TestCoreWorkload.RecordingDB();
+    recorder.setProperties(p);
+    final CoalescingDB db = new CoalescingDB(recorder);
+    db.init();
+    final Object state = workload.initThread(p, 0, 1);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    // the chunk is only complete once its buffered records were written
+    assertEquals(workload.loadchunks.getCompletedCount(), 1);
+    assertEquals(recorder.getInserts().size(), 20);
+  }
+}
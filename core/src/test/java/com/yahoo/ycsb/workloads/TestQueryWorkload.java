@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Predicate;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+
+public class TestQueryWorkload {
+
+  @Test
+  public void predicatesMatchRecords() {
+    final Map<String, String> record = new HashMap<>();
+    record.put("num", "42");
+    record.put("lowcat", "low3");
+    record.put("tags", "tag1 tag17 tag5");
+
+    assertTrue(Predicate.equalTo("lowcat", "low3").matches(record));
+    assertFalse(Predicate.equalTo("lowcat", "low4").matches(record));
+    assertTrue(Predicate.range("num", 42, 43).matches(record));
+    assertFalse(Predicate.range("num", 0, 42).matches(record));
+    assertTrue(Predicate.contains("tags", "tag17").matches(record));
+    assertFalse(Predicate.contains("tags", "tag7").matches(record));
+    assertFalse(Predicate.equalTo("missing", "x").matches(record));
+    assertTrue(Predicate.and(Predicate.equalTo("lowcat", "low3"), Predicate.range("num", 0, 100)).matches(record));
+    assertFalse(Predicate.and(Predicate.equalTo("lowcat", "low3"), Predicate.range("num", 0, 10)).matches(record));
+    assertEquals(Predicate.and(Predicate.equalTo("lowcat", "low3"), Predicate.range("num", 0, 10)).toString(),
+        "(lowcat = low3 and 0 <= num < 10)");
+  }
+
+  @Test
+  public void attributesFollowTheirCardinality() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "2000");
+    p.setProperty(QueryWorkload.LOW_CARDINALITY_PROPERTY, "4");
+    p.setProperty(QueryWorkload.QUERY_LIMIT_PROPERTY, "10000");
+    final QueryWorkload workload = new QueryWorkload();
+    workload.init(p);
+
+    final MemoryDB db = new MemoryDB();
+    for (int i = 0; i < 2000; i++) {
+      workload.doInsert(db, null);
+    }
+    assertEquals(db.records.size(), 2000);
+    final Map<String, String> first = db.records.values().iterator().next();
+    assertEquals(first.get(QueryWorkload.TAGS_FIELD).split(" ").length, 5);
+    // the attributes are derived from the key
+    final String key = db.records.keySet().iterator().next();
+    assertEquals(workload.buildValues(key).get(QueryWorkload.NUMERIC_FIELD).toString(),
+        first.get(QueryWorkload.NUMERIC_FIELD));
+
+    for (int category = 0; category < 4; category++) {
+      final Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+      db.query("usertable", Predicate.equalTo(QueryWorkload.LOW_CARDINALITY_FIELD, "low" + category), 10000,
+          null, result);
+      // 500 expected per category
+      assertTrue(result.size() > 400 && result.size() < 600, String.valueOf(result.size()));
+    }
+  }
+
+  @Test
+  public void queriesAreChosenLikeOtherOperations() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(QueryWorkload.QUERY_PROPORTION_PROPERTY, "1");
+    final QueryWorkload workload = new QueryWorkload();
+    workload.init(p);
+
+    final int[] queries = new int[1];
+    final MemoryDB db = new MemoryDB() {
+      @Override
+      public Status query(String table, Predicate predicate, int limit, Set<String> fields,
+                          Vector<HashMap<String, ByteIterator>> result) {
+        queries[0]++;
+        return super.query(table, predicate, limit, fields, result);
+      }
+    };
+    for (int i = 0; i < 10; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(queries[0], 10);
+  }
+
+  /** Keeps the records in memory and evaluates queries on all of them. */
+  static class MemoryDB extends DB {
+    private final Map<String, Map<String, String>> records = new LinkedHashMap<>();
+
+    @Override
+    public Status query(String table, Predicate predicate, int limit, Set<String> fields,
+                        Vector<HashMap<String, ByteIterator>> result) {
+      for (Map<String, String> record : records.values()) {
+        if (result.size() < limit && predicate.matches(record)) {
+          result.add(new HashMap<>(StringByteIterator.getByteIteratorMap(record)));
+        }
+      }
+      return Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      records.put(key, StringByteIterator.getStringMap(values));
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+}
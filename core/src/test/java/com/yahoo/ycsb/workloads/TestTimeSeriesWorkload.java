@@ -22,8 +22,11 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,6 +38,7 @@ import java.util.Vector;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.CoalescingDB;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.NumericByteIterator;
 import com.yahoo.ycsb.Status;
@@ -42,6 +46,7 @@ import com.yahoo.ycsb.StringByteIterator;
 import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 
 import org.testng.annotations.Test;
 
@@ -407,6 +412,354 @@ public class TestTimeSeriesWorkload {
     assertEquals(wl.verifyRow("AAAA", cells), Status.UNEXPECTED_STATE);
   }
   
+  @Test
+  public void validationHashMatchesFunction() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(TimeSeriesWorkload.TAG_COUNT_PROPERTY, "3");
+    p.put(TimeSeriesWorkload.TAG_CARDINALITY_PROPERTY, "2,3,5");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final String[] values = new String[3];
+    for (int i = 0; i < 2 * 3 * 5; i++) {
+      values[0] = wl.tagValueAt(i % 2);
+      values[1] = wl.tagValueAt(i % 3);
+      values[2] = wl.tagValueAt(i % 5);
+      final TreeMap<String, String> validationTags = new TreeMap<String, String>();
+      for (int t = 0; t < values.length; t++) {
+        validationTags.put(wl.tagKeys[t], values[t]);
+      }
+      assertEquals(wl.validationHash(values, 1451606400L + i), 
+          wl.validationFunction("AAAA", 1451606400L + i, validationTags));
+    }
+  }
+  
+  @Test
+  public void insertReusingWriteBuffers() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.put(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    p.put(TimeSeriesWorkload.VALUE_TYPE_PROPERTY, "integers");
+    p.put(TimeSeriesWorkload.REUSE_WRITE_BUFFERS_PROPERTY, "true");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    // the values are only valid until the next write so check them as they come
+    final List<String> tags = new ArrayList<String>();
+    final MockDB db = new MockDB() {
+      @Override
+      public Status insert(String table, String key, Map<String, ByteIterator> values) {
+        assertEquals(wl.verifyRow(key, values), Status.OK);
+        for (final ByteIterator it : values.values()) {
+          it.reset();
+        }
+        tags.add(values.get("AB").toString());
+        return super.insert(table, key, values);
+      }
+    };
+    for (int i = 0; i < 10; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+    }
+    assertEquals(db.values.size(), 10);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(db.values.get(i) == db.values.get(0));
+      assertEquals(tags.get(i), i % 2 == 0 ? "AAAA" : "AAAB");
+    }
+  }
+  
+  @Test
+  public void batchedInserts() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.put(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    p.put(TimeSeriesWorkload.VALUE_TYPE_PROPERTY, "integers");
+    p.put(TimeSeriesWorkload.INSERT_BATCH_SIZE_PROPERTY, "4");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    final List<Integer> batches = new ArrayList<Integer>();
+    final MockDB db = new MockDB() {
+      @Override
+      public Status batchInsert(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+        batches.add(keys.size());
+        return super.batchInsert(table, keys, values);
+      }
+    };
+    for (int i = 0; i < 10; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+    }
+    assertEquals(db.keys.size(), 8);
+    wl.cleanupThread(db, threadState);
+    assertEquals(batches.size(), 3);
+    assertEquals(batches.get(2).intValue(), 2);
+    
+    // every point is kept, in order, across series and timestamps
+    long timestamp = 1451606400;
+    for (int i = 0; i < 10; i++) {
+      assertEquals(db.values.get(i).get("AB").toString(), i % 2 == 0 ? "AAAA" : "AAAB");
+      assertEquals(((NumericByteIterator) db.values.get(i)
+          .get(TimeSeriesWorkload.TIMESTAMP_KEY_PROPERTY_DEFAULT)).getLong(), timestamp);
+      assertEquals(wl.verifyRow(db.keys.get(i), db.values.get(i)), Status.OK);
+      if (i % 2 == 1) {
+        timestamp += 60;
+      }
+    }
+  }
+  
+  @Test
+  public void coalescedInsertsSucceed() throws Exception {
+    final Properties p = getUTProperties();
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    final MockDB mock = new MockDB();
+    mock.setProperties(new Properties());
+    final CoalescingDB db = new CoalescingDB(mock);
+    db.init();
+    for (int i = 0; i < 10; i++) {
+      // buffered points are answered with BATCHED_OK
+      assertTrue(wl.doInsert(db, threadState));
+    }
+    db.cleanup();
+    assertEquals(mock.keys.size(), 10);
+  }
+
+  @Test
+  public void backfillBursts() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    p.put(TimeSeriesWorkload.VALUE_TYPE_PROPERTY, "integers");
+    p.put(TimeSeriesWorkload.BACKFILL_PERIOD_PROPERTY, "4");
+    p.put(TimeSeriesWorkload.BACKFILL_SIZE_PROPERTY, "2");
+    p.put(TimeSeriesWorkload.BACKFILL_DEPTH_PROPERTY, "10");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    final MockDB db = new MockDB();
+    for (int i = 0; i < 8; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+    }
+    // the fourth point starts an outage of its key, the other key keeps writing
+    // and the two held points follow in a burst
+    final String[] keys = {"AAAA", "AAAA", "AAAB", "AAAA", "AAAA", "AAAB", "AAAB", "AAAB"};
+    final String[] tags = {"AAAA", "AAAB", "AAAA", "AAAA", "AAAB", "AAAB", "AAAA", "AAAB"};
+    final long[] intervals = {0, 0, 0, 1, 1, 0, 1, 1};
+    for (int i = 0; i < 8; i++) {
+      assertEquals(db.keys.get(i), keys[i]);
+      assertEquals(db.values.get(i).get("AB").toString(), tags[i]);
+      assertEquals(((NumericByteIterator) db.values.get(i)
+          .get(TimeSeriesWorkload.TIMESTAMP_KEY_PROPERTY_DEFAULT)).getLong(), 1451606400L + 60 * intervals[i]);
+      // values of backfilled points still validate
+      assertEquals(wl.verifyRow(db.keys.get(i), db.values.get(i)), Status.OK);
+    }
+    for (int i = 8; i < 200; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+    }
+    wl.cleanupThread(db, threadState);
+    assertSeriesComplete(db, 200);
+    final String report = export();
+    assertTrue(report.contains("[INSERT-ORDER], Return=OUT_OF_ORDER"), report);
+  }
+  
+  @Test
+  public void paretoLatenessIsCapped() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(TimeSeriesWorkload.DELAYED_SERIES_PROPERTY, "1.0");
+    p.put(TimeSeriesWorkload.DELAYED_INTERVALS_PROPERTY, "20");
+    p.put(TimeSeriesWorkload.LATENESS_DISTRIBUTION_PROPERTY, "pareto");
+    p.put(TimeSeriesWorkload.LATENESS_MEAN_PROPERTY, "5");
+    p.put(TimeSeriesWorkload.LATENESS_SHAPE_PROPERTY, "1.1");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    final MockDB db = new MockDB();
+    int late = 0;
+    long newest = 0;
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+      final long timestamp = ((NumericByteIterator) db.values.get(i)
+          .get(TimeSeriesWorkload.TIMESTAMP_KEY_PROPERTY_DEFAULT)).getLong();
+      assertTrue(timestamp >= newest - 60 * 20);
+      if (timestamp < newest) {
+        late++;
+      }
+      newest = Math.max(newest, timestamp);
+    }
+    assertTrue(late > 0);
+    wl.cleanupThread(db, threadState);
+    assertSeriesComplete(db, db.keys.size());
+  }
+  
+  /**
+   * Asserts the points written hold every interval of every series exactly once.
+   */
+  private static void assertSeriesComplete(final MockDB db, final int minimum) {
+    assertTrue(db.keys.size() >= minimum);
+    final Map<String, Set<Long>> series = new HashMap<String, Set<Long>>();
+    long newest = 0;
+    for (int i = 0; i < db.keys.size(); i++) {
+      final String id = db.keys.get(i) + db.values.get(i).get("AB").toString();
+      final long timestamp = ((NumericByteIterator) db.values.get(i)
+          .get(TimeSeriesWorkload.TIMESTAMP_KEY_PROPERTY_DEFAULT)).getLong();
+      if (!series.containsKey(id)) {
+        series.put(id, new HashSet<Long>());
+      }
+      assertTrue(series.get(id).add(timestamp), "Duplicate point " + id + " at " + timestamp);
+      newest = Math.max(newest, timestamp);
+    }
+    assertEquals(series.size(), 4);
+    for (final Entry<String, Set<Long>> entry : series.entrySet()) {
+      for (long timestamp = 1451606400L; timestamp < newest; timestamp += 60) {
+        assertTrue(entry.getValue().contains(timestamp), "Missing point " + entry.getKey() + " at " + timestamp);
+      }
+    }
+  }
+  
+  @Test
+  public void seriesChurn() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.put(TimeSeriesWorkload.TAG_CARDINALITY_PROPERTY, "1,8");
+    p.put(TimeSeriesWorkload.CHURN_PERIOD_PROPERTY, "1");
+    p.put(TimeSeriesWorkload.CHURN_FRACTION_PROPERTY, "0.5");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    final MockDB db = new MockDB();
+    for (int i = 0; i < 400; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+    }
+    // the set of series written changes from one timestamp to the next
+    final Map<Long, Set<String>> series = new TreeMap<Long, Set<String>>();
+    for (final Map<String, ByteIterator> values : db.values) {
+      final long timestamp = ((NumericByteIterator) values
+          .get(TimeSeriesWorkload.TIMESTAMP_KEY_PROPERTY_DEFAULT)).getLong();
+      if (!series.containsKey(timestamp)) {
+        series.put(timestamp, new HashSet<String>());
+      }
+      series.get(timestamp).add(values.get("AB").toString());
+    }
+    final Set<Set<String>> distinct = new HashSet<Set<String>>(series.values());
+    assertTrue(series.size() > 50);
+    assertTrue(distinct.size() > 10);
+    for (final Set<String> written : series.values()) {
+      assertTrue(written.size() < 8);
+    }
+  }
+  
+  @Test
+  public void highCardinality() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(TimeSeriesWorkload.TAG_COUNT_PROPERTY, "3");
+    p.put(TimeSeriesWorkload.TAG_CARDINALITY_PROPERTY, "100000,100000,100000");
+    p.put(TimeSeriesWorkload.SERIES_CACHE_SIZE_PROPERTY, "16");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    assertEquals(wl.totalCardinality, 2L * 100000 * 100000 * 100000);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    final MockDB db = new MockDB();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(wl.doInsert(db, threadState));
+      assertEquals(db.values.get(i).get("AC").toString(), wl.tagValueAt(i));
+    }
+    // 99999 = 36 * 52^2 + 51 * 52 + 3
+    assertEquals(wl.tagValueAt(99999), "AkzD");
+  }
+  
+  @Test
+  public void randomizedSeriesOrderIsAPermutation() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(CoreWorkload.FIELD_COUNT_PROPERTY, "100");
+    p.put(TimeSeriesWorkload.TAG_CARDINALITY_PROPERTY, "1,60");
+    p.put(TimeSeriesWorkload.RANDOMIZE_TIMESERIES_ORDER_PROPERTY, "true");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Set<String> keys = new HashSet<String>();
+    final Set<String> expected = new HashSet<String>();
+    for (int i = 0; i < 100; i++) {
+      keys.add(wl.keyAt(i));
+      expected.add(wl.keyGenerator.valueAt(i));
+    }
+    assertEquals(keys, expected);
+    final Set<String> values = new HashSet<String>();
+    for (int i = 0; i < 60; i++) {
+      values.add(wl.tagValueAt(i));
+    }
+    assertEquals(values.size(), 60);
+  }
+  
+  @Test
+  public void queryMix() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.put(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.put(TimeSeriesQueryMix.QUERY_MIX_PROPERTY, "top,rate");
+    p.put("querymix.top.window", "60");
+    p.put("querymix.top.topk", "3");
+    p.put("querymix.top.wildcards", "1");
+    p.put("querymix.rate.weight", "2");
+    p.put("querymix.rate.window", "100000");
+    p.put("querymix.rate.aggregation", "sum");
+    p.put("querymix.rate.groupbykeys", "1,0");
+    p.put("querymix.rate.rate", "true");
+    final TimeSeriesWorkload wl = getWorkload(p, true);
+    final Object threadState = wl.initThread(p, 0, 1);
+    
+    final List<Set<String>> reads = new ArrayList<Set<String>>();
+    final MockDB db = new MockDB() {
+      @Override
+      public Status read(String table, String key, Set<String> fields,
+                         Map<String, ByteIterator> result) {
+        reads.add(fields);
+        return Status.OK;
+      }
+    };
+    for (int i = 0; i < 100; i++) {
+      assertTrue(wl.doTransaction(db, threadState));
+    }
+    
+    int top = 0;
+    for (final Set<String> fields : reads) {
+      if (fields.contains("YCSBTK=3")) {
+        top++;
+        // the window ends at the last of the 3 loaded intervals
+        assertTrue(fields.contains("YCSBTS=1451606460,1451606520"), fields.toString());
+        assertTrue(fields.contains("AB=*"), fields.toString());
+      } else {
+        assertTrue(fields.contains("YCSBRT"), fields.toString());
+        assertTrue(fields.contains("YCSBGB=sum"), fields.toString());
+        assertTrue(fields.contains("AA"), fields.toString());
+        assertTrue(fields.contains("YCSBTS=1451606400,1451606520"), fields.toString());
+      }
+    }
+    assertTrue(top > 0 && top < 100, "top-k queries: " + top);
+    final String report = export();
+    assertTrue(report.contains("[QUERY-top], Operations, " + top), report);
+    assertTrue(report.contains("[QUERY-rate], Operations, " + (100 - top)), report);
+  }
+  
+  @Test (expectedExceptions = WorkloadException.class)
+  public void queryMixMissingWindow() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(TimeSeriesQueryMix.QUERY_MIX_PROPERTY, "top");
+    p.put("querymix.top.topk", "3");
+    getWorkload(p, true);
+  }
+  
+  @Test (expectedExceptions = WorkloadException.class)
+  public void queryMixBadGroupByKeys() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(TimeSeriesQueryMix.QUERY_MIX_PROPERTY, "rate");
+    p.put("querymix.rate.window", "60");
+    p.put("querymix.rate.aggregation", "sum");
+    p.put("querymix.rate.groupbykeys", "1,x");
+    getWorkload(p, true);
+  }
+  
+  @Test (expectedExceptions = WorkloadException.class)
+  public void reuseWriteBuffersWithCoalescing() throws Exception {
+    final Properties p = getUTProperties();
+    p.put(TimeSeriesWorkload.REUSE_WRITE_BUFFERS_PROPERTY, "true");
+    p.put(CoalescingDB.COALESCE_PROPERTY, "true");
+    getWorkload(p, true);
+  }
+  
   @Test
   public void validateSettingsDataIntegrity() throws Exception {
     Properties p = getUTProperties();
@@ -458,6 +811,14 @@ public class TestTimeSeriesWorkload {
     } catch (WorkloadException e) { }
   }
   
+  private static String export() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.getMeasurements().exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+  
   /** Helper method that generates unit testing defaults for the properties map */
   private Properties getUTProperties() {
     final Properties p = new Properties();
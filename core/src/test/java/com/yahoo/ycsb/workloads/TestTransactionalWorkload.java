@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+
+public class TestTransactionalWorkload {
+
+  private static Properties properties(String keys) {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "100");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(TransactionalWorkload.TRANSACTION_SIZE_PROPERTY, "3");
+    p.setProperty(TransactionalWorkload.TRANSACTION_KEYS_PROPERTY, keys);
+    p.setProperty(TransactionalWorkload.TRANSACTION_RETRY_LIMIT_PROPERTY, "2");
+    return p;
+  }
+
+  private static TransactionalWorkload workload(String keys) throws Exception {
+    final TransactionalWorkload workload = new TransactionalWorkload();
+    workload.init(properties(keys));
+    return workload;
+  }
+
+  @Test
+  public void retriesConflictingCommits() throws Exception {
+    final TransactionalWorkload workload = workload("random");
+    final LoggingDB db = new LoggingDB(1);
+    assertTrue(workload.doTransaction(db, null));
+
+    final List<String> log = db.getLog();
+    assertEquals(log.size(), 10);
+    assertEquals(log.get(0), "begin");
+    assertEquals(log.get(4), "commit CONFLICT");
+    // the retry repeats the same reads
+    assertEquals(log.subList(5, 9), log.subList(0, 4));
+    assertEquals(log.get(9), "commit OK");
+  }
+
+  @Test
+  public void givesUpAfterRetryLimit() throws Exception {
+    final TransactionalWorkload workload = workload("adjacent");
+    final LoggingDB db = new LoggingDB(10);
+    workload.doTransaction(db, null);
+    assertEquals(db.getLog().size(), 15);
+
+    // adjacent transactions read consecutive records
+    final String first = db.getLog().get(1).substring("read ".length());
+    for (long i = 0; i < 100; i++) {
+      if (workload.buildKeyName(i).equals(first)) {
+        assertEquals(db.getLog().subList(2, 4), Arrays.asList("read " + workload.buildKeyName(Math.min(i + 1, 99)),
+            "read " + workload.buildKeyName(Math.min(i + 2, 99))));
+      }
+    }
+  }
+
+  @Test
+  public void runsIncrements() throws Exception {
+    final Properties p = properties("random");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.INCREMENT_PROPORTION_PROPERTY, "1");
+    final TransactionalWorkload workload = new TransactionalWorkload();
+    workload.init(p);
+    final LoggingDB db = new LoggingDB(0);
+    assertTrue(workload.doTransaction(db, null));
+    assertEquals(db.getLog().size(), 5);
+    for (String entry : db.getLog().subList(1, 4)) {
+      assertTrue(entry.startsWith("increment "), entry);
+    }
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsCompareAndSet() throws Exception {
+    final Properties p = properties("random");
+    p.setProperty(CoreWorkload.CAS_PROPORTION_PROPERTY, "0.5");
+    new TransactionalWorkload().init(p);
+  }
+
+  /** Logs the transaction calls and reads, failing the first commits with a conflict. */
+  static class LoggingDB extends DB {
+    private final List<String> log = new ArrayList<>();
+    private int conflicts;
+
+    LoggingDB(int conflicts) {
+      this.conflicts = conflicts;
+    }
+
+    @Override
+    public Status beginTransaction() {
+      log.add("begin");
+      return Status.OK;
+    }
+
+    @Override
+    public Status commit() {
+      final Status status = conflicts-- > 0 ? Status.CONFLICT : Status.OK;
+      log.add("commit " + status.getName());
+      return status;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      log.add("read " + key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status increment(String table, String key, String field, long delta) {
+      log.add("increment " + key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+
+    List<String> getLog() {
+      return log;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestTtlWorkload {
+
+  /**
+   * Keeps the expiry of every inserted record, and honors it only if asked to.
+   */
+  static class ExpiringDB extends TestCoreWorkload.RecordingDB {
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final boolean honorTtl;
+
+    ExpiringDB(boolean honorTtl) {
+      this.honorTtl = honorTtl;
+    }
+
+    @Override
+    public Status insertWithTtl(String table, String key, Map<String, ByteIterator> values, long ttlMillis) {
+      expiries.put(key, honorTtl ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE);
+      return Status.OK;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      Long expiry = expiries.get(key);
+      if (expiry == null || System.currentTimeMillis() >= expiry) {
+        return Status.NOT_FOUND;
+      }
+      return super.read(table, key, fields, result);
+    }
+  }
+
+  private static int[] runProbes(DB db) throws WorkloadException, InterruptedException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty(TtlWorkload.TTL_PROPERTY, "100");
+    p.setProperty(TtlWorkload.TTL_PROBE_WINDOW_PROPERTY, "60");
+    p.setProperty(TtlWorkload.TTL_GRACE_PROPERTY, "5");
+    Measurements.setProperties(p);
+    final TtlWorkload workload = new TtlWorkload();
+    workload.init(p);
+    for (int i = 0; i < 40; i++) {
+      workload.doTransactionInsert(db);
+    }
+    assertEquals(workload.getProbes().size(), 40);
+
+    // counts of OK, ERROR and UNEXPECTED_STATE verdicts
+    final int[] verdicts = new int[3];
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (!workload.getProbes().isEmpty() && System.currentTimeMillis() < deadline) {
+      final TtlWorkload.Probe probe = workload.getProbes().take();
+      final Status verdict = workload.readProbe(db, probe);
+      if (Status.OK.equals(verdict)) {
+        verdicts[0]++;
+      } else if (Status.ERROR.equals(verdict)) {
+        verdicts[1]++;
+      } else if (Status.UNEXPECTED_STATE.equals(verdict)) {
+        verdicts[2]++;
+      }
+    }
+    return verdicts;
+  }
+
+  @Test
+  public void expiredRecordsAreNotFound() throws Exception {
+    final int[] verdicts = runProbes(new ExpiringDB(true));
+    assertTrue(verdicts[0] > 0);
+    assertEquals(verdicts[1], 0);
+    assertEquals(verdicts[2], 0);
+  }
+
+  @Test
+  public void longConstantTtlIsNotTruncated() throws Exception {
+    final long ttl = 30L * 24 * 3600 * 1000;
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty(TtlWorkload.TTL_PROPERTY, String.valueOf(ttl));
+    Measurements.setProperties(p);
+    final TtlWorkload workload = new TtlWorkload();
+    workload.init(p);
+    final ExpiringDB db = new ExpiringDB(true);
+    final long start = System.currentTimeMillis();
+    workload.doTransactionInsert(db);
+    final long expiry = db.expiries.values().iterator().next();
+    assertTrue(expiry >= start + ttl, String.valueOf(expiry - start));
+  }
+
+  @Test
+  public void reportsRecordsReturnedAfterExpiry() throws Exception {
+    final int[] verdicts = runProbes(new ExpiringDB(false));
+    assertEquals(verdicts[1], 0);
+    // the probes scheduled well after the expiry still find the record
+    assertTrue(verdicts[2] > 0);
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DeterministicByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestVersionTracker {
+
+  @Test
+  public void floorFollowsCompletedWrites() {
+    final VersionTracker tracker = new VersionTracker(4);
+    assertEquals(tracker.beginWrite(1), 1);
+    tracker.endWrite(1, true);
+    assertEquals(tracker.floor(1), 1);
+
+    // overlapping writes may land in any order
+    assertEquals(tracker.beginWrite(1), 2);
+    assertEquals(tracker.beginWrite(1), 3);
+    tracker.endWrite(1, true);
+    assertEquals(tracker.floor(1), 1);
+    tracker.endWrite(1, true);
+    assertEquals(tracker.floor(1), 2);
+    assertEquals(tracker.ceiling(1), 3);
+
+    // a failed write may not have been applied
+    tracker.beginWrite(1);
+    tracker.endWrite(1, false);
+    assertEquals(tracker.floor(1), 2);
+    assertEquals(tracker.ceiling(1), 4);
+    assertEquals(tracker.floor(0), 0);
+  }
+
+  @Test
+  public void versionsWrapAround() {
+    assertEquals(VersionTracker.behind(3, DeterministicByteIterator.VERSION_MASK), 4);
+    assertEquals(VersionTracker.behind(DeterministicByteIterator.VERSION_MASK, 3), -4);
+  }
+
+  private static Map<String, ByteIterator> record(CoreWorkload workload, String key, int... versions) {
+    final HashMap<String, ByteIterator> cells = new HashMap<>();
+    for (int i = 0; i < versions.length; i++) {
+      cells.put("field" + i, new DeterministicByteIterator(key, "field" + i, versions[i], 100));
+    }
+    return cells;
+  }
+
+  @Test
+  public void classifiesReads() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty("fieldcount", "2");
+    p.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    p.setProperty(CoreWorkload.WRITE_ALL_FIELDS_PROPERTY, "true");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final String key = workload.buildKeyName(3);
+
+    assertEquals(workload.checkRow(3, key, record(workload, key, 0, 0), workload.readFloor(3)), Status.OK);
+    assertEquals(workload.beginWrite(3), 1);
+    workload.endWrite(3, Status.OK);
+    final int floor = workload.readFloor(3);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 1, 1), floor), Status.OK);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 0, 0), floor), CoreWorkload.STALE_READ);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 1, 0), floor), CoreWorkload.TORN_RECORD);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 2, 2), floor), Status.UNEXPECTED_STATE);
+    assertEquals(workload.checkRow(3, key, new HashMap<String, ByteIterator>(), floor), Status.ERROR);
+    // untracked records only need to hold some version
+    assertEquals(workload.checkRow(-1, key, record(workload, key, 5, 5), 0), Status.OK);
+
+    // buffered writes are flushed before their record is read
+    assertEquals(workload.beginWrite(3), 2);
+    workload.endWrite(3, Status.BATCHED_OK);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 1, 1), workload.readFloor(3)),
+        CoreWorkload.STALE_READ);
+  }
+
+  @Test
+  public void partialWritesLeaveOlderFields() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "10");
+    p.setProperty("fieldcount", "2");
+    p.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final String key = workload.buildKeyName(3);
+
+    // an update of field0 only leaves field1 at its first version
+    assertEquals(workload.beginWrite(3), 1);
+    workload.endWrite(3, Status.OK);
+    final int floor = workload.readFloor(3);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 1, 0), floor), Status.OK);
+    assertEquals(workload.checkRow(3, key, record(workload, key, 0), floor), Status.OK);
+  }
+}
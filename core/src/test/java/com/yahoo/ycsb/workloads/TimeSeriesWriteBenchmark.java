@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A microbenchmark of the point generation of the {@link TimeSeriesWorkload}, with and without
+ * {@code reusewritebuffers}. It inserts into a binding that drops every point and prints the time
+ * and heap bytes the generating thread spends per point. It is not a unit test and is run by hand:
+ * <pre>
+ * mvn -pl core test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp core/target/classes:core/target/test-classes:$(cat core/cp.txt) \
+ *     com.yahoo.ycsb.workloads.TimeSeriesWriteBenchmark [points] [rounds]
+ * </pre>
+ * With the defaults below (4 keys, 4 tags of 8 values each, dataintegrity on, best of 5 rounds of
+ * 2,000,000 points after one warm up round) on OpenJDK 17 with one core, three runs gave:
+ * <pre>
+ * reusewritebuffers=false: 226 - 250 ns/point, 448 B/point
+ * reusewritebuffers=true:  204 - 227 ns/point,   0 B/point
+ * </pre>
+ */
+public final class TimeSeriesWriteBenchmark {
+
+  private TimeSeriesWriteBenchmark() {
+    // not used
+  }
+
+  public static void main(String[] args) throws Exception {
+    final int points = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    for (final boolean reuse : new boolean[] {false, true}) {
+      final Properties p = new Properties();
+      p.setProperty("recordcount", "1000");
+      p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "4");
+      p.setProperty(TimeSeriesWorkload.TAG_COUNT_PROPERTY, "4");
+      p.setProperty(TimeSeriesWorkload.TAG_CARDINALITY_PROPERTY, "8,8,8,8");
+      p.setProperty(CoreWorkload.INSERT_START_PROPERTY, "1451606400");
+      p.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+      p.setProperty(TimeSeriesWorkload.VALUE_TYPE_PROPERTY, "integers");
+      p.setProperty(TimeSeriesWorkload.RANDOMIZE_TIMESERIES_ORDER_PROPERTY, "false");
+      p.setProperty(TimeSeriesWorkload.REUSE_WRITE_BUFFERS_PROPERTY, String.valueOf(reuse));
+      Measurements.setProperties(p);
+      final TimeSeriesWorkload workload = new TimeSeriesWorkload();
+      workload.init(p);
+      final Object state = workload.initThread(p, 0, 1);
+      final DB db = new DiscardingDB();
+
+      long bestNanos = Long.MAX_VALUE;
+      long bestBytes = Long.MAX_VALUE;
+      // the first round warms up the JIT and is not reported
+      for (int round = 0; round <= rounds; round++) {
+        final long bytes = Utils.getCurrentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < points; i++) {
+          workload.doInsert(db, state);
+        }
+        final long nanos = System.nanoTime() - start;
+        final long allocated = Utils.getCurrentThreadAllocatedBytes() - bytes;
+        if (round > 0) {
+          bestNanos = Math.min(bestNanos, nanos);
+          bestBytes = Math.min(bestBytes, allocated);
+        }
+      }
+      System.out.println(TimeSeriesWorkload.REUSE_WRITE_BUFFERS_PROPERTY + "=" + reuse + ": "
+          + bestNanos / points + " ns/point, " + bestBytes / points + " B/point");
+      workload.cleanup();
+    }
+  }
+
+  /** Drops every point, so only the generation is measured. */
+  private static final class DiscardingDB extends DB {
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.ScanCallback;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
 
@@ -89,6 +90,7 @@ public class JdbcDBClient extends DB {
   private int batchSize;
   private boolean autoCommit;
   private boolean batchUpdates;
+  private boolean inTransaction = false;
   private static final String DEFAULT_PROP = "";
   private ConcurrentMap<StatementType, PreparedStatement> cachedStatements;
   private long numRowsInBatch = 0;
@@ -148,6 +150,15 @@ public class JdbcDBClient extends DB {
     }
   }
 
+  /**
+   * Serialization failures and deadlocks (SQLSTATE class 40) roll the transaction back and are
+   * reported as conflicts, so a transactional workload retries them.
+   */
+  private static Status errorStatus(SQLException e) {
+    String state = e.getSQLState();
+    return state != null && state.startsWith("40") ? Status.CONFLICT : Status.ERROR;
+  }
+
   /** Returns parsed int value from the properties if set, otherwise returns -1. */
   private static int getIntProperty(Properties props, String key) throws DBException {
     String valueStr = props.getProperty(key);
@@ -200,10 +211,9 @@ public class JdbcDBClient extends DB {
         System.out.println("Adding shard node URL: " + url);
         Connection conn = DriverManager.getConnection(url, user, passwd);
 
-        // Since there is no explicit commit method in the DB interface, all
-        // operations should auto commit, except when explicitly told not to
-        // (this is necessary in cases such as for PostgreSQL when running a
-        // scan workload with fetchSize)
+        // Outside of transactions all operations should auto commit, except
+        // when explicitly told not to (this is necessary in cases such as for
+        // PostgreSQL when running a scan workload with fetchSize)
         conn.setAutoCommit(autoCommit);
 
         shardCount++;
@@ -253,6 +263,100 @@ public class JdbcDBClient extends DB {
     }
   }
 
+  /**
+   * Turns off auto-commit until the transaction ends. With several shards each shard commits its
+   * part of the transaction on its own.
+   */
+  @Override
+  public Status beginTransaction() {
+    try {
+      if (autoCommit) {
+        for (Connection conn : conns) {
+          conn.setAutoCommit(false);
+        }
+      }
+      inTransaction = true;
+      return Status.OK;
+    } catch (SQLException e) {
+      System.err.println("Error in starting a transaction: " + e);
+      return errorStatus(e);
+    }
+  }
+
+  @Override
+  public Status commit() {
+    if (!inTransaction) {
+      return Status.OK;
+    }
+    try {
+      // inserts queued with jdbc.batchupdateapi belong to the transaction
+      if (!executePendingBatches()) {
+        abort();
+        return Status.ERROR;
+      }
+      for (Connection conn : conns) {
+        conn.commit();
+      }
+      return endTransaction();
+    } catch (SQLException e) {
+      System.err.println("Error in committing a transaction: " + e);
+      abort();
+      return errorStatus(e);
+    }
+  }
+
+  @Override
+  public Status abort() {
+    if (!inTransaction) {
+      return Status.OK;
+    }
+    try {
+      if (batchUpdates) {
+        for (PreparedStatement st : cachedStatements.values()) {
+          st.clearBatch();
+        }
+        numRowsInBatch = 0;
+      }
+      for (Connection conn : conns) {
+        conn.rollback();
+      }
+      return endTransaction();
+    } catch (SQLException e) {
+      System.err.println("Error in aborting a transaction: " + e);
+      inTransaction = false;
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Runs the inserts queued with the batch API that were not sent yet.
+   *
+   * @return False if any of the inserts failed.
+   */
+  private boolean executePendingBatches() throws SQLException {
+    if (!batchUpdates) {
+      return true;
+    }
+    boolean ok = true;
+    for (PreparedStatement st : cachedStatements.values()) {
+      for (int r : st.executeBatch()) {
+        ok &= r == 1 || r == Statement.SUCCESS_NO_INFO;
+      }
+    }
+    numRowsInBatch = 0;
+    return ok;
+  }
+
+  private Status endTransaction() throws SQLException {
+    inTransaction = false;
+    if (autoCommit) {
+      for (Connection conn : conns) {
+        conn.setAutoCommit(true);
+      }
+    }
+    return Status.OK;
+  }
+
   private PreparedStatement createAndCacheInsertStatement(StatementType insertType, String key)
       throws SQLException {
     String insert = dbFlavor.createInsertStatement(insertType, key);
@@ -335,13 +439,34 @@ public class JdbcDBClient extends DB {
       return Status.OK;
     } catch (SQLException e) {
       System.err.println("Error in processing read of table " + tableName + ": " + e);
-      return Status.ERROR;
+      return errorStatus(e);
     }
   }
 
+  /**
+   * Collects the rows of {@link #streamScan}, keeping only the requested fields.
+   */
+  @Override
+  public Status scan(String tableName, String startKey, int recordcount, final Set<String> fields,
+                     final Vector<HashMap<String, ByteIterator>> result) {
+    return streamScan(tableName, startKey, recordcount, fields, new ScanCallback() {
+      @Override
+      public boolean onRow(Map<String, ByteIterator> row) {
+        if (result != null && fields != null) {
+          result.add(new HashMap<String, ByteIterator>(row));
+        }
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Hands each row to the callback as the driver fetches it, so at most jdbc.fetchsize rows are
+   * buffered (with drivers that honor the fetch size).
+   */
   @Override
-  public Status scan(String tableName, String startKey, int recordcount, Set<String> fields,
-                     Vector<HashMap<String, ByteIterator>> result) {
+  public Status streamScan(String tableName, String startKey, int recordcount, Set<String> fields,
+                           ScanCallback callback) {
     try {
       StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, "", getShardIndexByKey(startKey));
       PreparedStatement scanStatement = cachedStatements.get(type);
@@ -350,22 +475,24 @@ public class JdbcDBClient extends DB {
       }
       scanStatement.setString(1, startKey);
       scanStatement.setInt(2, recordcount);
-      ResultSet resultSet = scanStatement.executeQuery();
-      for (int i = 0; i < recordcount && resultSet.next(); i++) {
-        if (result != null && fields != null) {
-          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-          for (String field : fields) {
-            String value = resultSet.getString(field);
-            values.put(field, new StringByteIterator(value));
+      HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+      try (ResultSet resultSet = scanStatement.executeQuery()) {
+        for (int i = 0; i < recordcount && resultSet.next(); i++) {
+          values.clear();
+          if (fields != null) {
+            for (String field : fields) {
+              values.put(field, new StringByteIterator(resultSet.getString(field)));
+            }
+          }
+          if (!callback.onRow(values)) {
+            break;
           }
-          result.add(values);
         }
       }
-      resultSet.close();
       return Status.OK;
     } catch (SQLException e) {
       System.err.println("Error in processing scan of table: " + tableName + e);
-      return Status.ERROR;
+      return errorStatus(e);
     }
   }
 
@@ -392,7 +519,7 @@ public class JdbcDBClient extends DB {
       return Status.UNEXPECTED_STATE;
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
-      return Status.ERROR;
+      return errorStatus(e);
     }
   }
 
@@ -425,8 +552,8 @@ public class JdbcDBClient extends DB {
                 return Status.ERROR;
               }
             }
-            // If autoCommit is off, make sure we commit the batch
-            if (!autoCommit) {
+            // If autoCommit is off, make sure we commit the batch, a transaction commits on its own
+            if (!autoCommit && !inTransaction) {
               getShardConnectionByKey(key).commit();
             }
             return Status.OK;
@@ -437,8 +564,8 @@ public class JdbcDBClient extends DB {
       } else {
         // Normal update
         int result = insertStatement.executeUpdate();
-        // If we are not autoCommit, we might have to commit now
-        if (!autoCommit) {
+        // If we are not autoCommit, we might have to commit now, a transaction commits on its own
+        if (!autoCommit && !inTransaction) {
           // Let updates be batcher locally
           if (batchSize > 0) {
             if (++numRowsInBatch % batchSize == 0) {
@@ -459,7 +586,7 @@ public class JdbcDBClient extends DB {
       return Status.UNEXPECTED_STATE;
     } catch (SQLException e) {
       System.err.println("Error in processing insert to table: " + tableName + e);
-      return Status.ERROR;
+      return errorStatus(e);
     }
   }
 
@@ -479,7 +606,7 @@ public class JdbcDBClient extends DB {
       return Status.UNEXPECTED_STATE;
     } catch (SQLException e) {
       System.err.println("Error in processing delete to table: " + tableName + e);
-      return Status.ERROR;
+      return errorStatus(e);
     }
   }
 
@@ -32,6 +32,8 @@ import com.yahoo.ycsb.StringByteIterator;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -56,6 +58,12 @@ public class RedisClient extends DB {
 
   public static final String INDEX_KEY = "_indices";
 
+  /**
+   * Sorted set of the keys written with a TTL, scored by the time in
+   * milliseconds they expire, to drop expired keys from {@link #INDEX_KEY}.
+   */
+  public static final String EXPIRY_INDEX_KEY = "_expiries";
+
   public void init() throws DBException {
     Properties props = getProperties();
     int port;
@@ -118,12 +126,81 @@ public class RedisClient extends DB {
   @Override
   public Status insert(String table, String key,
       Map<String, ByteIterator> values) {
-    if (jedis.hmset(key, StringByteIterator.getStringMap(values))
-        .equals("OK")) {
-      jedis.zadd(INDEX_KEY, hash(key), key);
-      return Status.OK;
+    return write(key, values, true, -1);
+  }
+
+  /**
+   * Inserts the record and sets its expiry with EXPIRE, rounding the TTL up
+   * to whole seconds.
+   */
+  @Override
+  public Status insertWithTtl(String table, String key,
+      Map<String, ByteIterator> values, long ttlMillis) {
+    return write(key, values, true, ttlMillis);
+  }
+
+  /**
+   * Updates the record and resets its expiry with EXPIRE, rounding the TTL up
+   * to whole seconds.
+   */
+  @Override
+  public Status updateWithTtl(String table, String key,
+      Map<String, ByteIterator> values, long ttlMillis) {
+    return write(key, values, false, ttlMillis);
+  }
+
+  /**
+   * Writes the record, indexes it if it is inserted and sets its expiry if
+   * it has a TTL, in one MULTI/EXEC transaction so a record is never left
+   * without the expiry it was written with. Inserts without a TTL clear any
+   * expiry left in {@link #EXPIRY_INDEX_KEY} by an earlier record of the key.
+   *
+   * @param ttlMillis The TTL of the record, negative for none.
+   */
+  private Status write(String key, Map<String, ByteIterator> values,
+      boolean insert, long ttlMillis) {
+    Transaction transaction = jedis.multi();
+    Response<String> written =
+        transaction.hmset(key, StringByteIterator.getStringMap(values));
+    if (insert) {
+      transaction.zadd(INDEX_KEY, hash(key), key);
+    }
+    Response<Long> expiring = null;
+    if (ttlMillis >= 0) {
+      int seconds = (int) Math.min(Integer.MAX_VALUE, (ttlMillis + 999) / 1000);
+      expiring = transaction.expire(key, seconds);
+      transaction.zadd(EXPIRY_INDEX_KEY,
+          System.currentTimeMillis() + seconds * 1000L, key);
+    } else if (insert) {
+      transaction.zrem(EXPIRY_INDEX_KEY, key);
+    }
+    if (transaction.exec() == null) {
+      return Status.ERROR;
+    }
+    return "OK".equals(written.get())
+        && (expiring == null || expiring.get() == 1) ? Status.OK
+        : Status.ERROR;
+  }
+
+  /**
+   * Removes the keys that have expired from {@link #INDEX_KEY}. The expiry
+   * index is watched, so a key written again with a new TTL meanwhile makes
+   * the transaction fail and the pruning is left to the next scan.
+   */
+  private void pruneExpired() {
+    jedis.watch(EXPIRY_INDEX_KEY);
+    double now = System.currentTimeMillis();
+    Set<String> expired = jedis.zrangeByScore(EXPIRY_INDEX_KEY, 0, now);
+    if (expired.isEmpty()) {
+      jedis.unwatch();
+      return;
     }
-    return Status.ERROR;
+    Transaction transaction = jedis.multi();
+    for (String key : expired) {
+      transaction.zrem(INDEX_KEY, key);
+    }
+    transaction.zremrangeByScore(EXPIRY_INDEX_KEY, 0, now);
+    transaction.exec();
   }
 
   @Override
@@ -142,14 +219,17 @@ public class RedisClient extends DB {
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    pruneExpired();
     Set<String> keys = jedis.zrangeByScore(INDEX_KEY, hash(startkey),
         Double.POSITIVE_INFINITY, 0, recordcount);
 
     HashMap<String, ByteIterator> values;
     for (String key : keys) {
       values = new HashMap<String, ByteIterator>();
-      read(table, key, fields, values);
-      result.add(values);
+      // skip keys that expired since the last pruning
+      if (read(table, key, fields, values).isOk()) {
+        result.add(values);
+      }
     }
 
     return Status.OK;